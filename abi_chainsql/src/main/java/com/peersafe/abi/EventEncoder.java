@@ -1,7 +1,9 @@
 package com.peersafe.abi;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.peersafe.abi.datatypes.Event;
@@ -17,16 +19,50 @@ import org.web3j.utils.Numeric;
  */
 public class EventEncoder {
 
+    // Topics are keyed by name and parameter types; past this many we hash without caching
+    private static final int MAX_CACHED_TOPICS = 4096;
+    private static final ConcurrentHashMap<List<Object>, String> TOPICS =
+            new ConcurrentHashMap<>();
+
     private EventEncoder() { }
 
     public static String encode(Event function) {
+        if (function.getTopic() != null) {
+            return function.getTopic();
+        }
         List<TypeReference<Type>> indexedParameters = function.getIndexedParameters();
         List<TypeReference<Type>> nonIndexedParameters = function.getNonIndexedParameters();
 
-        String methodSignature = buildMethodSignature(function.getName(),
-                indexedParameters, nonIndexedParameters);
+        List<Object> key = cacheKey(function.getName(), indexedParameters, nonIndexedParameters);
+        String topic = TOPICS.get(key);
+        if (topic == null) {
+            String methodSignature = buildMethodSignature(function.getName(),
+                    indexedParameters, nonIndexedParameters);
+            topic = buildEventSignature(methodSignature);
+            if (TOPICS.size() < MAX_CACHED_TOPICS) {
+                TOPICS.putIfAbsent(key, topic);
+            }
+        }
+        return topic;
+    }
 
-        return buildEventSignature(methodSignature);
+    // The reflected types stand in for the type names, which take a Class.forName to build
+    private static List<Object> cacheKey(
+            String name, List<TypeReference<Type>> indexedParameters,
+            List<TypeReference<Type>> nonIndexedParameters) {
+        List<Object> key = new ArrayList<>(
+                1 + 2 * (indexedParameters.size() + nonIndexedParameters.size()));
+        key.add(name);
+        for (List<TypeReference<Type>> parameters
+                : Arrays.asList(indexedParameters, nonIndexedParameters)) {
+            for (TypeReference<Type> parameter : parameters) {
+                key.add(parameter.getType());
+                if (parameter instanceof TypeReference.StaticArrayTypeReference) {
+                    key.add(((TypeReference.StaticArrayTypeReference) parameter).getSize());
+                }
+            }
+        }
+        return key;
     }
 
     static <T extends Type> String buildMethodSignature(
@@ -1,15 +1,15 @@
 package com.peersafe.abi;
 
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.peersafe.abi.datatypes.Function;
 import com.peersafe.abi.datatypes.StaticArray;
 import com.peersafe.abi.datatypes.Type;
-import com.peersafe.abi.datatypes.Uint;
+import org.bouncycastle.util.encoders.Hex;
 import org.web3j.crypto.Hash;
-import org.web3j.utils.Numeric;
 
 /**
  * <p>Ethereum Contract Application Binary Interface (ABI) encoding for functions.
@@ -19,44 +19,84 @@ import org.web3j.utils.Numeric;
  */
 public class FunctionEncoder {
 
+    // Selectors are keyed by signature; past this many we hash without caching
+    private static final int MAX_CACHED_METHOD_IDS = 4096;
+    private static final ConcurrentHashMap<String, byte[]> METHOD_IDS =
+            new ConcurrentHashMap<>();
+
     private FunctionEncoder() { }
 
     public static String encode(Function function) {
-        List<Type> parameters = function.getInputParameters();
+        return "0x" + Hex.toHexString(encodeToBytes(function));
+    }
 
-        String methodSignature = buildMethodSignature(function.getName(), parameters);
-        String methodId = buildMethodId(methodSignature);
+    /**
+     * Encode a function call, method id followed by parameters, without going through hex.
+     *
+     * @param function function to encode
+     * @return ABI encoding
+     */
+    public static byte[] encodeToBytes(Function function) {
+        List<Type> parameters = function.getInputParameters();
 
-        StringBuilder result = new StringBuilder();
-        result.append(methodId);
+        byte[] methodId = function.getMethodIdBytes();
+        if (methodId == null) {
+            methodId = methodIdOf(buildMethodSignature(function.getName(), parameters));
+        }
 
-        return encodeParameters(parameters, result);
+        ByteBuffer out = ByteBuffer.allocate(methodId.length + encodedLength(parameters));
+        out.put(methodId);
+        encodeParameters(parameters, out);
+        return out.array();
     }
 
     public static String encodeConstructor(List<Type> parameters) {
-        return encodeParameters(parameters, new StringBuilder());
+        return Hex.toHexString(encodeConstructorToBytes(parameters));
     }
 
-    private static String encodeParameters(List<Type> parameters, StringBuilder result) {
-        int dynamicDataOffset = getLength(parameters) * Type.MAX_BYTE_LENGTH;
-        StringBuilder dynamicData = new StringBuilder();
+    public static byte[] encodeConstructorToBytes(List<Type> parameters) {
+        ByteBuffer out = ByteBuffer.allocate(encodedLength(parameters));
+        encodeParameters(parameters, out);
+        return out.array();
+    }
 
+    /**
+     * @param parameters function parameters
+     * @return the number of bytes {@link #encodeParameters(List, ByteBuffer)} writes
+     */
+    public static int encodedLength(List<Type> parameters) {
+        int length = 0;
         for (Type parameter:parameters) {
-            String encodedValue = TypeEncoder.encode(parameter);
+            length += TypeEncoder.encodedLength(parameter);
+            if (TypeEncoder.isDynamic(parameter)) {
+                length += Type.MAX_BYTE_LENGTH;
+            }
+        }
+        return length;
+    }
 
+    /**
+     * Encode parameters, static values and offsets first, then the dynamic values.
+     *
+     * @param parameters function parameters
+     * @param out buffer with {@link #encodedLength(List)} bytes remaining
+     */
+    public static void encodeParameters(List<Type> parameters, ByteBuffer out) {
+        int dynamicDataOffset = getLength(parameters) * Type.MAX_BYTE_LENGTH;
+
+        for (Type parameter:parameters) {
             if (TypeEncoder.isDynamic(parameter)) {
-                String encodedDataOffset = TypeEncoder.encodeNumeric(
-                        new Uint(BigInteger.valueOf(dynamicDataOffset)));
-                result.append(encodedDataOffset);
-                dynamicData.append(encodedValue);
-                dynamicDataOffset += encodedValue.length() >> 1;
+                TypeEncoder.encodeLength(dynamicDataOffset, out);
+                dynamicDataOffset += TypeEncoder.encodedLength(parameter);
             } else {
-                result.append(encodedValue);
+                TypeEncoder.encode(parameter, out);
+            }
+        }
+        for (Type parameter:parameters) {
+            if (TypeEncoder.isDynamic(parameter)) {
+                TypeEncoder.encode(parameter, out);
             }
         }
-        result.append(dynamicData);
-
-        return result.toString();
     }
 
     private static int getLength(List<Type> parameters) {
@@ -75,17 +115,35 @@ public class FunctionEncoder {
         StringBuilder result = new StringBuilder();
         result.append(methodName);
         result.append("(");
-        String params = parameters.stream()
-                .map(Type::getTypeAsString)
-                .collect(Collectors.joining(","));
-        result.append(params);
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                result.append(",");
+            }
+            result.append(parameters.get(i).getTypeAsString());
+        }
         result.append(")");
         return result.toString();
     }
 
     static String buildMethodId(String methodSignature) {
+        return "0x" + Hex.toHexString(methodIdOf(methodSignature));
+    }
+
+    // The cached selector; callers only read it
+    private static byte[] methodIdOf(String methodSignature) {
+        byte[] methodId = METHOD_IDS.get(methodSignature);
+        if (methodId == null) {
+            methodId = buildMethodIdBytes(methodSignature);
+            if (METHOD_IDS.size() < MAX_CACHED_METHOD_IDS) {
+                METHOD_IDS.putIfAbsent(methodSignature, methodId);
+            }
+        }
+        return methodId;
+    }
+
+    static byte[] buildMethodIdBytes(String methodSignature) {
         byte[] input = methodSignature.getBytes();
         byte[] hash = Hash.sha3(input);
-        return Numeric.toHexString(hash).substring(0, 10);
+        return Arrays.copyOf(hash, 4);
     }
 }
@@ -1,5 +1,6 @@
 package com.peersafe.abi;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -16,7 +17,7 @@ import com.peersafe.abi.datatypes.generated.Bytes32;
 import org.web3j.utils.Numeric;
 import org.web3j.utils.Strings;
 
-import static com.peersafe.abi.TypeDecoder.MAX_BYTE_LENGTH_FOR_HEX_STRING;
+import static com.peersafe.abi.datatypes.Type.MAX_BYTE_LENGTH;
 
 /**
  * Decodes values returned by function or event calls.
@@ -40,7 +41,48 @@ public class FunctionReturnDecoder {
         if (Strings.isEmpty(input)) {
             return Collections.emptyList();
         } else {
-            return build(input, outputParameters);
+            return build(Numeric.hexStringToByteArray(input), 0, outputParameters);
+        }
+    }
+
+    /**
+     * Decode ABI encoded return values from the bytes of a smart contract function call.
+     *
+     * @param input ABI encoded input
+     * @param outputParameters list of return types as {@link TypeReference}
+     * @return {@link List} of values returned by function, {@link Collections#emptyList()} if
+     *         input is empty
+     */
+    public static List<Type> decode(
+            byte[] input, List<TypeReference<Type>> outputParameters) {
+        if (input.length == 0) {
+            return Collections.emptyList();
+        } else {
+            return build(input, 0, outputParameters);
+        }
+    }
+
+    /**
+     * Decode ABI encoded return values from the remaining bytes of a buffer. Offsets in the
+     * encoding are relative to the buffer's position, which is left unchanged.
+     *
+     * @param input ABI encoded input
+     * @param outputParameters list of return types as {@link TypeReference}
+     * @return {@link List} of values returned by function, {@link Collections#emptyList()} if
+     *         input is empty
+     */
+    public static List<Type> decode(
+            ByteBuffer input, List<TypeReference<Type>> outputParameters) {
+        if (!input.hasRemaining()) {
+            return Collections.emptyList();
+        } else if (input.hasArray() && input.arrayOffset() + input.limit()
+                == input.array().length) {
+            return build(input.array(), input.arrayOffset() + input.position(),
+                    outputParameters);
+        } else {
+            byte[] bytes = new byte[input.remaining()];
+            input.duplicate().get(bytes);
+            return build(bytes, 0, outputParameters);
         }
     }
 
@@ -67,22 +109,34 @@ public class FunctionReturnDecoder {
      * @param <T> type of TypeReference
      * @return the decode value
      */
-    @SuppressWarnings("unchecked")
     public static <T extends Type> Type decodeIndexedValue(
             String rawInput, TypeReference<T> typeReference) {
-        String input = Numeric.cleanHexPrefix(rawInput);
+        return decodeIndexedValue(Numeric.hexStringToByteArray(rawInput), typeReference);
+    }
 
+    /**
+     * Decodes an indexed parameter associated with an event from its 32 topic bytes, see
+     * {@link #decodeIndexedValue(String, TypeReference)}.
+     *
+     * @param input topic bytes
+     * @param typeReference of expected result type
+     * @param <T> type of TypeReference
+     * @return the decode value
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Type> Type decodeIndexedValue(
+            byte[] input, TypeReference<T> typeReference) {
         try {
             Class<T> type = typeReference.getClassType();
 
             if (Bytes.class.isAssignableFrom(type)) {
-                return TypeDecoder.decodeBytes(input, (Class<Bytes>) Class.forName(type.getName()));
+                return TypeDecoder.decode(input, 0, (Class<Bytes>) type);
             } else if (Array.class.isAssignableFrom(type)
                     || BytesType.class.isAssignableFrom(type)
                     || Utf8String.class.isAssignableFrom(type)) {
-                return TypeDecoder.decodeBytes(input, Bytes32.class);
+                return TypeDecoder.decode(input, 0, Bytes32.class);
             } else {
-                return TypeDecoder.decode(input, type);
+                return TypeDecoder.decode(input, 0, type);
             }
         } catch (ClassNotFoundException e) {
             throw new UnsupportedOperationException("Invalid class reference provided", e);
@@ -90,36 +144,36 @@ public class FunctionReturnDecoder {
     }
 
     private static List<Type> build(
-            String input, List<TypeReference<Type>> outputParameters) {
+            byte[] input, int start, List<TypeReference<Type>> outputParameters) {
         List<Type> results = new ArrayList<>(outputParameters.size());
 
-        int offset = 0;
+        int offset = start;
         for (TypeReference<?> typeReference:outputParameters) {
             try {
                 @SuppressWarnings("unchecked")
                 Class<Type> type = (Class<Type>) typeReference.getClassType();
 
-                int hexStringDataOffset = getDataOffset(input, offset, type);
+                int dataOffset = getDataOffset(input, start, offset, type);
 
                 Type result;
                 if (DynamicArray.class.isAssignableFrom(type)) {
                     result = TypeDecoder.decodeDynamicArray(
-                            input, hexStringDataOffset, typeReference);
-                    offset += MAX_BYTE_LENGTH_FOR_HEX_STRING;
+                            input, dataOffset, typeReference);
+                    offset += MAX_BYTE_LENGTH;
                 } else if (typeReference instanceof TypeReference.StaticArrayTypeReference) {
                     int length = ((TypeReference.StaticArrayTypeReference) typeReference).getSize();
                     result = TypeDecoder.decodeStaticArray(
-                            input, hexStringDataOffset, typeReference, length);
-                    offset += length * MAX_BYTE_LENGTH_FOR_HEX_STRING;
+                            input, dataOffset, typeReference, length);
+                    offset += length * MAX_BYTE_LENGTH;
                 } else if (StaticArray.class.isAssignableFrom(type)) {
                     int length = Integer.parseInt(type.getSimpleName()
                             .substring(StaticArray.class.getSimpleName().length()));
                     result = TypeDecoder.decodeStaticArray(
-                            input, hexStringDataOffset, typeReference, length);
-                    offset += length * MAX_BYTE_LENGTH_FOR_HEX_STRING;
+                            input, dataOffset, typeReference, length);
+                    offset += length * MAX_BYTE_LENGTH;
                 } else {
-                    result = TypeDecoder.decode(input, hexStringDataOffset, type);
-                    offset += MAX_BYTE_LENGTH_FOR_HEX_STRING;
+                    result = TypeDecoder.decode(input, dataOffset, type);
+                    offset += MAX_BYTE_LENGTH;
                 }
                 results.add(result);
 
@@ -130,11 +184,12 @@ public class FunctionReturnDecoder {
         return results;
     }
 
-    private static <T extends Type> int getDataOffset(String input, int offset, Class<T> type) {
+    private static <T extends Type> int getDataOffset(
+            byte[] input, int start, int offset, Class<T> type) {
         if (DynamicBytes.class.isAssignableFrom(type)
                 || Utf8String.class.isAssignableFrom(type)
                 || DynamicArray.class.isAssignableFrom(type)) {
-            return TypeDecoder.decodeUintAsInt(input, offset) << 1;
+            return start + TypeDecoder.decodeUintAsInt(input, offset);
         } else {
             return offset;
         }
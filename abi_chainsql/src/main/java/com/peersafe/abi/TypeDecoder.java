@@ -1,12 +1,16 @@
 package com.peersafe.abi;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.ParameterizedType;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import com.peersafe.abi.datatypes.Address;
 import com.peersafe.abi.datatypes.Array;
@@ -24,6 +28,7 @@ import com.peersafe.abi.datatypes.Type;
 import com.peersafe.abi.datatypes.Ufixed;
 import com.peersafe.abi.datatypes.Uint;
 import com.peersafe.abi.datatypes.Utf8String;
+import com.peersafe.abi.datatypes.generated.AbiTypeFactories;
 import com.peersafe.abi.datatypes.generated.Uint160;
 import org.web3j.utils.Numeric;
 
@@ -32,11 +37,56 @@ import org.web3j.utils.Numeric;
  * Decoding is not documented, but is the reverse of the encoding details located
  * <a href="https://github.com/ethereum/wiki/wiki/Ethereum-Contract-ABI">here</a>.
  * </p>
+ *
+ * <p>The constructor, bit length and sign of each type are resolved once, the first time the
+ * type is decoded, so repeated decodes do no reflection or class name parsing. The generated
+ * types are created through the constructor references in {@link AbiTypeFactories}; any other
+ * type through a method handle.
+ * </p>
+ *
+ * <p>Values are decoded from bytes; the hex string methods convert only the span of the value
+ * or array being decoded.
+ * </p>
  */
 public class TypeDecoder {
 
     static final int MAX_BYTE_LENGTH_FOR_HEX_STRING = Type.MAX_BYTE_LENGTH << 1;
 
+    /**
+     * Decodes a value of one type, starting at a byte offset into the input.
+     */
+    interface ValueDecoder<T extends Type> {
+        T decode(byte[] input, int offset);
+    }
+
+    private static final ClassValue<ValueDecoder<?>> DECODERS =
+            new ClassValue<ValueDecoder<?>>() {
+                @Override
+                protected ValueDecoder<?> computeValue(Class<?> type) {
+                    return createDecoder(type);
+                }
+            };
+
+    private static final ClassValue<Function<List<Type>, ? extends Type>> STATIC_ARRAYS =
+            new ClassValue<Function<List<Type>, ? extends Type>>() {
+                @Override
+                protected Function<List<Type>, ? extends Type> computeValue(Class<?> type) {
+                    Function<List<Type>, ? extends Type> factory =
+                            AbiTypeFactories.staticArray(type);
+                    if (factory == null) {
+                        try {
+                            factory = constructorOf(type, List.class);
+                        } catch (ReflectiveOperationException e) {
+                            factory = StaticArray::new;
+                        }
+                    }
+                    return factory;
+                }
+            };
+
+    private static final ValueDecoder<Uint160> ADDRESS_VALUE =
+            numericDecoder(Uint160.class, Uint160::new);
+
     static <T extends Type> int getSingleElementLength(String input, int offset, Class<T> type) {
         if (input.length() == offset) {
             return 0;
@@ -49,26 +99,61 @@ public class TypeDecoder {
         }
     }
 
-    @SuppressWarnings("unchecked")
+    static <T extends Type> int getSingleElementLength(byte[] input, int offset, Class<T> type) {
+        if (input.length == offset) {
+            return 0;
+        } else if (DynamicBytes.class.isAssignableFrom(type)
+                || Utf8String.class.isAssignableFrom(type)) {
+            // length field + data value
+            return (decodeUintAsInt(input, offset) / Type.MAX_BYTE_LENGTH) + 2;
+        } else {
+            return 1;
+        }
+    }
+
     static <T extends Type> T decode(String input, int offset, Class<T> type) {
+        int length = getSingleElementLength(input, offset, type) * MAX_BYTE_LENGTH_FOR_HEX_STRING;
+        return decode(toBytes(input, offset, length), 0, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Type> T decode(byte[] input, int offset, Class<T> type) {
+        return ((ValueDecoder<T>) DECODERS.get(type)).decode(input, offset);
+    }
+
+    /**
+     * Converts up to length hex characters of input, starting at offset.
+     */
+    private static byte[] toBytes(String input, int offset, int length) {
+        return Numeric.hexStringToByteArray(
+                input.substring(offset, Math.min(input.length(), offset + length)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ValueDecoder<?> createDecoder(Class<?> type) {
         if (NumericType.class.isAssignableFrom(type)) {
-            return (T) decodeNumeric(input.substring(offset), (Class<NumericType>) type);
+            Class<NumericType> numericType = (Class<NumericType>) type;
+            return numericDecoder(numericType, numericFactory(numericType));
         } else if (Address.class.isAssignableFrom(type)) {
-            return (T) decodeAddress(input.substring(offset));
+            return (input, offset) -> new Address(ADDRESS_VALUE.decode(input, offset));
         } else if (Bool.class.isAssignableFrom(type)) {
-            return (T) decodeBool(input, offset);
+            return TypeDecoder::decodeBool;
         } else if (Bytes.class.isAssignableFrom(type)) {
-            return (T) decodeBytes(input, offset, (Class<Bytes>) type);
+            return bytesDecoder((Class<Bytes>) type);
         } else if (DynamicBytes.class.isAssignableFrom(type)) {
-            return (T) decodeDynamicBytes(input, offset);
+            return TypeDecoder::decodeDynamicBytes;
         } else if (Utf8String.class.isAssignableFrom(type)) {
-            return (T) decodeUtf8String(input, offset);
+            return TypeDecoder::decodeUtf8String;
         } else if (Array.class.isAssignableFrom(type)) {
-            throw new UnsupportedOperationException(
-                    "Array types must be wrapped in a TypeReference");
+            return (input, offset) -> {
+                throw new UnsupportedOperationException(
+                        "Array types must be wrapped in a TypeReference");
+            };
         } else {
-            throw new UnsupportedOperationException(
-                    "Type cannot be encoded: " + type.getClass());
+            return (input, offset) -> {
+                throw new UnsupportedOperationException(
+                        "Type cannot be encoded: " + type.getName());
+            };
         }
     }
 
@@ -90,32 +175,75 @@ public class TypeDecoder {
     }
 
     static Address decodeAddress(String input) {
-        return new Address(decodeNumeric(input, Uint160.class));
+        return decode(input, 0, Address.class);
     }
 
     static <T extends NumericType> T decodeNumeric(String input, Class<T> type) {
-        try {
-            byte[] inputByteArray = Numeric.hexStringToByteArray(input);
-            int typeLengthAsBytes = getTypeLengthInBytes(type);
+        return decode(input, 0, type);
+    }
+
+    private static <T extends NumericType> ValueDecoder<T> numericDecoder(
+            Class<T> type, Function<BigInteger, ? extends T> factory) {
+        int typeLengthAsBytes = getTypeLengthInBytes(type);
+        boolean signed = Int.class.isAssignableFrom(type) || Fixed.class.isAssignableFrom(type);
+        int valueOffset = Type.MAX_BYTE_LENGTH - typeLengthAsBytes;
 
+        return (input, offset) -> {
             byte[] resultByteArray = new byte[typeLengthAsBytes + 1];
 
-            if (Int.class.isAssignableFrom(type) || Fixed.class.isAssignableFrom(type)) {
-                resultByteArray[0] = inputByteArray[0];  // take MSB as sign bit
+            if (signed) {
+                resultByteArray[0] = input[offset];  // take MSB as sign bit
             }
+            System.arraycopy(input, offset + valueOffset, resultByteArray, 1, typeLengthAsBytes);
 
-            int valueOffset = Type.MAX_BYTE_LENGTH - typeLengthAsBytes;
-            System.arraycopy(inputByteArray, valueOffset, resultByteArray, 1, typeLengthAsBytes);
-
-            BigInteger numericValue = new BigInteger(resultByteArray);
-            return type.getConstructor(BigInteger.class).newInstance(numericValue);
+            return factory.apply(new BigInteger(resultByteArray));
+        };
+    }
 
-        } catch (NoSuchMethodException | SecurityException
-                | InstantiationException | IllegalAccessException
-                | IllegalArgumentException | InvocationTargetException e) {
-            throw new UnsupportedOperationException(
-                    "Unable to create instance of " + type.getName(), e);
+    @SuppressWarnings("unchecked")
+    private static <T extends NumericType> Function<BigInteger, T> numericFactory(
+            Class<T> type) {
+        Function<BigInteger, ? extends NumericType> factory = AbiTypeFactories.numeric(type);
+        if (factory == null) {
+            if (type.equals(Uint.class)) {
+                factory = Uint::new;
+            } else if (type.equals(Int.class)) {
+                factory = Int::new;
+            } else if (type.equals(Ufixed.class)) {
+                factory = Ufixed::new;
+            } else if (type.equals(Fixed.class)) {
+                factory = Fixed::new;
+            } else {
+                try {
+                    factory = constructorOf(type, BigInteger.class);
+                } catch (ReflectiveOperationException e) {
+                    throw new UnsupportedOperationException(
+                            "Unable to create instance of " + type.getName(), e);
+                }
+            }
         }
+        return (Function<BigInteger, T>) factory;
+    }
+
+    /**
+     * Looks up a public single argument constructor once; calls through the returned function
+     * are not reflective.
+     */
+    @SuppressWarnings("unchecked")
+    private static <A, T> Function<A, T> constructorOf(Class<?> type, Class<?> argument)
+            throws ReflectiveOperationException {
+        MethodHandle constructor = MethodHandles.publicLookup().findConstructor(
+                type, MethodType.methodType(void.class, argument));
+        return value -> {
+            try {
+                return (T) constructor.invoke(value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UnsupportedOperationException(
+                        "Unable to create instance of " + type.getName(), e);
+            }
+        };
     }
 
     static <T extends NumericType> int getTypeLengthInBytes(Class<T> type) {
@@ -143,13 +271,30 @@ public class TypeDecoder {
 
     static int decodeUintAsInt(String rawInput, int offset) {
         String input = rawInput.substring(offset, offset + MAX_BYTE_LENGTH_FOR_HEX_STRING);
-        return decode(input, 0, Uint.class).getValue().intValue();
+        return decodeUintAsInt(Numeric.hexStringToByteArray(input), 0);
+    }
+
+    /**
+     * @return the low 32 bits of the uint256 at offset
+     */
+    static int decodeUintAsInt(byte[] input, int offset) {
+        int at = offset + Type.MAX_BYTE_LENGTH - 4;
+        return (input[at] & 0xff) << 24
+                | (input[at + 1] & 0xff) << 16
+                | (input[at + 2] & 0xff) << 8
+                | (input[at + 3] & 0xff);
     }
 
     static Bool decodeBool(String rawInput, int offset) {
-        String input = rawInput.substring(offset, offset + MAX_BYTE_LENGTH_FOR_HEX_STRING);
-        BigInteger numericValue = Numeric.toBigInt(input);
-        boolean value = numericValue.equals(BigInteger.ONE);
+        return decode(rawInput, offset, Bool.class);
+    }
+
+    static Bool decodeBool(byte[] input, int offset) {
+        int last = offset + Type.MAX_BYTE_LENGTH - 1;
+        boolean value = input[last] == 1;
+        for (int i = offset; value && i < last; i++) {
+            value = input[i] == 0;
+        }
         return new Bool(value);
     }
 
@@ -158,49 +303,63 @@ public class TypeDecoder {
     }
 
     static <T extends Bytes> T decodeBytes(String input, int offset, Class<T> type) {
-        try {
-            String simpleName = type.getSimpleName();
-            String[] splitName = simpleName.split(Bytes.class.getSimpleName());
-            int length = Integer.parseInt(splitName[1]);
-            int hexStringLength = length << 1;
-
-            byte[] bytes = Numeric.hexStringToByteArray(
-                    input.substring(offset, offset + hexStringLength));
-            return type.getConstructor(byte[].class).newInstance(bytes);
-        } catch (NoSuchMethodException | SecurityException
-                | InstantiationException | IllegalAccessException
-                | IllegalArgumentException | InvocationTargetException e) {
-            throw new UnsupportedOperationException(
-                    "Unable to create instance of " + type.getName(), e);
+        return decode(input, offset, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Bytes> ValueDecoder<T> bytesDecoder(Class<T> type) {
+        Function<byte[], T> factory = (Function<byte[], T>) AbiTypeFactories.bytes(type);
+        if (factory == null) {
+            try {
+                factory = constructorOf(type, byte[].class);
+            } catch (ReflectiveOperationException e) {
+                throw new UnsupportedOperationException(
+                        "Unable to create instance of " + type.getName(), e);
+            }
         }
+        String[] splitName = type.getSimpleName().split(Bytes.class.getSimpleName());
+        int length = Integer.parseInt(splitName[1]);
+
+        Function<byte[], T> bytesFactory = factory;
+        return (input, offset) ->
+                bytesFactory.apply(Arrays.copyOfRange(input, offset, offset + length));
     }
 
     static DynamicBytes decodeDynamicBytes(String input, int offset) {
-        int encodedLength = decodeUintAsInt(input, offset);
-        int hexStringEncodedLength = encodedLength << 1;
-
-        int valueOffset = offset + MAX_BYTE_LENGTH_FOR_HEX_STRING;
+        return decode(input, offset, DynamicBytes.class);
+    }
 
-        String data = input.substring(valueOffset,
-                valueOffset + hexStringEncodedLength);
-        byte[] bytes = Numeric.hexStringToByteArray(data);
+    static DynamicBytes decodeDynamicBytes(byte[] input, int offset) {
+        int encodedLength = decodeUintAsInt(input, offset);
+        int valueOffset = offset + Type.MAX_BYTE_LENGTH;
 
-        return new DynamicBytes(bytes);
+        return new DynamicBytes(
+                Arrays.copyOfRange(input, valueOffset, valueOffset + encodedLength));
     }
 
     static Utf8String decodeUtf8String(String input, int offset) {
-        DynamicBytes dynamicBytesResult = decodeDynamicBytes(input, offset);
-        byte[] bytes = dynamicBytesResult.getValue();
+        return decode(input, offset, Utf8String.class);
+    }
 
-        return new Utf8String(new String(bytes, StandardCharsets.UTF_8));
+    static Utf8String decodeUtf8String(byte[] input, int offset) {
+        int encodedLength = decodeUintAsInt(input, offset);
+        int valueOffset = offset + Type.MAX_BYTE_LENGTH;
+
+        return new Utf8String(
+                new String(input, valueOffset, encodedLength, StandardCharsets.UTF_8));
     }
 
     /**
      * Static array length cannot be passed as a type.
      */
-    @SuppressWarnings("unchecked")
     static <T extends Type> T decodeStaticArray(
             String input, int offset, TypeReference<T> typeReference, int length) {
+        return decodeStaticArray(
+                Numeric.hexStringToByteArray(input.substring(offset)), 0, typeReference, length);
+    }
+
+    static <T extends Type> T decodeStaticArray(
+            byte[] input, int offset, TypeReference<T> typeReference, int length) {
 
         BiFunction<List<T>, String, T> function = (elements, typeName) -> {
             if (elements.isEmpty()) {
@@ -217,17 +376,23 @@ public class TypeDecoder {
     private static <T extends Type> T instantiateStaticArray(
             TypeReference<T> typeReference, List<T> elements) {
         try {
-            Class<List> listClass = List.class;
-            return typeReference.getClassType().getConstructor(listClass).newInstance(elements);
-        } catch (ReflectiveOperationException e) {
-            //noinspection unchecked
+            return (T) STATIC_ARRAYS.get(typeReference.getClassType())
+                    .apply((List<Type>) elements);
+        } catch (ClassNotFoundException | UnsupportedOperationException e) {
+            // e.g. a StaticArrayN given the wrong number of elements
             return (T) new StaticArray<>(elements);
         }
     }
 
-    @SuppressWarnings("unchecked")
     static <T extends Type> T decodeDynamicArray(
             String input, int offset, TypeReference<T> typeReference) {
+        return decodeDynamicArray(
+                Numeric.hexStringToByteArray(input.substring(offset)), 0, typeReference);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Type> T decodeDynamicArray(
+            byte[] input, int offset, TypeReference<T> typeReference) {
 
         int length = decodeUintAsInt(input, offset);
 
@@ -239,13 +404,13 @@ public class TypeDecoder {
             }
         };
 
-        int valueOffset = offset + MAX_BYTE_LENGTH_FOR_HEX_STRING;
+        int valueOffset = offset + Type.MAX_BYTE_LENGTH;
 
         return decodeArrayElements(input, valueOffset, typeReference, length, function);
     }
 
     private static <T extends Type> T decodeArrayElements(
-            String input, int offset, TypeReference<T> typeReference, int length,
+            byte[] input, int offset, TypeReference<T> typeReference, int length,
             BiFunction<List<T>, String, T> consumer) {
 
         try {
@@ -260,7 +425,7 @@ public class TypeDecoder {
                 for (int i = 0, currOffset = offset;
                         i < length;
                         i++, currOffset += getSingleElementLength(input, currOffset, cls)
-                             * MAX_BYTE_LENGTH_FOR_HEX_STRING) {
+                             * Type.MAX_BYTE_LENGTH) {
                     T value = decode(input, currOffset, cls);
                     elements.add(value);
                 }
@@ -1,7 +1,9 @@
 package com.peersafe.abi;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import com.peersafe.abi.datatypes.Address;
 import com.peersafe.abi.datatypes.Array;
@@ -16,7 +18,7 @@ import com.peersafe.abi.datatypes.Type;
 import com.peersafe.abi.datatypes.Ufixed;
 import com.peersafe.abi.datatypes.Uint;
 import com.peersafe.abi.datatypes.Utf8String;
-import org.web3j.utils.Numeric;
+import org.bouncycastle.util.encoders.Hex;
 
 import static com.peersafe.abi.datatypes.Type.MAX_BIT_LENGTH;
 import static com.peersafe.abi.datatypes.Type.MAX_BYTE_LENGTH;
@@ -29,6 +31,8 @@ import static com.peersafe.abi.datatypes.Type.MAX_BYTE_LENGTH;
  */
 public class TypeEncoder {
 
+    private static final byte[] ZEROS = new byte[MAX_BYTE_LENGTH];
+
     private TypeEncoder() { }
 
     static boolean isDynamic(Type parameter) {
@@ -37,24 +41,72 @@ public class TypeEncoder {
                 || parameter instanceof DynamicArray;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Encode a value as unprefixed hex.
+     *
+     * @param parameter value to encode
+     * @return ABI encoding
+     */
     public static String encode(Type parameter) {
+        ByteBuffer out = ByteBuffer.allocate(encodedLength(parameter));
+        encode(parameter, out);
+        return Hex.toHexString(out.array());
+    }
+
+    /**
+     * Encode a value into a buffer, which must have {@link #encodedLength(Type)} bytes
+     * remaining.
+     *
+     * @param parameter value to encode
+     * @param out buffer to write to, advanced past the encoding
+     */
+    @SuppressWarnings("unchecked")
+    public static void encode(Type parameter, ByteBuffer out) {
         if (parameter instanceof NumericType) {
-            return encodeNumeric(((NumericType) parameter));
+            encodeNumeric((NumericType) parameter, out);
         } else if (parameter instanceof Address) {
-            return encodeAddress((Address) parameter);
+            encodeNumeric(((Address) parameter).toUint160(), out);
         } else if (parameter instanceof Bool) {
-            return encodeBool((Bool) parameter);
+            encodeBool((Bool) parameter, out);
+        } else if (parameter instanceof Bytes) {
+            encodeBytes(((Bytes) parameter).getValue(), out);
+        } else if (parameter instanceof DynamicBytes) {
+            encodeDynamicBytes(((DynamicBytes) parameter).getValue(), out);
+        } else if (parameter instanceof Utf8String) {
+            encodeDynamicBytes(
+                    ((Utf8String) parameter).getValue().getBytes(StandardCharsets.UTF_8), out);
+        } else if (parameter instanceof StaticArray) {
+            encodeArrayValues((StaticArray) parameter, out);
+        } else if (parameter instanceof DynamicArray) {
+            List<Type> values = ((DynamicArray) parameter).getValue();
+            encodeLength(values.size(), out);
+            encodeArrayValues((DynamicArray) parameter, out);
+        } else {
+            throw new UnsupportedOperationException(
+                    "Type cannot be encoded: " + parameter.getClass());
+        }
+    }
+
+    /**
+     * @param parameter value to encode
+     * @return the number of bytes {@link #encode(Type, ByteBuffer)} writes
+     */
+    @SuppressWarnings("unchecked")
+    public static int encodedLength(Type parameter) {
+        if (parameter instanceof NumericType
+                || parameter instanceof Address
+                || parameter instanceof Bool) {
+            return MAX_BYTE_LENGTH;
         } else if (parameter instanceof Bytes) {
-            return encodeBytes((Bytes) parameter);
+            return paddedLength(((Bytes) parameter).getValue().length);
         } else if (parameter instanceof DynamicBytes) {
-            return encodeDynamicBytes((DynamicBytes) parameter);
+            return MAX_BYTE_LENGTH + paddedLength(((DynamicBytes) parameter).getValue().length);
         } else if (parameter instanceof Utf8String) {
-            return encodeString((Utf8String) parameter);
+            return MAX_BYTE_LENGTH + paddedLength(utf8Length(((Utf8String) parameter).getValue()));
         } else if (parameter instanceof StaticArray) {
-            return encodeArrayValues((StaticArray) parameter);
+            return arrayValuesLength((StaticArray) parameter);
         } else if (parameter instanceof DynamicArray) {
-            return encodeDynamicArray((DynamicArray) parameter);
+            return MAX_BYTE_LENGTH + arrayValuesLength((DynamicArray) parameter);
         } else {
             throw new UnsupportedOperationException(
                     "Type cannot be encoded: " + parameter.getClass());
@@ -62,24 +114,25 @@ public class TypeEncoder {
     }
 
     static String encodeAddress(Address address) {
-        return encodeNumeric(address.toUint160());
+        return encode(address);
     }
 
     static String encodeNumeric(NumericType numericType) {
+        return encode(numericType);
+    }
+
+    private static void encodeNumeric(NumericType numericType, ByteBuffer out) {
         byte[] rawValue = toByteArray(numericType);
         byte paddingValue = getPaddingValue(numericType);
-        byte[] paddedRawValue = new byte[MAX_BYTE_LENGTH];
-        if (paddingValue != 0) {
-            for (int i = 0; i < paddedRawValue.length; i++) {
-                paddedRawValue[i] = paddingValue;
-            }
+        int padding = MAX_BYTE_LENGTH - rawValue.length;
+        if (padding < 0) {
+            throw new UnsupportedOperationException(
+                    "Value too large to encode: " + numericType.getValue());
         }
-
-        System.arraycopy(
-                rawValue, 0,
-                paddedRawValue, MAX_BYTE_LENGTH - rawValue.length,
-                rawValue.length);
-        return Numeric.toHexStringNoPrefix(paddedRawValue);
+        for (int i = 0; i < padding; i++) {
+            out.put(paddingValue);
+        }
+        out.put(rawValue);
     }
 
     private static byte getPaddingValue(NumericType numericType) {
@@ -106,61 +159,95 @@ public class TypeEncoder {
     }
 
     static String encodeBool(Bool value) {
-        byte[] rawValue = new byte[MAX_BYTE_LENGTH];
-        if (value.getValue()) {
-            rawValue[rawValue.length - 1] = 1;
-        }
-        return Numeric.toHexStringNoPrefix(rawValue);
+        return encode(value);
+    }
+
+    private static void encodeBool(Bool value, ByteBuffer out) {
+        out.put(ZEROS, 0, MAX_BYTE_LENGTH - 1);
+        out.put(value.getValue() ? (byte) 1 : 0);
     }
 
     static String encodeBytes(BytesType bytesType) {
         byte[] value = bytesType.getValue();
-        int length = value.length;
-        int mod = length % MAX_BYTE_LENGTH;
+        ByteBuffer out = ByteBuffer.allocate(paddedLength(value.length));
+        encodeBytes(value, out);
+        return Hex.toHexString(out.array());
+    }
 
-        byte[] dest;
+    private static void encodeBytes(byte[] value, ByteBuffer out) {
+        out.put(value);
+        int mod = value.length % MAX_BYTE_LENGTH;
         if (mod != 0) {
-            int padding = MAX_BYTE_LENGTH - mod;
-            dest = new byte[length + padding];
-            System.arraycopy(value, 0, dest, 0, length);
-        } else {
-            dest = value;
+            out.put(ZEROS, 0, MAX_BYTE_LENGTH - mod);
         }
-        return Numeric.toHexStringNoPrefix(dest);
     }
 
     static String encodeDynamicBytes(DynamicBytes dynamicBytes) {
-        int size = dynamicBytes.getValue().length;
-        String encodedLength = encode(new Uint(BigInteger.valueOf(size)));
-        String encodedValue = encodeBytes(dynamicBytes);
+        return encode(dynamicBytes);
+    }
 
-        StringBuilder result = new StringBuilder();
-        result.append(encodedLength);
-        result.append(encodedValue);
-        return result.toString();
+    private static void encodeDynamicBytes(byte[] value, ByteBuffer out) {
+        encodeLength(value.length, out);
+        encodeBytes(value, out);
     }
 
     static String encodeString(Utf8String string) {
-        byte[] utfEncoded = string.getValue().getBytes(StandardCharsets.UTF_8);
-        return encodeDynamicBytes(new DynamicBytes(utfEncoded));
+        return encode(string);
     }
 
     static <T extends Type> String encodeArrayValues(Array<T> value) {
-        StringBuilder result = new StringBuilder();
+        ByteBuffer out = ByteBuffer.allocate(arrayValuesLength(value));
+        encodeArrayValues(value, out);
+        return Hex.toHexString(out.array());
+    }
+
+    private static <T extends Type> void encodeArrayValues(Array<T> value, ByteBuffer out) {
         for (Type type:value.getValue()) {
-            result.append(TypeEncoder.encode(type));
+            encode(type, out);
         }
-        return result.toString();
+    }
+
+    private static <T extends Type> int arrayValuesLength(Array<T> value) {
+        int length = 0;
+        for (Type type:value.getValue()) {
+            length += encodedLength(type);
+        }
+        return length;
     }
 
     static <T extends Type> String encodeDynamicArray(DynamicArray<T> value) {
-        int size = value.getValue().size();
-        String encodedLength = encode(new Uint(BigInteger.valueOf(size)));
-        String encodedValues = encodeArrayValues(value);
-
-        StringBuilder result = new StringBuilder();
-        result.append(encodedLength);
-        result.append(encodedValues);
-        return result.toString();
+        return encode(value);
+    }
+
+    /**
+     * Writes a length or offset as a uint256.
+     */
+    static void encodeLength(int value, ByteBuffer out) {
+        out.put(ZEROS, 0, MAX_BYTE_LENGTH - 4);
+        out.putInt(value);
+    }
+
+    private static int paddedLength(int length) {
+        return (length + MAX_BYTE_LENGTH - 1) / MAX_BYTE_LENGTH * MAX_BYTE_LENGTH;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // a lone surrogate is encoded as '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
     }
 }
@@ -50,6 +50,8 @@ public abstract class TypeReference<T extends com.peersafe.abi.datatypes.Type>
 
         if (getType() instanceof ParameterizedType) {
             return (Class<T>) ((ParameterizedType) clsType).getRawType();
+        } else if (clsType instanceof Class) {
+            return (Class<T>) clsType;
         } else {
             return (Class<T>) Class.forName(clsType.getTypeName());
         }
@@ -86,6 +86,9 @@ public class Utils {
         java.lang.reflect.Type[] typeArguments =
                 ((ParameterizedType) type).getActualTypeArguments();
 
+        if (typeArguments[0] instanceof Class) {
+            return (Class<T>) typeArguments[0];
+        }
         String parameterizedTypeName = typeArguments[0].getTypeName();
         return (Class<T>) Class.forName(parameterizedTypeName);
     }
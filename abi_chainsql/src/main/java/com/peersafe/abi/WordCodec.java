@@ -0,0 +1,223 @@
+package com.peersafe.abi;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.bouncycastle.util.encoders.Hex;
+
+import com.peersafe.abi.datatypes.Address;
+import com.peersafe.abi.datatypes.Type;
+
+import static com.peersafe.account.Config.getB58IdentiferCodecs;
+import static com.peersafe.abi.datatypes.Type.MAX_BIT_LENGTH;
+import static com.peersafe.abi.datatypes.Type.MAX_BYTE_LENGTH;
+
+/**
+ * <p>ABI encoding of plain Java values, one word at a time.
+ *
+ * <p>Used by wrappers generated with static codecs, which know every offset
+ * up front and so need neither {@link Type} instances nor {@link TypeReference}s.
+ */
+public final class WordCodec {
+
+    public static final int WORD = MAX_BYTE_LENGTH;
+
+    private static final byte[] ZEROS = new byte[WORD];
+    private static final byte[] ONES = new byte[WORD];
+    private static final int ADDRESS_BYTES = Address.LENGTH >> 3;
+
+    static {
+        Arrays.fill(ONES, (byte) 0xff);
+    }
+
+    private WordCodec() { }
+
+    /**
+     * @param methodId selector or topic as hex, with or without the 0x prefix
+     * @return its bytes
+     */
+    public static byte[] selector(String methodId) {
+        return Hex.decode(methodId.startsWith("0x") ? methodId.substring(2) : methodId);
+    }
+
+    /**
+     * Writes a uintN value.
+     *
+     * @param bitSize N
+     */
+    public static void putUint(ByteBuffer out, BigInteger value, int bitSize) {
+        if (value.signum() < 0 || value.bitLength() > bitSize) {
+            throw new UnsupportedOperationException(
+                    "Value " + value + " out of range for uint" + bitSize);
+        }
+        byte[] raw = value.toByteArray();
+        int from = 0;
+        if (raw.length == WORD + 1 && value.bitLength() == MAX_BIT_LENGTH) {
+            // drop the sign byte of a full 256 bit value
+            from = 1;
+        }
+        putPadded(out, raw, from, ZEROS);
+    }
+
+    /**
+     * Writes an intN value, in the two's complement range of N bits.
+     *
+     * @param bitSize N
+     */
+    public static void putInt(ByteBuffer out, BigInteger value, int bitSize) {
+        // bitLength leaves out the sign bit
+        if (value.bitLength() > bitSize - 1) {
+            throw new UnsupportedOperationException(
+                    "Value " + value + " out of range for int" + bitSize);
+        }
+        putPadded(out, value.toByteArray(), 0, value.signum() < 0 ? ONES : ZEROS);
+    }
+
+    private static void putPadded(ByteBuffer out, byte[] raw, int from, byte[] padding) {
+        int length = raw.length - from;
+        if (length > WORD) {
+            throw new UnsupportedOperationException("Value too large to encode");
+        }
+        out.put(padding, 0, WORD - length);
+        out.put(raw, from, length);
+    }
+
+    /**
+     * @param out buffer
+     * @param address 0x prefixed hex, bare hex or a base58 account id
+     */
+    public static void putAddress(ByteBuffer out, String address) {
+        String hex = address.length() == 42 ? address.substring(2) : address;
+        byte[] raw = hex.length() == ADDRESS_BYTES * 2
+                ? Hex.decode(hex) : getB58IdentiferCodecs().decodeAddress(address);
+        out.put(ZEROS, 0, WORD - raw.length);
+        out.put(raw);
+    }
+
+    public static void putBool(ByteBuffer out, boolean value) {
+        out.put(ZEROS, 0, WORD - 1);
+        out.put(value ? (byte) 1 : 0);
+    }
+
+    /**
+     * Writes a bytesN value, padded on the right.
+     */
+    public static void putBytes(ByteBuffer out, byte[] value, int size) {
+        if (value.length != size) {
+            throw new UnsupportedOperationException(
+                    "Input byte array must be in range 0 < M <= 32 and length must match type");
+        }
+        out.put(value);
+        out.put(ZEROS, 0, WORD - size);
+    }
+
+    /**
+     * Writes a length or offset.
+     */
+    public static void putLength(ByteBuffer out, int value) {
+        TypeEncoder.encodeLength(value, out);
+    }
+
+    /**
+     * Writes a bytes or string value, length first.
+     */
+    public static void putDynamicBytes(ByteBuffer out, byte[] value) {
+        putLength(out, value.length);
+        out.put(value);
+        int mod = value.length % WORD;
+        if (mod != 0) {
+            out.put(ZEROS, 0, WORD - mod);
+        }
+    }
+
+    /**
+     * @return the number of bytes {@link #putDynamicBytes(ByteBuffer, byte[])} writes
+     */
+    public static int dynamicLength(byte[] value) {
+        return WORD + (value.length + WORD - 1) / WORD * WORD;
+    }
+
+    public static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static BigInteger getUint(byte[] input, int offset) {
+        checkRange(input, offset, WORD);
+        return new BigInteger(1, Arrays.copyOfRange(input, offset, offset + WORD));
+    }
+
+    public static BigInteger getInt(byte[] input, int offset) {
+        checkRange(input, offset, WORD);
+        return new BigInteger(Arrays.copyOfRange(input, offset, offset + WORD));
+    }
+
+    /**
+     * @return the address as 0x prefixed hex, like {@link Address#toString()}
+     */
+    public static String getAddress(byte[] input, int offset) {
+        checkRange(input, offset, WORD);
+        return "0x" + Hex.toHexString(input, offset + WORD - ADDRESS_BYTES, ADDRESS_BYTES);
+    }
+
+    public static boolean getBool(byte[] input, int offset) {
+        checkRange(input, offset, WORD);
+        int last = offset + WORD - 1;
+        boolean value = input[last] == 1;
+        for (int i = offset; value && i < last; i++) {
+            value = input[i] == 0;
+        }
+        return value;
+    }
+
+    public static byte[] getBytes(byte[] input, int offset, int size) {
+        checkRange(input, offset, WORD);
+        return Arrays.copyOfRange(input, offset, offset + size);
+    }
+
+    /**
+     * @return a length or offset
+     * @throws UnsupportedOperationException if it points past the input
+     */
+    public static int getLength(byte[] input, int offset) {
+        checkRange(input, offset, WORD);
+        for (int i = offset; i < offset + WORD - 4; i++) {
+            if (input[i] != 0) {
+                throw new UnsupportedOperationException("Length or offset out of range at " + offset);
+            }
+        }
+        int value = TypeDecoder.decodeUintAsInt(input, offset);
+        if (value < 0 || value > input.length) {
+            throw new UnsupportedOperationException("Length or offset out of range at " + offset);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the bytes value that the offset word at <code>offset</code> points to.
+     */
+    public static byte[] getDynamicBytes(byte[] input, int offset) {
+        int at = getLength(input, offset);
+        int length = getLength(input, at);
+        checkRange(input, at + WORD, length);
+        return Arrays.copyOfRange(input, at + WORD, at + WORD + length);
+    }
+
+    /**
+     * Reads the string that the offset word at <code>offset</code> points to.
+     */
+    public static String getString(byte[] input, int offset) {
+        int at = getLength(input, offset);
+        int length = getLength(input, at);
+        checkRange(input, at + WORD, length);
+        return new String(input, at + WORD, length, StandardCharsets.UTF_8);
+    }
+
+    private static void checkRange(byte[] input, int offset, int length) {
+        if (offset < 0 || offset > input.length - length) {
+            throw new UnsupportedOperationException("Input too short, " + input.length
+                    + " bytes, to read " + length + " at " + offset);
+        }
+    }
+}
@@ -13,10 +13,23 @@ public class Event {
     private String name;
     private List<TypeReference<Type>> indexedParameters;
     private List<TypeReference<Type>> nonIndexedParameters;
+    private String topic;
 
     public Event(String name, List<TypeReference<?>> indexedParameters,
                  List<TypeReference<?>> nonIndexedParameters) {
+        this(name, null, indexedParameters, nonIndexedParameters);
+    }
+
+    /**
+     * @param name event name
+     * @param topic precomputed signature hash, or null to hash the signature
+     * @param indexedParameters indexed parameters
+     * @param nonIndexedParameters non indexed parameters
+     */
+    public Event(String name, String topic, List<TypeReference<?>> indexedParameters,
+                 List<TypeReference<?>> nonIndexedParameters) {
         this.name = name;
+        this.topic = topic;
         this.indexedParameters = convert(indexedParameters);
         this.nonIndexedParameters = convert(nonIndexedParameters);
     }
@@ -25,6 +38,10 @@ public class Event {
         return name;
     }
 
+    public String getTopic() {
+        return topic;
+    }
+
     public List<TypeReference<Type>> getIndexedParameters() {
         return indexedParameters;
     }
@@ -3,6 +3,7 @@ package com.peersafe.abi.datatypes;
 import java.util.List;
 
 import com.peersafe.abi.TypeReference;
+import org.bouncycastle.util.encoders.Hex;
 
 import static com.peersafe.abi.Utils.convert;
 
@@ -13,10 +14,23 @@ public class Function {
     private String name;
     private List<Type> inputParameters;
     private List<TypeReference<Type>> outputParameters;
+    private String methodId;
 
     public Function(String name, List<Type> inputParameters,
                     List<TypeReference<?>> outputParameters) {
+        this(name, null, inputParameters, outputParameters);
+    }
+
+    /**
+     * @param name function name
+     * @param methodId precomputed selector, e.g. "0xa9059cbb", or null to hash the signature
+     * @param inputParameters input parameters
+     * @param outputParameters output parameters
+     */
+    public Function(String name, String methodId, List<Type> inputParameters,
+                    List<TypeReference<?>> outputParameters) {
         this.name = name;
+        this.methodId = methodId;
         this.inputParameters = inputParameters;
         this.outputParameters = convert(outputParameters);
     }
@@ -25,6 +39,17 @@ public class Function {
         return name;
     }
 
+    public String getMethodId() {
+        return methodId;
+    }
+
+    public byte[] getMethodIdBytes() {
+        if (methodId == null) {
+            return null;
+        }
+        return Hex.decode(methodId.startsWith("0x") ? methodId.substring(2) : methodId);
+    }
+
     public List<Type> getInputParameters() {
         return inputParameters;
     }
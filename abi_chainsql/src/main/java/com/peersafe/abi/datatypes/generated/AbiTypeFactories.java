@@ -0,0 +1,171 @@
+package com.peersafe.abi.datatypes.generated;
+
+import com.peersafe.abi.datatypes.Bytes;
+import com.peersafe.abi.datatypes.NumericType;
+import com.peersafe.abi.datatypes.StaticArray;
+import com.peersafe.abi.datatypes.Type;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Auto generated code.
+ * <p><strong>Do not modifiy!</strong>
+ * <p>Please use com.peersafe.codegen.AbiTypeFactoriesGenerator in the 
+ * <a href="https://github.com/web3j/web3j/tree/master/codegen">codegen module</a> to update.
+ */
+public final class AbiTypeFactories {
+    private static final Map<Class<?>, Function<BigInteger, ? extends NumericType>> NUMERIC = new HashMap<>();
+
+    private static final Map<Class<?>, Function<byte[], ? extends Bytes>> BYTES = new HashMap<>();
+
+    private static final Map<Class<?>, Function<List<Type>, ? extends StaticArray<Type>>> STATIC_ARRAYS = new HashMap<>();
+
+    static {
+        NUMERIC.put(Uint8.class, Uint8::new);
+        NUMERIC.put(Int8.class, Int8::new);
+        NUMERIC.put(Uint16.class, Uint16::new);
+        NUMERIC.put(Int16.class, Int16::new);
+        NUMERIC.put(Uint24.class, Uint24::new);
+        NUMERIC.put(Int24.class, Int24::new);
+        NUMERIC.put(Uint32.class, Uint32::new);
+        NUMERIC.put(Int32.class, Int32::new);
+        NUMERIC.put(Uint40.class, Uint40::new);
+        NUMERIC.put(Int40.class, Int40::new);
+        NUMERIC.put(Uint48.class, Uint48::new);
+        NUMERIC.put(Int48.class, Int48::new);
+        NUMERIC.put(Uint56.class, Uint56::new);
+        NUMERIC.put(Int56.class, Int56::new);
+        NUMERIC.put(Uint64.class, Uint64::new);
+        NUMERIC.put(Int64.class, Int64::new);
+        NUMERIC.put(Uint72.class, Uint72::new);
+        NUMERIC.put(Int72.class, Int72::new);
+        NUMERIC.put(Uint80.class, Uint80::new);
+        NUMERIC.put(Int80.class, Int80::new);
+        NUMERIC.put(Uint88.class, Uint88::new);
+        NUMERIC.put(Int88.class, Int88::new);
+        NUMERIC.put(Uint96.class, Uint96::new);
+        NUMERIC.put(Int96.class, Int96::new);
+        NUMERIC.put(Uint104.class, Uint104::new);
+        NUMERIC.put(Int104.class, Int104::new);
+        NUMERIC.put(Uint112.class, Uint112::new);
+        NUMERIC.put(Int112.class, Int112::new);
+        NUMERIC.put(Uint120.class, Uint120::new);
+        NUMERIC.put(Int120.class, Int120::new);
+        NUMERIC.put(Uint128.class, Uint128::new);
+        NUMERIC.put(Int128.class, Int128::new);
+        NUMERIC.put(Uint136.class, Uint136::new);
+        NUMERIC.put(Int136.class, Int136::new);
+        NUMERIC.put(Uint144.class, Uint144::new);
+        NUMERIC.put(Int144.class, Int144::new);
+        NUMERIC.put(Uint152.class, Uint152::new);
+        NUMERIC.put(Int152.class, Int152::new);
+        NUMERIC.put(Uint160.class, Uint160::new);
+        NUMERIC.put(Int160.class, Int160::new);
+        NUMERIC.put(Uint168.class, Uint168::new);
+        NUMERIC.put(Int168.class, Int168::new);
+        NUMERIC.put(Uint176.class, Uint176::new);
+        NUMERIC.put(Int176.class, Int176::new);
+        NUMERIC.put(Uint184.class, Uint184::new);
+        NUMERIC.put(Int184.class, Int184::new);
+        NUMERIC.put(Uint192.class, Uint192::new);
+        NUMERIC.put(Int192.class, Int192::new);
+        NUMERIC.put(Uint200.class, Uint200::new);
+        NUMERIC.put(Int200.class, Int200::new);
+        NUMERIC.put(Uint208.class, Uint208::new);
+        NUMERIC.put(Int208.class, Int208::new);
+        NUMERIC.put(Uint216.class, Uint216::new);
+        NUMERIC.put(Int216.class, Int216::new);
+        NUMERIC.put(Uint224.class, Uint224::new);
+        NUMERIC.put(Int224.class, Int224::new);
+        NUMERIC.put(Uint232.class, Uint232::new);
+        NUMERIC.put(Int232.class, Int232::new);
+        NUMERIC.put(Uint240.class, Uint240::new);
+        NUMERIC.put(Int240.class, Int240::new);
+        NUMERIC.put(Uint248.class, Uint248::new);
+        NUMERIC.put(Int248.class, Int248::new);
+        NUMERIC.put(Uint256.class, Uint256::new);
+        NUMERIC.put(Int256.class, Int256::new);
+        BYTES.put(Bytes1.class, Bytes1::new);
+        BYTES.put(Bytes2.class, Bytes2::new);
+        BYTES.put(Bytes3.class, Bytes3::new);
+        BYTES.put(Bytes4.class, Bytes4::new);
+        BYTES.put(Bytes5.class, Bytes5::new);
+        BYTES.put(Bytes6.class, Bytes6::new);
+        BYTES.put(Bytes7.class, Bytes7::new);
+        BYTES.put(Bytes8.class, Bytes8::new);
+        BYTES.put(Bytes9.class, Bytes9::new);
+        BYTES.put(Bytes10.class, Bytes10::new);
+        BYTES.put(Bytes11.class, Bytes11::new);
+        BYTES.put(Bytes12.class, Bytes12::new);
+        BYTES.put(Bytes13.class, Bytes13::new);
+        BYTES.put(Bytes14.class, Bytes14::new);
+        BYTES.put(Bytes15.class, Bytes15::new);
+        BYTES.put(Bytes16.class, Bytes16::new);
+        BYTES.put(Bytes17.class, Bytes17::new);
+        BYTES.put(Bytes18.class, Bytes18::new);
+        BYTES.put(Bytes19.class, Bytes19::new);
+        BYTES.put(Bytes20.class, Bytes20::new);
+        BYTES.put(Bytes21.class, Bytes21::new);
+        BYTES.put(Bytes22.class, Bytes22::new);
+        BYTES.put(Bytes23.class, Bytes23::new);
+        BYTES.put(Bytes24.class, Bytes24::new);
+        BYTES.put(Bytes25.class, Bytes25::new);
+        BYTES.put(Bytes26.class, Bytes26::new);
+        BYTES.put(Bytes27.class, Bytes27::new);
+        BYTES.put(Bytes28.class, Bytes28::new);
+        BYTES.put(Bytes29.class, Bytes29::new);
+        BYTES.put(Bytes30.class, Bytes30::new);
+        BYTES.put(Bytes31.class, Bytes31::new);
+        BYTES.put(Bytes32.class, Bytes32::new);
+        STATIC_ARRAYS.put(StaticArray1.class, StaticArray1::new);
+        STATIC_ARRAYS.put(StaticArray2.class, StaticArray2::new);
+        STATIC_ARRAYS.put(StaticArray3.class, StaticArray3::new);
+        STATIC_ARRAYS.put(StaticArray4.class, StaticArray4::new);
+        STATIC_ARRAYS.put(StaticArray5.class, StaticArray5::new);
+        STATIC_ARRAYS.put(StaticArray6.class, StaticArray6::new);
+        STATIC_ARRAYS.put(StaticArray7.class, StaticArray7::new);
+        STATIC_ARRAYS.put(StaticArray8.class, StaticArray8::new);
+        STATIC_ARRAYS.put(StaticArray9.class, StaticArray9::new);
+        STATIC_ARRAYS.put(StaticArray10.class, StaticArray10::new);
+        STATIC_ARRAYS.put(StaticArray11.class, StaticArray11::new);
+        STATIC_ARRAYS.put(StaticArray12.class, StaticArray12::new);
+        STATIC_ARRAYS.put(StaticArray13.class, StaticArray13::new);
+        STATIC_ARRAYS.put(StaticArray14.class, StaticArray14::new);
+        STATIC_ARRAYS.put(StaticArray15.class, StaticArray15::new);
+        STATIC_ARRAYS.put(StaticArray16.class, StaticArray16::new);
+        STATIC_ARRAYS.put(StaticArray17.class, StaticArray17::new);
+        STATIC_ARRAYS.put(StaticArray18.class, StaticArray18::new);
+        STATIC_ARRAYS.put(StaticArray19.class, StaticArray19::new);
+        STATIC_ARRAYS.put(StaticArray20.class, StaticArray20::new);
+        STATIC_ARRAYS.put(StaticArray21.class, StaticArray21::new);
+        STATIC_ARRAYS.put(StaticArray22.class, StaticArray22::new);
+        STATIC_ARRAYS.put(StaticArray23.class, StaticArray23::new);
+        STATIC_ARRAYS.put(StaticArray24.class, StaticArray24::new);
+        STATIC_ARRAYS.put(StaticArray25.class, StaticArray25::new);
+        STATIC_ARRAYS.put(StaticArray26.class, StaticArray26::new);
+        STATIC_ARRAYS.put(StaticArray27.class, StaticArray27::new);
+        STATIC_ARRAYS.put(StaticArray28.class, StaticArray28::new);
+        STATIC_ARRAYS.put(StaticArray29.class, StaticArray29::new);
+        STATIC_ARRAYS.put(StaticArray30.class, StaticArray30::new);
+        STATIC_ARRAYS.put(StaticArray31.class, StaticArray31::new);
+        STATIC_ARRAYS.put(StaticArray32.class, StaticArray32::new);
+    }
+
+    private AbiTypeFactories() {
+    }
+
+    public static Function<BigInteger, ? extends NumericType> numeric(Class<?> type) {
+        return NUMERIC.get(type);
+    }
+
+    public static Function<byte[], ? extends Bytes> bytes(Class<?> type) {
+        return BYTES.get(type);
+    }
+
+    public static Function<List<Type>, ? extends StaticArray<Type>> staticArray(Class<?> type) {
+        return STATIC_ARRAYS.get(type);
+    }
+}
@@ -1,7 +1,13 @@
 package com.peersafe.abi;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import org.junit.Test;
 
+import com.peersafe.abi.datatypes.Event;
+import com.peersafe.abi.datatypes.generated.Uint256;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -15,4 +21,28 @@ public class EventEncoderTest {
         assertThat(EventEncoder.buildEventSignature("Notify(uint256,uint256)"),
                 is("0x71e71a8458267085d5ab16980fd5f114d2d37f232479c245d523ce8d23ca40ed"));
     }
+
+    @Test
+    public void testEncode() {
+        Event event = new Event("Notify",
+                Collections.<TypeReference<?>>emptyList(),
+                Arrays.<TypeReference<?>>asList(
+                        new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {}));
+        String expected = "0x71e71a8458267085d5ab16980fd5f114d2d37f232479c245d523ce8d23ca40ed";
+
+        assertThat(EventEncoder.encode(event), is(expected));
+        // a separate but equal definition hits the cache
+        assertThat(EventEncoder.encode(new Event("Notify",
+                Collections.<TypeReference<?>>emptyList(),
+                Arrays.<TypeReference<?>>asList(TypeReference.create(Uint256.class),
+                        TypeReference.create(Uint256.class)))), is(expected));
+    }
+
+    @Test
+    public void testPrecomputedTopic() {
+        Event event = new Event("Notify", "0x1234",
+                Collections.<TypeReference<?>>emptyList(),
+                Collections.<TypeReference<?>>emptyList());
+        assertThat(EventEncoder.encode(event), is("0x1234"));
+    }
 }
@@ -1,8 +1,10 @@
 package com.peersafe.abi;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -10,10 +12,12 @@ import com.peersafe.abi.datatypes.Bool;
 import com.peersafe.abi.datatypes.DynamicArray;
 import com.peersafe.abi.datatypes.DynamicBytes;
 import com.peersafe.abi.datatypes.Function;
+import com.peersafe.abi.datatypes.Type;
 import com.peersafe.abi.datatypes.Uint;
 import com.peersafe.abi.datatypes.Utf8String;
 import com.peersafe.abi.datatypes.generated.Bytes10;
 import com.peersafe.abi.datatypes.generated.Uint32;
+import org.web3j.utils.Numeric;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -136,4 +140,52 @@ public class FunctionEncoderTest {
                         + "48656c6c6f2c20776f726c642100000000000000000000000000000000000000"
                 ));
     }
+
+    @Test
+    public void testEncodeToBytes() {
+        Function function = new Function(
+                "sam",
+                Arrays.asList(
+                    new DynamicBytes("dave".getBytes()),
+                    new Bool(true),
+                    new DynamicArray<>(
+                            new Uint(BigInteger.ONE),
+                            new Uint(BigInteger.valueOf(2)),
+                            new Uint(BigInteger.valueOf(3)))),
+                Collections.<TypeReference<?>>emptyList()
+        );
+
+        byte[] encoded = FunctionEncoder.encodeToBytes(function);
+        assertThat(encoded.length, is(4 + 9 * 32));
+        assertThat(Numeric.toHexString(encoded), is(FunctionEncoder.encode(function)));
+    }
+
+    @Test
+    public void testPrecomputedMethodId() {
+        List<Type> parameters = Arrays.<Type>asList(new Uint32(BigInteger.valueOf(69)),
+                new Bool(true));
+        Function hashed = new Function("baz", parameters,
+                Collections.<TypeReference<?>>emptyList());
+        Function precomputed = new Function("baz", "0xcdcd77c0", parameters,
+                Collections.<TypeReference<?>>emptyList());
+
+        assertThat(FunctionEncoder.encode(precomputed), is(FunctionEncoder.encode(hashed)));
+        // second time round the selector comes from the cache
+        assertThat(FunctionEncoder.encode(hashed), is(FunctionEncoder.encode(precomputed)));
+    }
+
+    @Test
+    public void testEncodeParametersIntoBuffer() {
+        List<Type> parameters = Arrays.asList(
+                new Utf8String("Greetings!"), new Uint(BigInteger.ONE));
+        ByteBuffer out = ByteBuffer.allocate(2 + FunctionEncoder.encodedLength(parameters));
+        out.position(2);
+
+        FunctionEncoder.encodeParameters(parameters, out);
+
+        assertThat(out.remaining(), is(0));
+        assertThat(Numeric.toHexStringNoPrefix(
+                Arrays.copyOfRange(out.array(), 2, out.capacity())),
+                is(FunctionEncoder.encodeConstructor(parameters)));
+    }
 }
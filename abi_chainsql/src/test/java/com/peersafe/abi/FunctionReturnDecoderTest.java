@@ -1,6 +1,7 @@
 package com.peersafe.abi;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -116,6 +117,32 @@ public class FunctionReturnDecoderTest {
                         new Utf8String("jkl1"), new Utf8String("mno2"))));
     }
 
+    @Test
+    public void testDecodeFromBytes() {
+        Function function = new Function("function",
+                Collections.<Type>emptyList(),
+                Arrays.asList(new TypeReference<Uint>() { }, new TypeReference<Utf8String>() { }));
+        byte[] encoded = Numeric.hexStringToByteArray(
+                "0000000000000000000000000000000000000000000000000000000000000037"
+                        + "0000000000000000000000000000000000000000000000000000000000000040"
+                        + "0000000000000000000000000000000000000000000000000000000000000004"
+                        + "6465663100000000000000000000000000000000000000000000000000000000");
+        List<Type> expected = Arrays.asList(
+                new Uint(BigInteger.valueOf(55)), new Utf8String("def1"));
+
+        assertThat(FunctionReturnDecoder.decode(encoded, function.getOutputParameters()),
+                equalTo(expected));
+
+        // offsets are relative to the buffer position
+        byte[] framed = new byte[encoded.length + 5];
+        System.arraycopy(encoded, 0, framed, 3, encoded.length);
+        ByteBuffer buffer = ByteBuffer.wrap(framed, 3, encoded.length).slice();
+        assertThat(FunctionReturnDecoder.decode(buffer, function.getOutputParameters()),
+                equalTo(expected));
+
+        assertThat(FunctionReturnDecoder.decode(new byte[0], function.getOutputParameters()),
+                is(Collections.emptyList()));
+    }
 
     @Test
     @SuppressWarnings("unchecked")
@@ -3,6 +3,7 @@ package com.peersafe.abi;
 import java.math.BigInteger;
 
 import org.junit.Test;
+import org.web3j.utils.Numeric;
 
 import com.peersafe.abi.datatypes.Address;
 import com.peersafe.abi.datatypes.Bool;
@@ -10,14 +11,19 @@ import com.peersafe.abi.datatypes.Bytes;
 import com.peersafe.abi.datatypes.DynamicArray;
 import com.peersafe.abi.datatypes.DynamicBytes;
 import com.peersafe.abi.datatypes.StaticArray;
+import com.peersafe.abi.datatypes.Uint;
 import com.peersafe.abi.datatypes.Utf8String;
 import com.peersafe.abi.datatypes.generated.Bytes1;
+import com.peersafe.abi.datatypes.generated.Bytes32;
 import com.peersafe.abi.datatypes.generated.Bytes4;
 import com.peersafe.abi.datatypes.generated.Bytes6;
 import com.peersafe.abi.datatypes.generated.Int256;
 import com.peersafe.abi.datatypes.generated.Int64;
+import com.peersafe.abi.datatypes.generated.Int8;
+import com.peersafe.abi.datatypes.generated.StaticArray2;
 import com.peersafe.abi.datatypes.generated.Uint256;
 import com.peersafe.abi.datatypes.generated.Uint64;
+import com.peersafe.abi.datatypes.generated.Uint8;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -160,6 +166,42 @@ public class TypeDecoderTest {
     }
     */
 
+    @Test
+    public void testNumericDecodeGivenOffset() {
+        String input = "00000000000000000000000000000000000000000000000000000000000000ff"
+                + "ffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff80";
+
+        assertThat(TypeDecoder.decode(input, 0, Uint8.class), is(new Uint8(255)));
+        assertThat(TypeDecoder.decode(input, 64, Int8.class), is(new Int8(-128)));
+        assertThat(TypeDecoder.decode(input, 0, Uint.class), is(new Uint(BigInteger.valueOf(255))));
+    }
+
+    public static class Balance extends Uint {
+        public Balance(BigInteger value) {
+            super(value);
+        }
+    }
+
+    @Test
+    public void testNonGeneratedNumericDecode() {
+        assertThat(TypeDecoder.decodeNumeric(
+                "000000000000000000000000000000000000000000000000000000000000000a",
+                Balance.class),
+                is(new Balance(BigInteger.TEN)));
+    }
+
+    @Test
+    public void testStaticBytesGivenOffset() {
+        String input = "0000000000000000000000000000000000000000000000000000000000000001"
+                + "6461766500000000000000000000000000000000000000000000000000000000";
+
+        assertThat(TypeDecoder.decode(input, 64, Bytes4.class),
+                is(new Bytes4("dave".getBytes())));
+        assertThat(TypeDecoder.decode(input, 0, Bytes32.class),
+                is(new Bytes32(Numeric.hexStringToByteArray(
+                        input.substring(0, 64)))));
+    }
+
     @Test
     public void testStaticBytes() {
         Bytes6 staticBytes = new Bytes6(new byte[] { 0, 1, 2, 3, 4, 5 });
@@ -269,6 +311,21 @@ public class TypeDecoderTest {
                         new Utf8String("world! Hello,"))));
     }
 
+    @Test
+    public void testGeneratedStaticArray() {
+        StaticArray<Uint256> result = TypeDecoder.decodeStaticArray(
+                "000000000000000000000000000000000000000000000000000000000000000a"
+                + "0000000000000000000000000000000000000000000000007fffffffffffffff",
+                0,
+                new TypeReference<StaticArray2<Uint256>>() {},
+                2);
+
+        assertThat(result.getClass().equals(StaticArray2.class), is(true));
+        assertThat(result, equalTo(new StaticArray2<Uint256>(
+                new Uint256(BigInteger.TEN),
+                new Uint256(BigInteger.valueOf(Long.MAX_VALUE)))));
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void testEmptyStaticArray() {
         assertThat(TypeDecoder.decodeStaticArray(
@@ -0,0 +1,75 @@
+package com.peersafe.abi;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+import com.peersafe.abi.datatypes.Address;
+import com.peersafe.abi.datatypes.Bool;
+import com.peersafe.abi.datatypes.DynamicBytes;
+import com.peersafe.abi.datatypes.Utf8String;
+import com.peersafe.abi.datatypes.generated.Bytes4;
+import com.peersafe.abi.datatypes.generated.Int64;
+import com.peersafe.abi.datatypes.generated.Uint256;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class WordCodecTest {
+
+    private static String word(Consumer<ByteBuffer> put) {
+        ByteBuffer out = ByteBuffer.allocate(WordCodec.WORD);
+        put.accept(out);
+        return Hex.toHexString(out.array());
+    }
+
+    @Test
+    public void testStaticWordsMatchTypeEncoder() {
+        BigInteger max = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+        assertThat(word(out -> WordCodec.putUint(out, max, 256)),
+                is(TypeEncoder.encode(new Uint256(max))));
+        assertThat(word(out -> WordCodec.putInt(out, BigInteger.valueOf(-42), 64)),
+                is(TypeEncoder.encode(new Int64(BigInteger.valueOf(-42)))));
+        assertThat(word(out -> WordCodec.putBool(out, true)),
+                is(TypeEncoder.encode(new Bool(true))));
+        assertThat(word(out -> WordCodec.putBytes(out, new byte[] { 1, 2, 3, 4 }, 4)),
+                is(TypeEncoder.encode(new Bytes4(new byte[] { 1, 2, 3, 4 }))));
+
+        String address = "0x00000000000000000000000000000000000000ff";
+        assertThat(word(out -> WordCodec.putAddress(out, address)),
+                is(TypeEncoder.encode(new Address(address))));
+    }
+
+    @Test
+    public void testStaticWordsDecode() {
+        byte[] data = Hex.decode(TypeEncoder.encode(new Int64(BigInteger.valueOf(-42)))
+                + TypeEncoder.encode(new Bool(true))
+                + TypeEncoder.encode(new Address("0x00000000000000000000000000000000000000ff")));
+
+        assertThat(WordCodec.getInt(data, 0), is(BigInteger.valueOf(-42)));
+        assertThat(WordCodec.getUint(data, 32), is(BigInteger.ONE));
+        assertThat(WordCodec.getBool(data, 32), is(true));
+        assertThat(WordCodec.getAddress(data, 64),
+                is("0x00000000000000000000000000000000000000ff"));
+    }
+
+    @Test
+    public void testDynamicWords() {
+        byte[] value = "Hello, world!".getBytes();
+        ByteBuffer out = ByteBuffer.allocate(WordCodec.dynamicLength(value));
+        WordCodec.putDynamicBytes(out, value);
+        assertThat(Hex.toHexString(out.array()),
+                is(TypeEncoder.encode(new DynamicBytes(value))));
+
+        // an offset word pointing at the value, as in return data
+        byte[] data = Hex.decode(FunctionEncoder.encodeConstructor(
+                Arrays.asList(new Utf8String("Hello, world!"))));
+        assertThat(WordCodec.getString(data, 0), is("Hello, world!"));
+        assertArrayEquals(WordCodec.getDynamicBytes(data, 0), value);
+    }
+}
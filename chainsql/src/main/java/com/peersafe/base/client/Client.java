@@ -20,6 +20,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.peersafe.chainsql.manager.CallbackManager;
+import com.peersafe.chainsql.manager.TransactionTracker;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -27,15 +28,19 @@ import org.json.JSONObject;
 import com.peersafe.base.client.enums.Command;
 import com.peersafe.base.client.enums.Message;
 import com.peersafe.base.client.enums.RPCErr;
+import com.peersafe.base.client.ledger.LedgerStateLoader;
+import com.peersafe.base.client.ledger.LedgerTxExporter;
 import com.peersafe.base.client.pubsub.Publisher;
 import com.peersafe.base.client.pubsub.Publisher.Callback;
 import com.peersafe.base.client.requests.Request;
 import com.peersafe.base.client.requests.Request.Manager;
 import com.peersafe.base.client.responses.Response;
 import com.peersafe.base.client.subscriptions.ServerInfo;
+import com.peersafe.base.client.subscriptions.SubscriptionBatcher;
 import com.peersafe.base.client.subscriptions.SubscriptionManager;
 import com.peersafe.base.client.subscriptions.TrackedAccountRoot;
 import com.peersafe.base.client.subscriptions.TransactionSubscriptionManager;
+import com.peersafe.base.client.transactions.AccountTxFetcher;
 import com.peersafe.base.client.transactions.AccountTxPager;
 import com.peersafe.base.client.transactions.TransactionManager;
 import com.peersafe.base.client.transport.TransportEventHandler;
@@ -224,6 +229,10 @@ public class Client extends Publisher<Client.events> implements TransportEventHa
     private HashMap<AccountID, Account> accounts = new HashMap<AccountID, Account>();
     // Handles [un]subscription requests, also on reconnect
     public SubscriptionManager subscriptions = new SubscriptionManager();
+    // Coalesces chainsql subscription changes before they go to subscriptions
+    public SubscriptionBatcher subscriptionBatcher = new SubscriptionBatcher(this);
+    // Waits on the results of submitted transactions, shared by every Chainsql on this client
+    public TransactionTracker transactionTracker = new TransactionTracker(this);
     
     private static final int MAX_REQUEST_COUNT = 10; 
     
@@ -1095,6 +1104,36 @@ public class Client extends Publisher<Client.events> implements TransportEventHa
         return new AccountTxPager(this, accountID, null);
     }
 
+    /**
+     * Fetch the transactions of an account over a ledger range, in parallel.
+     * @param accountID Account address.
+     * @param ledgerMin first ledger, inclusive.
+     * @param ledgerMax last ledger, inclusive.
+     * @return AccountTxFetcher, iterate it to start fetching.
+     */
+    public AccountTxFetcher accountTxFetcher(AccountID accountID, long ledgerMin, long ledgerMax) {
+        return new AccountTxFetcher(this, accountID, ledgerMin, ledgerMax);
+    }
+
+    /**
+     * Load the account state of a ledger through ledger_data paging.
+     * @param ledgerIndex ledger sequence, or "validated".
+     * @return LedgerStateLoader, call load() to start it.
+     */
+    public LedgerStateLoader ledgerStateLoader(Object ledgerIndex) {
+        return new LedgerStateLoader(this, ledgerIndex);
+    }
+
+    /**
+     * Export every transaction of a ledger range, in ledger order.
+     * @param from first ledger, inclusive.
+     * @param to last ledger, inclusive.
+     * @return LedgerTxExporter, set a sink and call start() or run().
+     */
+    public LedgerTxExporter ledgerTxExporter(long from, long to) {
+        return new LedgerTxExporter(this, from, to);
+    }
+
     /**
      * Request for a ledger_entry.
      * @param index Hash.
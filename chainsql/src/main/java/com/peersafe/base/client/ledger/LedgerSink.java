@@ -0,0 +1,45 @@
+package com.peersafe.base.client.ledger;
+
+import com.peersafe.base.core.binary.LedgerArchive;
+import com.peersafe.base.core.binary.LedgerArchiveWriter;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Receives exported ledgers, one at a time and in sequence order.
+ */
+public interface LedgerSink {
+    void onLedger(LedgerArchive ledger) throws Exception;
+
+    /**
+     * Writes ledgers to a ledger archive file.
+     */
+    class Archive implements LedgerSink {
+        private final LedgerArchiveWriter writer;
+
+        public Archive(LedgerArchiveWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void onLedger(LedgerArchive ledger) throws Exception {
+            writer.write(ledger.header, ledger.transactions);
+        }
+    }
+
+    /**
+     * Puts ledgers on a queue, blocking the export while it is full.
+     */
+    class Queue implements LedgerSink {
+        private final BlockingQueue<LedgerArchive> queue;
+
+        public Queue(BlockingQueue<LedgerArchive> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void onLedger(LedgerArchive ledger) throws Exception {
+            queue.put(ledger);
+        }
+    }
+}
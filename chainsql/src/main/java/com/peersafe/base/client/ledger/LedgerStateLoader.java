@@ -0,0 +1,319 @@
+package com.peersafe.base.client.ledger;
+
+import com.peersafe.base.client.Client;
+import com.peersafe.base.client.enums.Command;
+import com.peersafe.base.client.requests.Request;
+import com.peersafe.base.client.responses.Response;
+import com.peersafe.base.core.coretypes.STObject;
+import com.peersafe.base.core.coretypes.hash.Hash256;
+import com.peersafe.base.core.types.known.sle.LedgerEntry;
+import com.peersafe.base.core.types.shamap.AccountState;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the full account state of a ledger by paging `ledger_data` in
+ * binary mode.
+ *
+ * The key space is split by the first byte of the entry index into
+ * `shards` ranges, each paged concurrently from its own starting marker.
+ * Pages are parsed straight into the AccountState on a worker pool and
+ * dropped; a shard asks for its next page only once the previous one is
+ * parsed, so at most `shards` pages are held at any time. When every shard
+ * is done the state's hash is checked against the ledger header.
+ */
+public class LedgerStateLoader {
+    public interface OnLoaded {
+        void onLoaded(AccountState state, long ledgerIndex);
+    }
+
+    public interface OnFailed {
+        /**
+         * @param message what went wrong
+         * @param response the failed response, or null if the state didn't verify
+         */
+        void onFailed(String message, Response response);
+    }
+
+    private final Client client;
+    private final Object ledgerIndex;
+
+    private OnLoaded onLoaded;
+    private OnFailed onFailed;
+    private ExecutorService parsers;
+    private boolean ownParsers = false;
+    private int shards = 16;
+    private int limit = 2048;
+    private int maxRetries = 10;
+
+    private final AccountState state = new AccountState();
+    private final AtomicLong entries = new AtomicLong();
+    private AtomicInteger pendingShards;
+    private volatile boolean done = false;
+
+    private long resolvedLedgerIndex;
+    private Hash256 accountHash;
+
+    /**
+     * @param client Client.
+     * @param ledgerIndex ledger sequence, or "validated"/"closed".
+     */
+    public LedgerStateLoader(Client client, Object ledgerIndex) {
+        this.client = client;
+        this.ledgerIndex = ledgerIndex;
+    }
+
+    /**
+     * onLoaded
+     * @param cb called with the verified state.
+     * @return this.
+     */
+    public LedgerStateLoader onLoaded(OnLoaded cb) {
+        onLoaded = cb;
+        return this;
+    }
+
+    /**
+     * onFailed
+     * @param cb called once if a page can't be fetched or the state doesn't verify.
+     * @return this.
+     */
+    public LedgerStateLoader onFailed(OnFailed cb) {
+        onFailed = cb;
+        return this;
+    }
+
+    /**
+     * Number of concurrent page fetches, a power of two up to 256.
+     * @param n shards.
+     * @return this.
+     */
+    public LedgerStateLoader shards(int n) {
+        if (n < 1 || n > 256 || (n & (n - 1)) != 0) {
+            throw new IllegalArgumentException("shards must be a power of two up to 256");
+        }
+        shards = n;
+        return this;
+    }
+
+    /**
+     * Page size.
+     * @param i entries per page.
+     * @return this.
+     */
+    public LedgerStateLoader pageSize(int i) {
+        limit = i;
+        return this;
+    }
+
+    /**
+     * maxRetriesPerPage
+     * @param retries retries.
+     * @return this.
+     */
+    public LedgerStateLoader maxRetriesPerPage(int retries) {
+        maxRetries = retries;
+        return this;
+    }
+
+    /**
+     * Pool to parse pages on, defaults to one thread per core.
+     * @param executor executor.
+     * @return this.
+     */
+    public LedgerStateLoader parseOn(ExecutorService executor) {
+        parsers = executor;
+        return this;
+    }
+
+    /**
+     * @return the number of entries loaded so far.
+     */
+    public long entriesLoaded() {
+        return entries.get();
+    }
+
+    /**
+     * Abort.
+     */
+    public void abort() {
+        finish();
+    }
+
+    /**
+     * Requests the ledger header, then starts paging.
+     */
+    public void load() {
+        if (parsers == null) {
+            parsers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            ownParsers = true;
+        }
+        client.makeManagedRequest(Command.ledger, new Request.Manager<JSONObject>() {
+            int retries = 0;
+
+            @Override
+            public boolean retryOnUnsuccessful(Response r) {
+                return maxRetries == -1 || (++retries) <= maxRetries;
+            }
+
+            @Override
+            public void cb(Response response, JSONObject ledger) throws JSONException {
+                if (!response.succeeded) {
+                    fail("Couldn't fetch ledger header", response);
+                    return;
+                }
+                resolvedLedgerIndex = Long.parseLong(ledger.get("ledger_index").toString());
+                accountHash = Hash256.fromHex(ledger.getString("account_hash"));
+                startShards();
+            }
+        }, new Request.Builder<JSONObject>() {
+            @Override
+            public void beforeRequest(Request request) {
+                request.json("ledger_index", ledgerIndex);
+            }
+
+            @Override
+            public JSONObject buildTypedResponse(Response response) {
+                return response.result.getJSONObject("ledger");
+            }
+        });
+    }
+
+    private void startShards() {
+        pendingShards = new AtomicInteger(shards);
+        int width = 256 / shards;
+        for (int i = 0; i < shards; i++) {
+            int lo = i * width;
+            // Markers are exclusive, so shard 0 starts without one
+            String marker = null;
+            if (lo != 0) {
+                byte[] start = new byte[32];
+                start[0] = (byte) lo;
+                marker = new Hash256(start).toHex();
+            }
+            requestPage(marker, lo + width);
+        }
+    }
+
+    private void requestPage(final String marker, final int shardEnd) {
+        if (done) {
+            return;
+        }
+        client.makeManagedRequest(Command.ledger_data, new Request.Manager<JSONObject>() {
+            int retries = 0;
+
+            @Override
+            public boolean retryOnUnsuccessful(Response r) {
+                return maxRetries == -1 || (++retries) <= maxRetries;
+            }
+
+            @Override
+            public void cb(final Response response, JSONObject ignored) throws JSONException {
+                if (done) {
+                    return;
+                }
+                if (!response.succeeded) {
+                    fail("Couldn't fetch ledger_data page", response);
+                    return;
+                }
+                try {
+                    parsers.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                onPage(response.result, shardEnd);
+                            } catch (Exception e) {
+                                fail("Couldn't parse ledger_data page: " + e, response);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // finished in the meantime
+                }
+            }
+        }, new Request.Builder<JSONObject>() {
+            @Override
+            public void beforeRequest(Request request) {
+                request.json("ledger_index", resolvedLedgerIndex);
+                request.json("binary", true);
+                request.json("limit", limit);
+                if (marker != null) {
+                    request.json("marker", marker);
+                }
+            }
+
+            @Override
+            public JSONObject buildTypedResponse(Response response) {
+                return null;
+            }
+        });
+    }
+
+    private void onPage(JSONObject result, int shardEnd) {
+        JSONArray page = result.getJSONArray("state");
+        boolean passedEnd = false;
+
+        for (int i = 0; i < page.length(); i++) {
+            JSONObject item = page.getJSONObject(i);
+            Hash256 index = Hash256.fromHex(item.getString("index"));
+            if ((index.bytes()[0] & 0xFF) >= shardEnd) {
+                // the rest of the page belongs to the next shard
+                passedEnd = true;
+                break;
+            }
+            LedgerEntry le = (LedgerEntry) STObject.translate.fromHex(item.getString("data"));
+            le.index(index);
+            synchronized (state) {
+                state.addLE(le);
+            }
+            entries.incrementAndGet();
+        }
+
+        String marker = result.optString("marker", null);
+        if (passedEnd || marker == null || marker.isEmpty()) {
+            if (pendingShards.decrementAndGet() == 0) {
+                verify();
+            }
+        } else {
+            requestPage(marker, shardEnd);
+        }
+    }
+
+    private void verify() {
+        Hash256 hash;
+        synchronized (state) {
+            hash = state.parallelHash();
+        }
+        if (!hash.equals(accountHash)) {
+            fail("State hash " + hash + " doesn't match account_hash " + accountHash, null);
+            return;
+        }
+        if (finish() && onLoaded != null) {
+            onLoaded.onLoaded(state, resolvedLedgerIndex);
+        }
+    }
+
+    private void fail(String message, Response response) {
+        if (finish() && onFailed != null) {
+            onFailed.onFailed(message, response);
+        }
+    }
+
+    private synchronized boolean finish() {
+        if (done) {
+            return false;
+        }
+        done = true;
+        if (ownParsers) {
+            parsers.shutdown();
+        }
+        return true;
+    }
+}
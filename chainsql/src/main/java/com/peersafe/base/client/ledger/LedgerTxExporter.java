@@ -0,0 +1,304 @@
+package com.peersafe.base.client.ledger;
+
+import com.peersafe.base.client.Client;
+import com.peersafe.base.client.enums.Command;
+import com.peersafe.base.client.requests.Request;
+import com.peersafe.base.client.responses.Response;
+import com.peersafe.base.core.binary.LedgerArchive;
+import com.peersafe.base.core.serialized.BinaryParser;
+import com.peersafe.base.core.types.known.tx.result.TransactionResult;
+import com.peersafe.base.core.types.ledger.LedgerHeader;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exports every transaction of the ledgers in [from, to].
+ *
+ * Ledgers are requested in binary with their transactions expanded,
+ * keeping at most `window` ledgers between request and sink. Responses are
+ * decoded on a worker pool, then handed to the sink strictly in sequence
+ * order, one at a time.
+ */
+public class LedgerTxExporter {
+    public interface OnProgress {
+        /**
+         * Called after each ledger reaches the sink.
+         * @param ledgers ledgers exported so far
+         * @param transactions transactions exported so far
+         * @param elapsedMillis time since start()
+         */
+        void onProgress(long ledgers, long transactions, long elapsedMillis);
+    }
+
+    public interface OnDone {
+        /**
+         * @param error null on success, otherwise what stopped the export
+         */
+        void onDone(String error);
+    }
+
+    private final Client client;
+    private final long from, to;
+
+    private LedgerSink sink;
+    private OnProgress onProgress;
+    private OnDone onDone;
+    private ExecutorService decoders;
+    private boolean ownDecoders = false;
+    private int window = 16;
+    private int maxRetries = 10;
+
+    private final HashMap<Long, LedgerArchive> decoded = new HashMap<Long, LedgerArchive>();
+    private final Object sinkLock = new Object();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private long nextRequest;
+    private long nextWrite;
+    private long ledgers = 0, transactions = 0;
+    private long startTime;
+    private volatile String error;
+    private volatile boolean done = false;
+
+    /**
+     * @param client Client.
+     * @param from first ledger, inclusive.
+     * @param to last ledger, inclusive.
+     */
+    public LedgerTxExporter(Client client, long from, long to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Bad ledger range " + from + "-" + to);
+        }
+        this.client = client;
+        this.from = from;
+        this.to = to;
+    }
+
+    public LedgerTxExporter sink(LedgerSink sink) {
+        this.sink = sink;
+        return this;
+    }
+
+    public LedgerTxExporter onProgress(OnProgress cb) {
+        onProgress = cb;
+        return this;
+    }
+
+    public LedgerTxExporter onDone(OnDone cb) {
+        onDone = cb;
+        return this;
+    }
+
+    /**
+     * Most ledgers in flight between request and sink.
+     * @param n window.
+     * @return this.
+     */
+    public LedgerTxExporter window(int n) {
+        window = n;
+        return this;
+    }
+
+    /**
+     * Pool to decode ledgers on, defaults to one thread per core.
+     * @param executor executor.
+     * @return this.
+     */
+    public LedgerTxExporter decodeOn(ExecutorService executor) {
+        decoders = executor;
+        return this;
+    }
+
+    public LedgerTxExporter maxRetriesPerLedger(int retries) {
+        maxRetries = retries;
+        return this;
+    }
+
+    /**
+     * Start the export in the background.
+     * @return this.
+     */
+    public LedgerTxExporter start() {
+        if (sink == null) {
+            throw new IllegalStateException("Forgot to set a sink!");
+        }
+        if (decoders == null) {
+            decoders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            ownDecoders = true;
+        }
+        startTime = System.currentTimeMillis();
+        nextRequest = from;
+        nextWrite = from;
+        requestMore();
+        return this;
+    }
+
+    /**
+     * Run the export to completion.
+     * @return null on success, otherwise the error.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public String run() throws InterruptedException {
+        start();
+        finished.await();
+        return error;
+    }
+
+    public void abort() {
+        finish("aborted");
+    }
+
+    public synchronized long ledgersExported() {
+        return ledgers;
+    }
+
+    public synchronized long transactionsExported() {
+        return transactions;
+    }
+
+    private void requestMore() {
+        while (true) {
+            long seq;
+            synchronized (this) {
+                if (done || nextRequest > to || nextRequest - nextWrite >= window) {
+                    return;
+                }
+                seq = nextRequest++;
+            }
+            requestLedger(seq);
+        }
+    }
+
+    private void requestLedger(final long seq) {
+        client.makeManagedRequest(Command.ledger, new Request.Manager<JSONObject>() {
+            int retries = 0;
+
+            @Override
+            public boolean retryOnUnsuccessful(Response r) {
+                return maxRetries == -1 || (++retries) <= maxRetries;
+            }
+
+            @Override
+            public void cb(final Response response, JSONObject ignored) throws JSONException {
+                if (done) {
+                    return;
+                }
+                if (!response.succeeded) {
+                    finish("Couldn't fetch ledger " + seq + ": " + response.message);
+                    return;
+                }
+                try {
+                    decoders.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                LedgerArchive ledger = decode(seq, response.result.getJSONObject("ledger"));
+                                synchronized (LedgerTxExporter.this) {
+                                    decoded.put(seq, ledger);
+                                }
+                                drain();
+                            } catch (Exception e) {
+                                finish("Couldn't export ledger " + seq + ": " + e);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // finished in the meantime
+                }
+            }
+        }, new Request.Builder<JSONObject>() {
+            @Override
+            public void beforeRequest(Request request) {
+                request.json("ledger_index", seq);
+                request.json("transactions", true);
+                request.json("expand", true);
+                request.json("binary", true);
+            }
+
+            @Override
+            public JSONObject buildTypedResponse(Response response) {
+                return null;
+            }
+        });
+    }
+
+    private static LedgerArchive decode(long seq, JSONObject ledger) {
+        LedgerHeader header = LedgerHeader.fromParser(new BinaryParser(ledger.getString("ledger_data")));
+        JSONArray txs = ledger.optJSONArray("transactions");
+        int n = txs == null ? 0 : txs.length();
+
+        ArrayList<TransactionResult> results = new ArrayList<TransactionResult>(n);
+        for (int i = 0; i < n; i++) {
+            JSONObject tx = txs.getJSONObject(i);
+            tx.put("ledger_index", seq);
+            results.add(TransactionResult.fromJSON(tx));
+        }
+        // binary ledgers list transactions by hash, not application order
+        Collections.sort(results, new Comparator<TransactionResult>() {
+            @Override
+            public int compare(TransactionResult a, TransactionResult b) {
+                return a.meta.transactionIndex().compareTo(b.meta.transactionIndex());
+            }
+        });
+        return new LedgerArchive(header, results);
+    }
+
+    // Only one thread feeds the sink at a time, and always the next ledger
+    private void drain() throws Exception {
+        synchronized (sinkLock) {
+            while (!done) {
+                LedgerArchive ledger;
+                synchronized (this) {
+                    ledger = decoded.remove(nextWrite);
+                }
+                if (ledger == null) {
+                    break;
+                }
+                sink.onLedger(ledger);
+
+                long ledgerCount, txCount;
+                boolean last;
+                synchronized (this) {
+                    nextWrite++;
+                    ledgerCount = ++ledgers;
+                    txCount = transactions += ledger.transactions.size();
+                    last = nextWrite > to;
+                }
+                if (onProgress != null) {
+                    onProgress.onProgress(ledgerCount, txCount, System.currentTimeMillis() - startTime);
+                }
+                if (last) {
+                    finish(null);
+                } else {
+                    requestMore();
+                }
+            }
+        }
+    }
+
+    private void finish(String err) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            error = err;
+            decoded.clear();
+        }
+        if (ownDecoders) {
+            decoders.shutdown();
+        }
+        finished.countDown();
+        if (onDone != null) {
+            onDone.onDone(err);
+        }
+    }
+}
@@ -41,6 +41,16 @@ public class ServerInfo {
      * @return return amount.
      */
     public Amount computeFee(int units) {
+        return Amount.fromString(String.valueOf(computeFeeDrops(units)));
+    }
+
+    /**
+     * computeFeeDrops
+     *
+     * @param units units.
+     * @return the fee in drops.
+     */
+    public long computeFeeDrops(int units) {
         if (!updated) {
             throw new IllegalStateException("No information from the server yet");
         }
@@ -57,8 +67,7 @@ public class ServerInfo {
         double fee_unit = (double) fee_base / fee_ref, fee;
         fee_unit *= load_factor / load_base;
         fee = units * fee_unit * Config.getFeeCushion();
-        String s = String.valueOf((long) Math.ceil(fee));
-        return Amount.fromString(s);
+        return (long) Math.ceil(fee);
     }
 
     /**
@@ -71,6 +80,16 @@ public class ServerInfo {
         return computeFee(fee_base);
     }
 
+    /**
+     * transactionFeeDrops
+     *
+     * @param transaction transaction.
+     * @return the fee in drops.
+     */
+    public long transactionFeeDrops(Transaction transaction) {
+        return computeFeeDrops(fee_base);
+    }
+
     /**
      * update.
      *
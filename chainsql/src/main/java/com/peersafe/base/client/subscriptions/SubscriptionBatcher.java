@@ -0,0 +1,247 @@
+package com.peersafe.base.client.subscriptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.peersafe.base.client.Client;
+
+/**
+ * Buffers subscribe and unsubscribe requests for a short window before
+ * sending them.
+ *
+ * Within a window, each target keeps only its latest change, and it is only
+ * sent if it differs from what was last sent for the target, so repeats and
+ * subscribe/unsubscribe pairs that cancel out never go out. Targets given as
+ * lists (streams, accounts and contract accounts) are merged into one request
+ * per command. The server takes one transaction or one table per request, so
+ * those are still sent one by one, and a transaction is subscribed right away
+ * so the subscription is in place before its submit gets a result. What was
+ * sent is forgotten on disconnect, as the server forgets it too, and changes
+ * made while disconnected are held until the client connects again.
+ */
+public class SubscriptionBatcher {
+    public static final long DEFAULT_WINDOW = 20;
+
+    private static final String SUBSCRIBE = "subscribe";
+    private static final String UNSUBSCRIBE = "unsubscribe";
+
+    private static final class Target {
+        // the list field it merges into, null if it is sent on its own
+        final String list;
+        final String[] keys;
+        final String[] values;
+
+        Target(String list, String[] keys, String... values) {
+            this.list = list;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Target)) {
+                return false;
+            }
+            Target other = (Target) o;
+            return Arrays.equals(keys, other.keys) && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+        }
+    }
+
+    private static final String[] TRANSACTION = {"transaction"};
+    private static final String[] TABLE = {"tablename", "owner"};
+    private static final String[] CONTRACT = {"accounts_contract"};
+    private static final String[] ACCOUNT = {"accounts"};
+    private static final String[] STREAM = {"streams"};
+
+    private final Client client;
+    private long window = DEFAULT_WINDOW;
+    // target -> true to subscribe, false to unsubscribe, in the order first changed
+    private LinkedHashMap<Target, Boolean> pending = new LinkedHashMap<Target, Boolean>();
+    // targets whose last change sent was a subscribe
+    private final HashSet<Target> subscribed = new HashSet<Target>();
+    private boolean scheduled = false;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public SubscriptionBatcher(Client client) {
+        this.client = client;
+        client.on(Client.OnDisconnected.class, new Client.OnDisconnected() {
+            @Override
+            public void called(Client client) {
+                synchronized (SubscriptionBatcher.this) {
+                    subscribed.clear();
+                }
+            }
+        });
+        client.on(Client.OnConnected.class, new Client.OnConnected() {
+            @Override
+            public void called(Client client) {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * @param ms how long to buffer changes, 0 to send each right away
+     * @return this
+     */
+    public SubscriptionBatcher window(long ms) {
+        if (ms < 0) {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+        window = ms;
+        return this;
+    }
+
+    /**
+     * Subscribe to a transaction, sent along with any buffered changes
+     * without waiting for the window.
+     * @param hash transaction hash
+     */
+    public void subscribeTransaction(String hash) {
+        change(new Target(null, TRANSACTION, hash), true);
+        flush();
+    }
+
+    public void unsubscribeTransaction(String hash) {
+        change(new Target(null, TRANSACTION, hash), false);
+    }
+
+    public void subscribeTable(String name, String owner) {
+        change(new Target(null, TABLE, name, owner), true);
+    }
+
+    public void unsubscribeTable(String name, String owner) {
+        change(new Target(null, TABLE, name, owner), false);
+    }
+
+    public void subscribeContract(String address) {
+        change(new Target(CONTRACT[0], CONTRACT, address), true);
+    }
+
+    public void unsubscribeContract(String address) {
+        change(new Target(CONTRACT[0], CONTRACT, address), false);
+    }
+
+    public void subscribeAccount(String address) {
+        change(new Target(ACCOUNT[0], ACCOUNT, address), true);
+    }
+
+    public void unsubscribeAccount(String address) {
+        change(new Target(ACCOUNT[0], ACCOUNT, address), false);
+    }
+
+    public void subscribeStream(SubscriptionManager.Stream stream) {
+        change(new Target(STREAM[0], STREAM, stream.name()), true);
+    }
+
+    public void unsubscribeStream(SubscriptionManager.Stream stream) {
+        change(new Target(STREAM[0], STREAM, stream.name()), false);
+    }
+
+    /**
+     * @return how many targets have a change waiting to be sent
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Send every buffered change now, or once connected again if the client
+     * is disconnected.
+     */
+    public void flush() {
+        List<JSONObject> messages;
+        synchronized (this) {
+            scheduled = false;
+            if (pending.isEmpty() || !client.connected) {
+                return;
+            }
+            Iterator<Map.Entry<Target, Boolean>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Target, Boolean> entry = it.next();
+                boolean subscribe = entry.getValue();
+                if (subscribe ? !subscribed.add(entry.getKey()) : !subscribed.remove(entry.getKey())) {
+                    it.remove();
+                }
+            }
+            messages = messages(pending);
+            pending = new LinkedHashMap<Target, Boolean>();
+        }
+        for (JSONObject message : messages) {
+            client.subscriptions.addMessage(message);
+        }
+    }
+
+    private void change(Target target, boolean subscribe) {
+        boolean sendNow;
+        synchronized (this) {
+            pending.put(target, subscribe);
+            sendNow = window == 0;
+            if (!sendNow && !scheduled) {
+                scheduled = true;
+                client.schedule(window, flushTask);
+            }
+        }
+        if (sendNow) {
+            flush();
+        }
+    }
+
+    private static List<JSONObject> messages(Map<Target, Boolean> changes) {
+        List<JSONObject> messages = new ArrayList<JSONObject>();
+        JSONObject subscribe = null, unsubscribe = null;
+        for (Map.Entry<Target, Boolean> entry : changes.entrySet()) {
+            Target target = entry.getKey();
+            String command = entry.getValue() ? SUBSCRIBE : UNSUBSCRIBE;
+            if (target.list == null) {
+                JSONObject message = new JSONObject();
+                message.put("command", command);
+                for (int i = 0; i < target.keys.length; i++) {
+                    message.put(target.keys[i], target.values[i]);
+                }
+                messages.add(message);
+                continue;
+            }
+            JSONObject merged;
+            if (entry.getValue()) {
+                if (subscribe == null) {
+                    subscribe = new JSONObject().put("command", command);
+                    messages.add(subscribe);
+                }
+                merged = subscribe;
+            } else {
+                if (unsubscribe == null) {
+                    unsubscribe = new JSONObject().put("command", command);
+                    messages.add(unsubscribe);
+                }
+                merged = unsubscribe;
+            }
+            JSONArray values = merged.optJSONArray(target.list);
+            if (values == null) {
+                values = new JSONArray();
+                merged.put(target.list, values);
+            }
+            values.put(target.values[0]);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,331 @@
+package com.peersafe.base.client.transactions;
+
+import com.peersafe.base.client.Client;
+import com.peersafe.base.client.requests.Request;
+import com.peersafe.base.client.responses.Response;
+import com.peersafe.base.core.coretypes.AccountID;
+import com.peersafe.base.core.types.known.tx.result.TransactionResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Fetches the history of an account over [ledgerMin, ledgerMax] by
+ * splitting the range into shards, each paged forward by its own
+ * AccountTxPager, with at most `parallelism` shards in flight.
+ *
+ * Transactions are handed out in ledger and transaction index order
+ * through the blocking Iterator interface, to a single consuming thread
+ * which also does the parsing. A shard holds at most `maxBufferedPages`
+ * pages before it stops requesting more, so a slow consumer slows the
+ * fetch rather than filling the heap.
+ *
+ * {@link #checkpoint()} is the position of the last transaction handed out;
+ * a new fetcher given it to {@link #resumeFrom(Checkpoint)} continues right
+ * after it.
+ */
+public class AccountTxFetcher implements Iterator<TransactionResult> {
+    public static class Checkpoint {
+        public final long ledgerIndex;
+        public final long transactionIndex;
+
+        public Checkpoint(long ledgerIndex, long transactionIndex) {
+            this.ledgerIndex = ledgerIndex;
+            this.transactionIndex = transactionIndex;
+        }
+
+        boolean covers(TransactionResult tr) {
+            long ledger = tr.ledgerIndex.longValue();
+            return ledger < ledgerIndex || ledger == ledgerIndex &&
+                    tr.meta.transactionIndex().longValue() <= transactionIndex;
+        }
+
+        @Override
+        public String toString() {
+            return ledgerIndex + ":" + transactionIndex;
+        }
+
+        public static Checkpoint fromString(String s) {
+            String[] parts = s.split(":");
+            return new Checkpoint(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        }
+    }
+
+    private final Client client;
+    private final AccountID account;
+    private long ledgerMin;
+    private final long ledgerMax;
+
+    private int shardCount = 16;
+    private int parallelism = 4;
+    private int pageSize = 200;
+    private int maxBufferedPages = 2;
+    private int maxRetries = 10;
+    private Checkpoint resumeFrom;
+
+    private ArrayList<Shard> shards;
+    private int head = 0;
+    private int started = 0;
+    private Iterator<TransactionResult> current;
+    private Checkpoint checkpoint;
+    private Response error;
+    private boolean aborted = false;
+
+    private class Shard implements AccountTxPager.OnPage, Request.OnError {
+        final long min, max;
+        final ArrayDeque<AccountTxPager.Page> pages = new ArrayDeque<AccountTxPager.Page>();
+        AccountTxPager pager;
+        AccountTxPager.Page paused;
+        boolean done = false;
+
+        Shard(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        void start() {
+            pager = new AccountTxPager(client, account, this, min, max)
+                    .forward(true)
+                    .pageSize(pageSize)
+                    .maxRetriesPerPage(maxRetries)
+                    .onError(this);
+            pager.request();
+        }
+
+        @Override
+        public void onPage(AccountTxPager.Page page) {
+            boolean requestNext = false;
+            synchronized (AccountTxFetcher.this) {
+                pages.add(page);
+                if (!page.hasNext()) {
+                    done = true;
+                } else if (pages.size() < maxBufferedPages) {
+                    requestNext = true;
+                } else {
+                    paused = page;
+                }
+                AccountTxFetcher.this.notifyAll();
+            }
+            if (requestNext) {
+                page.requestNext();
+            }
+        }
+
+        @Override
+        public void called(Response response) {
+            synchronized (AccountTxFetcher.this) {
+                error = response;
+                AccountTxFetcher.this.notifyAll();
+            }
+        }
+
+        // The page to request the next of, once the consumer has made room
+        AccountTxPager.Page resumable() {
+            AccountTxPager.Page resume = null;
+            if (paused != null && pages.size() < maxBufferedPages) {
+                resume = paused;
+                paused = null;
+            }
+            return resume;
+        }
+    }
+
+    /**
+     * @param client Client.
+     * @param account Account.
+     * @param ledgerMin first ledger, inclusive.
+     * @param ledgerMax last ledger, inclusive.
+     */
+    public AccountTxFetcher(Client client, AccountID account, long ledgerMin, long ledgerMax) {
+        if (ledgerMin < 0 || ledgerMax < ledgerMin) {
+            throw new IllegalArgumentException("A concrete ledger range is needed to shard");
+        }
+        this.client = client;
+        this.account = account;
+        this.ledgerMin = ledgerMin;
+        this.ledgerMax = ledgerMax;
+    }
+
+    /**
+     * Number of ledger ranges to split into.
+     * @param n shards.
+     * @return this.
+     */
+    public AccountTxFetcher shards(int n) {
+        shardCount = n;
+        return this;
+    }
+
+    /**
+     * Number of shards paged concurrently.
+     * @param n parallelism.
+     * @return this.
+     */
+    public AccountTxFetcher parallelism(int n) {
+        parallelism = n;
+        return this;
+    }
+
+    /**
+     * Page size.
+     * @param i transactions per page.
+     * @return this.
+     */
+    public AccountTxFetcher pageSize(int i) {
+        pageSize = i;
+        return this;
+    }
+
+    /**
+     * Pages a shard may buffer before it waits for the consumer.
+     * @param n pages.
+     * @return this.
+     */
+    public AccountTxFetcher maxBufferedPages(int n) {
+        maxBufferedPages = n;
+        return this;
+    }
+
+    /**
+     * maxRetriesPerPage
+     * @param retries retries.
+     * @return this.
+     */
+    public AccountTxFetcher maxRetriesPerPage(int retries) {
+        maxRetries = retries;
+        return this;
+    }
+
+    /**
+     * Skip everything up to and including the checkpoint.
+     * @param cp a checkpoint from a previous fetch of the same range.
+     * @return this.
+     */
+    public AccountTxFetcher resumeFrom(Checkpoint cp) {
+        resumeFrom = cp;
+        ledgerMin = Math.max(ledgerMin, cp.ledgerIndex);
+        return this;
+    }
+
+    /**
+     * Start fetching; also done by the first hasNext().
+     * @return this.
+     */
+    public synchronized AccountTxFetcher start() {
+        if (shards != null) {
+            return this;
+        }
+        shards = new ArrayList<Shard>();
+        long range = ledgerMax - ledgerMin + 1;
+        long width = Math.max(1, (range + shardCount - 1) / shardCount);
+        for (long min = ledgerMin; min <= ledgerMax; min += width) {
+            shards.add(new Shard(min, Math.min(ledgerMax, min + width - 1)));
+        }
+        startMore();
+        return this;
+    }
+
+    /**
+     * @return the position of the last transaction handed out, or null.
+     */
+    public synchronized Checkpoint checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Stop fetching; hasNext() returns false from now on.
+     */
+    public synchronized void abort() {
+        aborted = true;
+        if (shards != null) {
+            for (int i = head; i < started; i++) {
+                shards.get(i).pager.abort();
+            }
+        }
+        notifyAll();
+    }
+
+    @Override
+    public boolean hasNext() {
+        start();
+        while (true) {
+            AccountTxPager.Page resume = null;
+            Iterator<TransactionResult> page = null;
+
+            synchronized (this) {
+                if (aborted) {
+                    return false;
+                }
+                if (current != null && current.hasNext()) {
+                    return true;
+                }
+                if (error != null) {
+                    throw new IllegalStateException("account_tx failed: " + error.message);
+                }
+                if (head == shards.size()) {
+                    return false;
+                }
+                Shard shard = shards.get(head);
+                AccountTxPager.Page taken = shard.pages.poll();
+                if (taken != null) {
+                    resume = shard.resumable();
+                    page = taken.transactionResults().iterator();
+                } else if (shard.done) {
+                    head++;
+                    startMore();
+                    continue;
+                } else {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    continue;
+                }
+            }
+            if (resume != null) {
+                resume.requestNext();
+            }
+            current = skipResumed(page);
+        }
+    }
+
+    @Override
+    public synchronized TransactionResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TransactionResult tr = current.next();
+        checkpoint = new Checkpoint(tr.ledgerIndex.longValue(),
+                                    tr.meta.transactionIndex().longValue());
+        return tr;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private Iterator<TransactionResult> skipResumed(Iterator<TransactionResult> page) {
+        if (resumeFrom == null) {
+            return page;
+        }
+        ArrayList<TransactionResult> remaining = new ArrayList<TransactionResult>();
+        while (page.hasNext()) {
+            TransactionResult tr = page.next();
+            if (!resumeFrom.covers(tr)) {
+                remaining.add(tr);
+            }
+        }
+        return remaining.iterator();
+    }
+
+    private void startMore() {
+        while (started < shards.size() && started < head + parallelism) {
+            shards.get(started++).start();
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class AccountTxPager {
     private long ledgerMin;
     private boolean aborted = false;
     private boolean forward = false;
+    private boolean binary = true;
     private int limit = 2000;
     private int maxRetries;
 
@@ -176,6 +177,18 @@ public class AccountTxPager {
         return this;
     }
 
+    /**
+     * Binary or JSON transactions, binary by default. Only
+     * transactionsJSON() is filled for JSON pages.
+     * @param bin binary.
+     * @return return value.
+     */
+    public AccountTxPager binary(boolean bin)
+    {
+        binary = bin;
+        return this;
+    }
+
     private void walkAccountTx(final Object marker) {
         client.makeManagedRequest(Command.account_tx, new Request.Manager<JSONArray>() {
             int retries = 0;
@@ -267,7 +280,7 @@ public class AccountTxPager {
     }
 
     private void configureRequest(Request request, Object marker) {
-        request.json("binary", true);
+        request.json("binary", binary);
         request.json("account", account);
 
         if (marker != null) {
@@ -191,6 +191,9 @@ public class ManagedTxn extends SignedTransaction {
     private final Publisher<events> publisher = new Publisher<events>();
 //    private final MyTransaction publisher = new MyTransaction();
     private boolean finalized = false;
+    // where the TransactionManager keeps it among the pending, set once when queued
+    long queuedSequence;
+    long queuedOrder;
 
     /**
      * responseWasToLastSubmission
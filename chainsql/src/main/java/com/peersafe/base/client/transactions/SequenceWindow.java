@@ -0,0 +1,134 @@
+package com.peersafe.base.client.transactions;
+
+import java.util.Arrays;
+
+/**
+ * The validated Sequences of an account, as a bitmap sliding over a ring.
+ *
+ * Every Sequence below the base counts as seen: the base is anchored at the
+ * account's current Sequence, below which all have been consumed, and it
+ * moves up on its own over any run of seen Sequences starting at it. Only
+ * the Sequences between the base and the highest one seen take up bits, so
+ * the window stays as small as the number of transactions in flight.
+ */
+class SequenceWindow {
+    private static final int MIN_CAPACITY = 64;
+
+    private long base = 0;
+    private boolean anchored = false;
+    // bit (seq & (capacity - 1)) is set when seq is seen, for base <= seq < base + capacity
+    private long[] words = new long[MIN_CAPACITY / 64];
+
+    /**
+     * @param sequence a Sequence
+     * @return whether it has been seen validated, or lies below the base
+     */
+    boolean contains(long sequence) {
+        if (sequence < base) {
+            return true;
+        }
+        return sequence - base < capacity() && isSet(sequence);
+    }
+
+    /**
+     * Mark a Sequence as seen validated. Without an anchor the window starts
+     * at the first Sequence added.
+     * @param sequence a Sequence
+     */
+    void add(long sequence) {
+        if (!anchored) {
+            anchorAt(sequence);
+        }
+        if (sequence < base) {
+            return;
+        }
+        ensureCapacity(sequence - base + 1);
+        set(sequence);
+        slide();
+    }
+
+    /**
+     * Move the base up to the account's current Sequence. A lower Sequence
+     * leaves the window as it is.
+     * @param sequence the account's Sequence
+     */
+    void advanceTo(long sequence) {
+        if (!anchored) {
+            anchorAt(sequence);
+            return;
+        }
+        if (sequence <= base) {
+            return;
+        }
+        if (sequence - base >= capacity()) {
+            Arrays.fill(words, 0);
+        } else {
+            for (long s = base; s < sequence; s++) {
+                clear(s);
+            }
+        }
+        base = sequence;
+        slide();
+    }
+
+    /**
+     * @return the lowest Sequence not known to be seen
+     */
+    long base() {
+        return base;
+    }
+
+    private void anchorAt(long sequence) {
+        base = sequence;
+        anchored = true;
+    }
+
+    // everything from the base on that is seen can drop out of the window
+    private void slide() {
+        while (isSet(base)) {
+            clear(base);
+            base++;
+        }
+    }
+
+    private void ensureCapacity(long needed) {
+        int capacity = capacity();
+        if (needed <= capacity) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Sequence too far past " + base);
+        }
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        long[] old = words;
+        int oldMask = old.length * 64 - 1;
+        words = new long[capacity / 64];
+        for (long s = base, end = base + old.length * 64L; s < end; s++) {
+            int i = (int) (s & oldMask);
+            if ((old[i >>> 6] & (1L << i)) != 0) {
+                set(s);
+            }
+        }
+    }
+
+    private int capacity() {
+        return words.length * 64;
+    }
+
+    private boolean isSet(long sequence) {
+        int i = (int) (sequence & (capacity() - 1));
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private void set(long sequence) {
+        int i = (int) (sequence & (capacity() - 1));
+        words[i >>> 6] |= 1L << i;
+    }
+
+    private void clear(long sequence) {
+        int i = (int) (sequence & (capacity() - 1));
+        words[i >>> 6] &= ~(1L << i);
+    }
+}
@@ -1,14 +1,12 @@
 package com.peersafe.base.client.transactions;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
 import java.util.TreeSet;
 
-import org.json.JSONObject;
-
 import com.peersafe.base.client.Client;
 import com.peersafe.base.client.enums.Command;
 import com.peersafe.base.client.pubsub.CallbackContext;
@@ -22,12 +20,11 @@ import com.peersafe.base.core.coretypes.Amount;
 import com.peersafe.base.core.coretypes.hash.Hash256;
 import com.peersafe.base.core.coretypes.uint.UInt32;
 import com.peersafe.base.core.serialized.enums.EngineResult;
-import com.peersafe.base.core.serialized.enums.TransactionType;
 import com.peersafe.base.core.types.known.tx.Transaction;
 import com.peersafe.base.core.types.known.tx.result.TransactionResult;
 import com.peersafe.base.core.types.known.tx.txns.AccountSet;
 import com.peersafe.base.crypto.ecdsa.IKeyPair;
-import com.peersafe.chainsql.util.Util;
+import com.peersafe.chainsql.util.FeeCalculator;
 
 public class TransactionManager extends Publisher<TransactionManager.events> {
 	public static interface events<T> extends Publisher.Callback<T> {
@@ -44,8 +41,40 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	AccountTxPager txnPager;
 
 	public String message;
-	private ArrayList<ManagedTxn> pending = new ArrayList<ManagedTxn>();
-	private ArrayList<ManagedTxn> failedTransactions = new ArrayList<ManagedTxn>();
+	// by the Sequence queued with, then by the order queued in
+	private static final Comparator<ManagedTxn> QUEUED_ORDER = new Comparator<ManagedTxn>() {
+		@Override
+		public int compare(ManagedTxn lhs, ManagedTxn rhs) {
+			int c = Long.compare(lhs.queuedSequence, rhs.queuedSequence);
+			return c != 0 ? c : Long.compare(lhs.queuedOrder, rhs.queuedOrder);
+		}
+	};
+	private long queuedCount = 0;
+	private TreeSet<ManagedTxn> pending = new TreeSet<ManagedTxn>(QUEUED_ORDER);
+	private LinkedHashSet<ManagedTxn> failedTransactions = new LinkedHashSet<ManagedTxn>();
+	// failed transactions by the ledger after which none of their submissions can clear
+	private PriorityQueue<Expiry> failedExpiries = new PriorityQueue<Expiry>();
+	// every hash submitted for a pending or failed transaction
+	private HashMap<Hash256, ManagedTxn> submittedByHash = new HashMap<Hash256, ManagedTxn>();
+
+	private static class Expiry implements Comparable<Expiry> {
+		final long ledger;
+		final ManagedTxn txn;
+
+		Expiry(ManagedTxn txn) {
+			long last = Long.MIN_VALUE;
+			for (Submission submission : txn.submissions) {
+				last = Math.max(last, submission.lastLedgerSequence.longValue());
+			}
+			this.ledger = last;
+			this.txn = txn;
+		}
+
+		@Override
+		public int compareTo(Expiry other) {
+			return Long.compare(ledger, other.ledger);
+		}
+	}
 
 	/**
 	 * TransactionManager constructor.
@@ -69,12 +98,13 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 
 				clearFailed(serverInfo.ledger_index);
 
-				if (!canSubmit() || getPending().isEmpty()) {
+				if (accountRoot.primed()) {
+					seenValidatedSequences.advanceTo(accountRoot.Sequence.longValue());
+				}
+				if (!canSubmit() || pending.isEmpty()) {
 					return;
 				}
-				ArrayList<ManagedTxn> sorted = pendingSequenceSorted();
-
-				ManagedTxn first = sorted.get(0);
+				ManagedTxn first = pending.first();
 				Submission previous = first.lastSubmission();
 
 				if (previous != null) {
@@ -91,30 +121,29 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 		// TODO: make sure each and every ledger has been checked
 		int safety = 1;
 
-		for (ManagedTxn failed : failedTransactions) {
-			int expired = 0;
-			for (Submission submission : failed.submissions) {
-				if (ledger_index - safety > submission.lastLedgerSequence.longValue()) {
-					expired++;
-				}
+		while (!failedExpiries.isEmpty() && ledger_index - safety > failedExpiries.peek().ledger) {
+			ManagedTxn failed = failedExpiries.poll().txn;
+			// validated in the meantime
+			if (!failedTransactions.remove(failed)) {
+				continue;
 			}
-			if (expired == failed.submissions.size()) {
-				// The last response our submissions
-				Response response = failed.lastSubmission().request.response;
-
-				if (response != null) {
-					if (response.rpcerr != null) {
-						failed.emit(ManagedTxn.OnSubmitError.class, response);
-					} else {
-						failed.emit(ManagedTxn.OnSubmitFailure.class, response);
-					}
+			forgetSubmissions(failed);
+
+			// The last response our submissions
+			Submission last = failed.lastSubmission();
+			Response response = last == null ? null : last.request.response;
+
+			if (response != null) {
+				if (response.rpcerr != null) {
+					failed.emit(ManagedTxn.OnSubmitError.class, response);
+				} else {
+					failed.emit(ManagedTxn.OnSubmitFailure.class, response);
 				}
 			}
-
 		}
 	}
 
-	Set<Long> seenValidatedSequences = new TreeSet<Long>();
+	SequenceWindow seenValidatedSequences = new SequenceWindow();
 	public long sequence = 0;
 
 	private UInt32 locallyPreemptedSubmissionSequence() {
@@ -160,6 +189,9 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 		// Keep track of the submission, including the hash submitted
 		// to the network, and the ledger_index at that point in time.
 		txn.trackSubmitRequest(req, client.serverInfo.ledger_index);
+		if (txn.hash != null && pending.contains(txn)) {
+			submittedByHash.put(txn.hash, txn);
+		}
 		req.request();
 		return req;
 	}
@@ -184,10 +216,10 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 
 	/**
 	 * Get pending.
-	 * @return pending.
+	 * @return a copy of pending, in Sequence order.
 	 */
 	public ArrayList<ManagedTxn> getPending() {
-		return pending;
+		return new ArrayList<ManagedTxn>(pending);
 	}
 
 	/**
@@ -195,14 +227,7 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	 * @return return value.
 	 */
 	public ArrayList<ManagedTxn> pendingSequenceSorted() {
-		ArrayList<ManagedTxn> queued = new ArrayList<ManagedTxn>(getPending());
-		Collections.sort(queued, new Comparator<ManagedTxn>() {
-			@Override
-			public int compare(ManagedTxn lhs, ManagedTxn rhs) {
-				return lhs.sequence().compareTo(rhs.sequence());
-			}
-		});
-		return queued;
+		return getPending();
 	}
 
 	/**
@@ -210,7 +235,7 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	 * @return return value.
 	 */
 	public int txnsPending() {
-		return getPending().size();
+		return pending.size();
 	}
 
 	// TODO, maybe this is an instance configurable strategy parameter
@@ -281,7 +306,9 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	}
 
 	private void queue(final ManagedTxn txn, final UInt32 sequence) {
-		getPending().add(txn);
+		txn.queuedSequence = sequence.longValue();
+		txn.queuedOrder = ++queuedCount;
+		pending.add(txn);
 		makeSubmitRequest(txn, sequence);
 	}
 
@@ -323,15 +350,10 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	}
 
 	private Request doSubmitRequest(final ManagedTxn txn, UInt32 sequence) {
-		// Compute the fee for the current load_factor
-		Amount fee = client.serverInfo.transactionFee(txn.txn);
+		// Compute the fee for the current load_factor and payload size.
 		// Inside prepare we check if Fee and Sequence are the same, and if so
 		// we don't recreate tx_blob, or resign ;)
-		int drops_per_byte = client.serverInfo.drops_per_byte;
-
-		JSONObject txJson = new JSONObject(txn.txn.prettyJSON());
-		Amount extraFee = Util.getExtraFee(txJson,drops_per_byte, TransactionType.valueOf(txJson.getString("TransactionType")));
-		fee = fee.add(extraFee);
+		Amount fee = FeeCalculator.fee(client.serverInfo, txn.txn);
 		
 		long currentLedgerIndex = client.serverInfo.ledger_index;
 		UInt32 lastLedgerSequence = new UInt32(currentLedgerIndex + 8);
@@ -467,8 +489,9 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	}
 
 	private void awaitLastLedgerSequenceExpiry(ManagedTxn txn) {
-		finalizeTxnAndRemoveFromQueue(txn);
 		failedTransactions.add(txn);
+		failedExpiries.add(new Expiry(txn));
+		finalizeTxnAndRemoveFromQueue(txn);
 	}
 
 	private void resubmitGreaterThan(UInt32 submitSequence) {
@@ -488,10 +511,21 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	public void finalizeTxnAndRemoveFromQueue(ManagedTxn transaction) {
 		transaction.setFinalized();
 		pending.remove(transaction);
+		if (!failedTransactions.contains(transaction)) {
+			forgetSubmissions(transaction);
+		}
+	}
+
+	private void forgetSubmissions(ManagedTxn txn) {
+		for (Submission submission : txn.submissions) {
+			if (submittedByHash.get(submission.hash) == txn) {
+				submittedByHash.remove(submission.hash);
+			}
+		}
 	}
 
 	private void resubmitFirstTransactionWithTakenSequence(UInt32 sequence) {
-		for (ManagedTxn txn : getPending()) {
+		for (ManagedTxn txn : pending) {
 			if (txn.sequence().compareTo(sequence) == 0) {
 				resubmitWithNewSequence(txn);
 				break;
@@ -577,8 +611,8 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 
 		ManagedTxn txn = submittedTransactionForHash(tr.hash);
 		if (txn != null) {
-			finalizeTxnAndRemoveFromQueue(txn);
 			failedTransactions.remove(txn);
+			finalizeTxnAndRemoveFromQueue(txn);
 			txn.emit(ManagedTxn.OnTransactionValidated.class, tr);
 		} else {
 			// TODO Check for transaction malleability, by computing a signing
@@ -591,17 +625,7 @@ public class TransactionManager extends Publisher<TransactionManager.events> {
 	}
 
 	private ManagedTxn submittedTransactionForHash(Hash256 hash) {
-		for (ManagedTxn pending : getPending()) {
-			if (pending.wasSubmittedWith(hash)) {
-				return pending;
-			}
-		}
-		for (ManagedTxn markedAsFailed : failedTransactions) {
-			if (markedAsFailed.wasSubmittedWith(hash)) {
-				return markedAsFailed;
-			}
-		}
-		return null;
+		return submittedByHash.get(hash);
 	}
 
 }
@@ -48,7 +48,7 @@ public class Config {
      * TODO, this is gross
      */
     static public boolean bouncyInitiated = false;
-    static public void initBouncy() {
+    static public synchronized void initBouncy() {
         if (!bouncyInitiated) {
             Security.addProvider(new BouncyCastleProvider());
             bouncyInitiated = true;
@@ -0,0 +1,175 @@
+package com.peersafe.base.core.binary;
+
+import com.peersafe.base.core.types.ledger.LedgerHeader;
+import com.peersafe.base.core.types.known.tx.result.TransactionResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A validated ledger read back from a ledger archive.
+ *
+ * An archive file is laid out as
+ *
+ *     [magic][version]
+ *     [block]*          one per ledger, in increasing sequence order
+ *     [index]           (sequence, offset) for every block
+ *     [footer]          index offset, block count, magic
+ *
+ * Each block holds a deflated payload of the LedgerHeader followed by the
+ * TransactionResults in the same binary encoding STWriter uses. Offsets are
+ * 64 bit, so archives can grow past 2GB. If the footer is missing, e.g. the
+ * writer died, the index is recovered by scanning the blocks.
+ */
+public class LedgerArchive {
+    public final LedgerHeader header;
+    public final ArrayList<TransactionResult> transactions;
+
+    public LedgerArchive(LedgerHeader header, ArrayList<TransactionResult> transactions) {
+        this.header = header;
+        this.transactions = transactions;
+    }
+
+    static final int MAGIC = 0x43534C41; // CSLA
+    static final int FOOTER_MAGIC = 0x43534C49; // CSLI
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    // sequence, raw length, compressed length, crc32 of the raw payload
+    static final int BLOCK_HEADER_SIZE = 16;
+    static final int INDEX_ENTRY_SIZE = 12;
+    static final int FOOTER_SIZE = 16;
+
+    /**
+     * The block index of an archive, sorted by sequence.
+     */
+    static class Index {
+        int size = 0;
+        int[] sequences = new int[1024];
+        long[] offsets = new long[1024];
+        // where the next block goes
+        long end = FILE_HEADER_SIZE;
+
+        void add(long sequence, long offset) {
+            if (size > 0 && sequence <= lastSequence()) {
+                throw new IllegalArgumentException("Ledger " + sequence +
+                        " must come after " + lastSequence());
+            }
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            sequences[size] = (int) sequence;
+            offsets[size++] = offset;
+        }
+
+        long lastSequence() {
+            return sequences[size - 1] & 0xFFFFFFFFL;
+        }
+
+        long sequence(int i) {
+            return sequences[i] & 0xFFFFFFFFL;
+        }
+
+        /**
+         * @return the position of the first block at or after sequence
+         */
+        int ceiling(long sequence) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sequence(mid) < sequence) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void writeTo(FileChannel channel, long at) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(size * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+            for (int i = 0; i < size; i++) {
+                buf.putInt(sequences[i]);
+                buf.putLong(offsets[i]);
+            }
+            buf.putLong(at);
+            buf.putInt(size);
+            buf.putInt(FOOTER_MAGIC);
+            buf.flip();
+            writeFully(channel, buf, at);
+        }
+
+        static Index readFrom(FileChannel channel) throws IOException {
+            long length = channel.size();
+            if (length < FILE_HEADER_SIZE) {
+                return new Index();
+            }
+            ByteBuffer head = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            readFully(channel, head, 0);
+            if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) {
+                throw new IOException("Not a ledger archive");
+            }
+            if (length >= FILE_HEADER_SIZE + FOOTER_SIZE) {
+                ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+                readFully(channel, footer, length - FOOTER_SIZE);
+                long indexOffset = footer.getLong(0);
+                int count = footer.getInt(8);
+                if (footer.getInt(12) == FOOTER_MAGIC &&
+                        indexOffset + (long) count * INDEX_ENTRY_SIZE + FOOTER_SIZE == length) {
+                    ByteBuffer entries = ByteBuffer.allocate(count * INDEX_ENTRY_SIZE);
+                    readFully(channel, entries, indexOffset);
+                    entries.flip();
+                    Index index = new Index();
+                    for (int i = 0; i < count; i++) {
+                        index.add(entries.getInt() & 0xFFFFFFFFL, entries.getLong());
+                    }
+                    index.end = indexOffset;
+                    return index;
+                }
+            }
+            return scan(channel);
+        }
+
+        private static Index scan(FileChannel channel) throws IOException {
+            Index index = new Index();
+            long length = channel.size();
+            long at = FILE_HEADER_SIZE;
+            ByteBuffer head = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            while (at + BLOCK_HEADER_SIZE <= length) {
+                head.clear();
+                readFully(channel, head, at);
+                long sequence = head.getInt(0) & 0xFFFFFFFFL;
+                int compressed = head.getInt(8);
+                long next = at + BLOCK_HEADER_SIZE + compressed;
+                // a torn block, or the start of a partly written index
+                if (head.getInt(4) <= 0 || compressed <= 0 || next > length ||
+                        (index.size > 0 && sequence <= index.lastSequence())) {
+                    break;
+                }
+                index.add(sequence, at);
+                at = next;
+            }
+            index.end = at;
+            return index;
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buf, long at) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, at);
+            if (n < 0) {
+                throw new IOException("Unexpected end of archive");
+            }
+            at += n;
+        }
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buf, long at) throws IOException {
+        while (buf.hasRemaining()) {
+            at += channel.write(buf, at);
+        }
+    }
+}
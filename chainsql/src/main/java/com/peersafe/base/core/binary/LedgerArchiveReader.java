@@ -0,0 +1,158 @@
+package com.peersafe.base.core.binary;
+
+import com.peersafe.base.core.serialized.BinaryParser;
+import com.peersafe.base.core.types.known.tx.result.TransactionResult;
+import com.peersafe.base.core.types.ledger.LedgerHeader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access and sequential replay of a ledger archive, see
+ * {@link LedgerArchive}. Not thread safe; open a reader per thread.
+ */
+public class LedgerArchiveReader implements Closeable {
+    public interface LedgerVisitor {
+        void onLedger(LedgerArchive ledger);
+    }
+
+    // far more than any ledger, a larger raw length is a corrupt header
+    private static final int MAX_RAW_LENGTH = 1 << 28;
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final LedgerArchive.Index index;
+    private final Inflater inflater = new Inflater();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer block = ByteBuffer.allocate(1 << 16);
+
+    private LedgerArchiveReader(File file) throws IOException {
+        raf = new RandomAccessFile(file, "r");
+        channel = raf.getChannel();
+        index = LedgerArchive.Index.readFrom(channel);
+    }
+
+    /**
+     * @param file archive file.
+     * @return LedgerArchiveReader.
+     * @throws IOException if the file isn't a ledger archive.
+     */
+    public static LedgerArchiveReader open(File file) throws IOException {
+        return new LedgerArchiveReader(file);
+    }
+
+    public int size() {
+        return index.size;
+    }
+
+    public long firstSequence() {
+        return index.size == 0 ? -1 : index.sequence(0);
+    }
+
+    public long lastSequence() {
+        return index.size == 0 ? -1 : index.lastSequence();
+    }
+
+    public boolean contains(long sequence) {
+        int i = index.ceiling(sequence);
+        return i < index.size && index.sequence(i) == sequence;
+    }
+
+    /**
+     * Read one ledger.
+     * @param sequence ledger sequence.
+     * @return the ledger, or null if it's not archived.
+     * @throws IOException on read failure or corruption.
+     */
+    public LedgerArchive read(long sequence) throws IOException {
+        int i = index.ceiling(sequence);
+        if (i == index.size || index.sequence(i) != sequence) {
+            return null;
+        }
+        return readBlock(index.offsets[i]);
+    }
+
+    /**
+     * Visit every archived ledger in [from, to], in order.
+     * @param from first ledger sequence.
+     * @param to last ledger sequence.
+     * @param visitor visitor.
+     * @throws IOException on read failure or corruption.
+     */
+    public void replay(long from, long to, LedgerVisitor visitor) throws IOException {
+        for (int i = index.ceiling(from); i < index.size && index.sequence(i) <= to; i++) {
+            visitor.onLedger(readBlock(index.offsets[i]));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        raf.close();
+    }
+
+    private LedgerArchive readBlock(long at) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(LedgerArchive.BLOCK_HEADER_SIZE);
+        LedgerArchive.readFully(channel, head, at);
+        int rawLength = head.getInt(4);
+        int length = head.getInt(8);
+        int checksum = head.getInt(12);
+        if (rawLength < 0 || rawLength > MAX_RAW_LENGTH || length < 0
+                || length > channel.size() - at - LedgerArchive.BLOCK_HEADER_SIZE) {
+            throw new IOException("Corrupt block header at " + at);
+        }
+
+        if (block.capacity() < length) {
+            block = ByteBuffer.allocate(Math.max(length, block.capacity() * 2));
+        }
+        block.clear().limit(length);
+        LedgerArchive.readFully(channel, block, at + LedgerArchive.BLOCK_HEADER_SIZE);
+
+        byte[] payload = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(block.array(), 0, length);
+        try {
+            int n = 0;
+            byte[] excess = new byte[1];
+            while (!inflater.finished()) {
+                // once full, only the end of the stream may follow
+                int inflated = n < rawLength ? inflater.inflate(payload, n, rawLength - n)
+                        : inflater.inflate(excess);
+                if (n == rawLength && inflated > 0) {
+                    throw new IOException("Corrupt block at " + at);
+                }
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Corrupt block at " + at);
+                }
+                n += inflated;
+            }
+            if (n != rawLength) {
+                throw new IOException("Corrupt block at " + at);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at " + at, e);
+        }
+        crc.reset();
+        crc.update(payload, 0, rawLength);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch for block at " + at);
+        }
+
+        STReader reader = new STReader(new BinaryParser(payload));
+        LedgerHeader header = LedgerHeader.fromReader(reader);
+        int count = reader.uInt32().intValue();
+        ArrayList<TransactionResult> transactions = new ArrayList<TransactionResult>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(reader.readTransactionResult(header.sequence));
+        }
+        return new LedgerArchive(header, transactions);
+    }
+}
@@ -0,0 +1,152 @@
+package com.peersafe.base.core.binary;
+
+import com.peersafe.base.core.coretypes.uint.UInt32;
+import com.peersafe.base.core.serialized.StreamSink;
+import com.peersafe.base.core.types.known.tx.result.TransactionResult;
+import com.peersafe.base.core.types.ledger.LedgerHeader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Appends validated ledgers to a ledger archive, see {@link LedgerArchive}.
+ *
+ * Ledgers must be written in increasing sequence order. Opening an existing
+ * archive appends to it. The index is written by close().
+ */
+public class LedgerArchiveWriter implements Closeable {
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final LedgerArchive.Index index;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+
+    private final ByteArrayOutputStream raw = new ByteArrayOutputStream(1 << 16);
+    private final STWriter writer = new STWriter(new StreamSink(raw));
+    private byte[] compressed = new byte[1 << 16];
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(LedgerArchive.BLOCK_HEADER_SIZE);
+
+    private LedgerArchiveWriter(File file, int level) throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        if (channel.size() == 0) {
+            ByteBuffer head = ByteBuffer.allocate(LedgerArchive.FILE_HEADER_SIZE);
+            head.putInt(LedgerArchive.MAGIC).putInt(LedgerArchive.VERSION).flip();
+            LedgerArchive.writeFully(channel, head, 0);
+        }
+        index = LedgerArchive.Index.readFrom(channel);
+        // drop the old index and footer, they get rewritten on close
+        channel.truncate(index.end);
+        deflater = new Deflater(level);
+    }
+
+    /**
+     * Create or append to an archive, favouring speed over size.
+     * @param file archive file.
+     * @return LedgerArchiveWriter.
+     * @throws IOException if the file isn't a ledger archive.
+     */
+    public static LedgerArchiveWriter open(File file) throws IOException {
+        return open(file, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Create or append to an archive.
+     * @param file archive file.
+     * @param level Deflater compression level.
+     * @return LedgerArchiveWriter.
+     * @throws IOException if the file isn't a ledger archive.
+     */
+    public static LedgerArchiveWriter open(File file, int level) throws IOException {
+        return new LedgerArchiveWriter(file, level);
+    }
+
+    /**
+     * Write one validated ledger.
+     * @param header ledger header.
+     * @param transactions the ledger's transactions with metadata.
+     * @throws IOException on write failure.
+     */
+    public void write(LedgerHeader header, List<TransactionResult> transactions) throws IOException {
+        long sequence = header.sequence.longValue();
+        if (index.size > 0 && sequence <= index.lastSequence()) {
+            throw new IllegalArgumentException("Ledger " + sequence +
+                    " must come after " + index.lastSequence());
+        }
+
+        raw.reset();
+        header.toBytesSink(writer);
+        writer.write(new UInt32(transactions.size()));
+        for (TransactionResult tr : transactions) {
+            writer.write(tr);
+        }
+        byte[] payload = raw.toByteArray();
+
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        int length = deflate(payload);
+
+        blockHeader.clear();
+        blockHeader.putInt((int) sequence)
+                   .putInt(payload.length)
+                   .putInt(length)
+                   .putInt((int) crc.getValue())
+                   .flip();
+
+        long at = index.end;
+        LedgerArchive.writeFully(channel, blockHeader, at);
+        LedgerArchive.writeFully(channel, ByteBuffer.wrap(compressed, 0, length),
+                                 at + LedgerArchive.BLOCK_HEADER_SIZE);
+        index.add(sequence, at);
+        index.end = at + LedgerArchive.BLOCK_HEADER_SIZE + length;
+    }
+
+    /**
+     * @return number of ledgers in the archive.
+     */
+    public int size() {
+        return index.size;
+    }
+
+    /**
+     * Force written blocks to disk, without writing the index.
+     * @throws IOException on failure.
+     */
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            index.writeTo(channel, index.end);
+            channel.force(true);
+        } finally {
+            deflater.end();
+            raf.close();
+        }
+    }
+
+    private int deflate(byte[] payload) {
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return length;
+    }
+}
@@ -1,22 +1,98 @@
 package com.peersafe.base.core.cache;
 
+import com.peersafe.base.core.coretypes.Blob;
 import com.peersafe.base.core.coretypes.hash.Hash256;
 import com.peersafe.base.core.coretypes.uint.UInt32;
+import com.peersafe.base.core.fields.Field;
+import com.peersafe.base.core.serialized.SerializedType;
 import com.peersafe.base.core.types.known.sle.LedgerEntry;
 import com.peersafe.base.core.types.known.tx.result.AffectedNode;
 import com.peersafe.base.core.types.known.tx.result.TransactionMeta;
 import com.peersafe.base.core.types.known.tx.result.TransactionResult;
 
-import java.util.TreeMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * A thread safe ledger entry cache, bounded by entry count and by an
+ * estimated heap weight, evicting the least recently used entries.
+ *
+ * All operations, including applying the AffectedNodes of a transaction,
+ * are atomic with respect to each other.
+ *
+ * Evicting an entry, or a deletion tombstone, forgets the ledger it was last
+ * updated in. So the cache keeps the newest such ledger and won't take in an
+ * entry it doesn't hold from a ledger older than that, as it could be a
+ * version the evicted one had already replaced or deleted.
+ */
 public class SLECache {
-    private final TreeMap<Hash256, CacheEntry> cache = new TreeMap<Hash256, CacheEntry>();
+    /**
+     * Estimates the heap footprint, in bytes, of a cached entry.
+     */
+    public static interface Weigher {
+        long weigh(LedgerEntry le);
+    }
+
+    // A fixed cost per parsed field plus the bytes of any blob, without serializing
+    public static final Weigher ESTIMATED_BYTES = new Weigher() {
+        @Override
+        public long weigh(LedgerEntry le) {
+            if (le == null) {
+                return ENTRY_OVERHEAD;
+            }
+            long bytes = ENTRY_OVERHEAD + le.size() * FIELD_OVERHEAD;
+            for (Field field : le) {
+                SerializedType value = le.get(field);
+                if (value instanceof Blob) {
+                    bytes += ((Blob) value).toBytes().length;
+                }
+            }
+            return bytes;
+        }
+    };
+
+    private static final long ENTRY_OVERHEAD = 128;
+    private static final long FIELD_OVERHEAD = 96;
+
+    private final LinkedHashMap<Hash256, CacheEntry> cache =
+            new LinkedHashMap<Hash256, CacheEntry>(256, 0.75f, true);
+    private final long maxEntries;
+    private final long maxWeight;
+    private final Weigher weigher;
+    private long weight = 0;
+    // the newest ledger an evicted or invalidated entry was last updated in
+    private UInt32 forgottenLedger = null;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SLECache() {
+        this(Long.MAX_VALUE, Long.MAX_VALUE, ESTIMATED_BYTES);
+    }
+
+    /**
+     * @param maxEntries most entries to hold
+     * @param maxBytes most estimated bytes to hold
+     */
+    public SLECache(long maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, ESTIMATED_BYTES);
+    }
+
+    public SLECache(long maxEntries, long maxWeight, Weigher weigher) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
 
     public static class CacheEntry {
         public LedgerEntry le;
         public UInt32  prevTxnIndex;
         public UInt32 prevLedger;
         public boolean deleted = false;
+        long weight = 0;
 
         /**
          * upateLedgerEntry
@@ -49,7 +125,7 @@ public class SLECache {
                 return true;
             }
             if (ledgerCmp == 0) {
-                if (prevTxnIndex == null) {
+                if (prevTxnIndex == null || txnIndex == null) {
                     // We don't know, should log a warning or something
                     // Should we keep the first one that we have of this index
                     // or can we assume that the latest is the best?
@@ -69,23 +145,13 @@ public class SLECache {
      * Cache ledger.
      * @param le Ledger Entry.
      * @param validatedLedgerIndex Validated ledger index.
-     * @return return value.
+     * @return false if it is older than what the cache has forgotten.
      */
-    public boolean cache(LedgerEntry le, UInt32 validatedLedgerIndex) {
+    public synchronized boolean cache(LedgerEntry le, UInt32 validatedLedgerIndex) {
         Hash256 index = le.ledgerIndex();
-        CacheEntry ce = getOrCreate(index);
-        ce.upateLedgerEntry(le, validatedLedgerIndex, null);
-        return true;
-    }
-
-    private CacheEntry getEntry(Hash256 index) {
-        return cache.get(index);
-    }
-
-    private CacheEntry createEntry(Hash256 index) {
-        CacheEntry ce = new CacheEntry();
-        cache.put(index, ce);
-        return ce;
+        boolean cached = update(index, le, validatedLedgerIndex, null);
+        evict();
+        return cached;
     }
 
     /**
@@ -93,16 +159,21 @@ public class SLECache {
      * @param index ledger index.
      * @return LedgerEntry.
      */
-    public LedgerEntry get(Hash256 index) {
-        CacheEntry entry = getEntry(index);
-        return entry == null || entry.deleted ? null : entry.le;
+    public synchronized LedgerEntry get(Hash256 index) {
+        CacheEntry entry = cache.get(index);
+        if (entry == null || entry.deleted) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.le;
     }
 
     /**
      * updateFromTransactionResult
      * @param tr TransactionResult
      */
-    public void updateFromTransactionResult(TransactionResult tr) {
+    public synchronized void updateFromTransactionResult(TransactionResult tr) {
         if (!tr.validated) {
             return;
         }
@@ -112,20 +183,94 @@ public class SLECache {
         UInt32 txnIndex = meta.transactionIndex();
 
         for (AffectedNode an : meta.affectedNodes()) {
-            Hash256 index = an.ledgerIndex();
-            CacheEntry ce = getOrCreate(index);
-            ce.upateLedgerEntry(an.isDeletedNode() ? null : (LedgerEntry) an.nodeAsFinal(),
-                                ledgerIndex,
-                                txnIndex);
+            update(an.ledgerIndex(),
+                   an.isDeletedNode() ? null : (LedgerEntry) an.nodeAsFinal(),
+                   ledgerIndex,
+                   txnIndex);
+        }
+        evict();
+    }
+
+    public synchronized void invalidate(Hash256 index) {
+        CacheEntry removed = cache.remove(index);
+        if (removed != null) {
+            weight -= removed.weight;
+            forget(removed);
+        }
+    }
+
+    public synchronized void clear() {
+        for (CacheEntry ce : cache.values()) {
+            forget(ce);
+        }
+        cache.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the estimated weight of all cached entries
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    public double hitRate() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    private boolean update(Hash256 index, LedgerEntry le, UInt32 ledgerIndex, UInt32 txnIndex) {
+        CacheEntry ce = cache.get(index);
+        if (ce == null) {
+            if (forgottenLedger != null && ledgerIndex != null
+                    && ledgerIndex.compareTo(forgottenLedger) < 0) {
+                return false;
+            }
+            ce = new CacheEntry();
+            cache.put(index, ce);
+        }
+        LedgerEntry before = ce.le;
+        boolean wasDeleted = ce.deleted;
+        ce.upateLedgerEntry(le, ledgerIndex, txnIndex);
+
+        if (ce.weight == 0 || ce.le != before || ce.deleted != wasDeleted) {
+            long w = weigher.weigh(ce.le);
+            weight += w - ce.weight;
+            ce.weight = w;
+        }
+        return true;
+    }
+
+    private void forget(CacheEntry ce) {
+        if (ce.prevLedger != null && (forgottenLedger == null || ce.prevLedger.compareTo(forgottenLedger) > 0)) {
+            forgottenLedger = ce.prevLedger;
         }
     }
 
-    private CacheEntry getOrCreate(Hash256 index) {
-        CacheEntry already = getEntry(index);
-        if (already == null) {
-            return createEntry(index);
-        } else {
-            return already;
+    private void evict() {
+        Iterator<Map.Entry<Hash256, CacheEntry>> eldest = cache.entrySet().iterator();
+        while ((cache.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            CacheEntry ce = eldest.next().getValue();
+            eldest.remove();
+            weight -= ce.weight;
+            forget(ce);
+            evictions.incrementAndGet();
         }
     }
 }
@@ -37,24 +37,43 @@ public class StreamBinaryParser extends BinaryParser {
 
     public void skip(int n) {
         try {
-            long skipped = stream.skip(n);
-            if (skipped != n) {
-                throw new RuntimeException("Expected to skip more bytes");
+            long skipped = 0;
+            while (skipped < n) {
+                long got = stream.skip(n - skipped);
+                if (got <= 0) {
+                    throw new RuntimeException("Expected to skip more bytes");
+                }
+                skipped += got;
             }
+            cursor += n;
 
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
     public byte readOne() {
-        return read(1)[0];
+        try {
+            int b = stream.read();
+            if (b == -1) {
+                throw new RuntimeException("Expected to read more bytes");
+            }
+            cursor++;
+            return (byte) b;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
     public byte[] read(int n) {
         byte[] ret = new byte[n];
         try {
-            int read = stream.read(ret);
-            if (read != n) {
-                throw new RuntimeException("Expected to read more bytes");
+            // BufferedInputStream may return short reads at buffer boundaries
+            int read = 0;
+            while (read < n) {
+                int got = stream.read(ret, read, n - read);
+                if (got == -1) {
+                    throw new RuntimeException("Expected to read more bytes");
+                }
+                read += got;
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -62,6 +81,27 @@ public class StreamBinaryParser extends BinaryParser {
         cursor += n;
         return ret;
     }
+
+    /**
+     * Checks the stream itself rather than the size, which can't represent
+     * streams over 2GB, nor gzip streams over 4GB.
+     */
+    @Override
+    public boolean end() {
+        try {
+            stream.mark(1);
+            int b = stream.read();
+            stream.reset();
+            return b == -1;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean end(Integer customEnd) {
+        return end() || customEnd != null && cursor >= customEnd;
+    }
     public static StreamBinaryParser fromFile(String path) {
         try {
             File f = new File(path);
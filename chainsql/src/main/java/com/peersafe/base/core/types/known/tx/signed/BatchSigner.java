@@ -0,0 +1,155 @@
+package com.peersafe.base.core.types.known.tx.signed;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.peersafe.base.core.types.known.tx.Transaction;
+import com.peersafe.base.crypto.ecdsa.IKeyPair;
+import com.peersafe.base.crypto.sm.SMKeyPair;
+
+/**
+ * Signs many transactions with one key pair, spreading the copying,
+ * serializing, hashing and signing of each over a ForkJoinPool.
+ *
+ * Every transaction is signed as by {@link Transaction#sign(IKeyPair)}, so
+ * the results carry tx_blob and hash. SM key pairs sign through a device
+ * session, so their signMessage calls are serialized, while the rest still
+ * runs in parallel.
+ */
+public class BatchSigner {
+    // transactions signed by one task without forking further
+    static final int DEFAULT_CHUNK = 16;
+
+    private final ForkJoinPool pool;
+    private final int chunk;
+
+    public BatchSigner() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+
+    /**
+     * @param pool the pool to sign in
+     * @param chunk transactions per task, at least 1
+     */
+    public BatchSigner(ForkJoinPool pool, int chunk) {
+        if (chunk < 1) {
+            throw new IllegalArgumentException("chunk must be at least 1");
+        }
+        this.pool = pool;
+        this.chunk = chunk;
+    }
+
+    /**
+     * Sign with the common pool.
+     * @param txns transactions, left untouched
+     * @param keyPair key pair
+     * @return the signed transactions, in input order
+     */
+    public static List<SignedTransaction> signAll(List<? extends Transaction> txns, IKeyPair keyPair) {
+        return new BatchSigner().sign(txns, keyPair);
+    }
+
+    /**
+     * @param txns transactions, left untouched
+     * @param keyPair key pair
+     * @return the signed transactions, in input order
+     */
+    public List<SignedTransaction> sign(List<? extends Transaction> txns, IKeyPair keyPair) {
+        SignedTransaction[] signed = new SignedTransaction[txns.size()];
+        if (signed.length > 0) {
+            IKeyPair signer = keyPair instanceof SMKeyPair ? new SerialKeyPair(keyPair) : keyPair;
+            pool.invoke(new SignTask(txns, signer, signed, 0, signed.length, chunk));
+        }
+        return Arrays.asList(signed);
+    }
+
+    private static class SignTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends Transaction> txns;
+        private final IKeyPair keyPair;
+        private final SignedTransaction[] signed;
+        private final int from, to, chunk;
+
+        SignTask(List<? extends Transaction> txns, IKeyPair keyPair,
+                 SignedTransaction[] signed, int from, int to, int chunk) {
+            this.txns = txns;
+            this.keyPair = keyPair;
+            this.signed = signed;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                for (int i = from; i < to; i++) {
+                    signed[i] = txns.get(i).sign(keyPair);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SignTask(txns, keyPair, signed, from, mid, chunk),
+                      new SignTask(txns, keyPair, signed, mid, to, chunk));
+        }
+    }
+
+    /**
+     * Serializes signMessage on the wrapped key pair.
+     */
+    private static class SerialKeyPair implements IKeyPair {
+        private final IKeyPair keyPair;
+
+        SerialKeyPair(IKeyPair keyPair) {
+            this.keyPair = keyPair;
+        }
+
+        @Override
+        public byte[] signMessage(byte[] message) {
+            synchronized (keyPair) {
+                return keyPair.signMessage(message);
+            }
+        }
+
+        @Override
+        public boolean verifySignature(byte[] message, byte[] sigBytes) {
+            synchronized (keyPair) {
+                return keyPair.verifySignature(message, sigBytes);
+            }
+        }
+
+        @Override
+        public String canonicalPubHex() {
+            return keyPair.canonicalPubHex();
+        }
+
+        @Override
+        public byte[] canonicalPubBytes() {
+            return keyPair.canonicalPubBytes();
+        }
+
+        @Override
+        public BigInteger pub() {
+            return keyPair.pub();
+        }
+
+        @Override
+        public BigInteger priv() {
+            return keyPair.priv();
+        }
+
+        @Override
+        public String privHex() {
+            return keyPair.privHex();
+        }
+
+        @Override
+        public byte[] pub160Hash() {
+            return keyPair.pub160Hash();
+        }
+    }
+}
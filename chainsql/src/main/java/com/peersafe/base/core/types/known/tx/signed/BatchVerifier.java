@@ -0,0 +1,225 @@
+package com.peersafe.base.core.types.known.tx.signed;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.peersafe.base.core.coretypes.AccountID;
+import com.peersafe.base.core.coretypes.Blob;
+import com.peersafe.base.core.coretypes.STArray;
+import com.peersafe.base.core.coretypes.STObject;
+import com.peersafe.base.core.types.known.tx.Transaction;
+import com.peersafe.base.crypto.ecdsa.EDKeyPair;
+import com.peersafe.base.crypto.ecdsa.K256KeyPair;
+import com.peersafe.base.utils.HashUtils;
+
+import net.i2p.crypto.eddsa.EdDSAEngine;
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+import net.i2p.crypto.eddsa.spec.EdDSAPublicKeySpec;
+
+/**
+ * Verifies many signatures at once, spread over a ForkJoinPool.
+ *
+ * Signatures are added one by one, or per transaction: its TxnSignature,
+ * or for a multi-signed one the signature of every entry in Signers. Each
+ * gets an {@link Item} reporting whether it is valid. Secp256k1 public keys
+ * are decoded once and keep their precomputed tables, so signers that come
+ * back again and again are cheaper to check. Ed25519 keys are supported as
+ * well; any other key fails verification.
+ */
+public class BatchVerifier {
+    public static class Item {
+        /**
+         * The transaction the signature is on, null if added directly.
+         */
+        public final Transaction txn;
+        /**
+         * The multi-signing account, null for single signatures.
+         */
+        public final AccountID signer;
+        final byte[] publicKey;
+        final byte[] signature;
+        private byte[] message;
+        private volatile boolean valid;
+
+        Item(Transaction txn, AccountID signer, byte[] message,
+             byte[] signature, byte[] publicKey) {
+            this.txn = txn;
+            this.signer = signer;
+            this.message = message;
+            this.signature = signature;
+            this.publicKey = publicKey;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        byte[] message() {
+            if (message == null) {
+                message = signer == null ? txn.signingData() : txn.multiSigningData(signer);
+            }
+            return message;
+        }
+    }
+
+    private static final byte ED25519_PREFIX = (byte) 0xED;
+
+    private final ForkJoinPool pool;
+    private final int chunk;
+    private final ArrayList<Item> items = new ArrayList<Item>();
+
+    public BatchVerifier() {
+        this(ForkJoinPool.commonPool(), BatchSigner.DEFAULT_CHUNK);
+    }
+
+    /**
+     * @param pool the pool to verify in
+     * @param chunk signatures per task, at least 1
+     */
+    public BatchVerifier(ForkJoinPool pool, int chunk) {
+        if (chunk < 1) {
+            throw new IllegalArgumentException("chunk must be at least 1");
+        }
+        this.pool = pool;
+        this.chunk = chunk;
+    }
+
+    /**
+     * Add a signature over a message, as made by IKeyPair.signMessage.
+     * @param message signed message
+     * @param signature signature
+     * @param publicKey canonical public key bytes
+     * @return its item
+     */
+    public Item add(byte[] message, byte[] signature, byte[] publicKey) {
+        Item item = new Item(null, null, message, signature, publicKey);
+        items.add(item);
+        return item;
+    }
+
+    /**
+     * Add the signatures on a transaction.
+     * @param txn transaction, signed or multi-signed
+     * @return one item per signature, empty if it carries none
+     */
+    public List<Item> add(Transaction txn) {
+        STArray signers = txn.get(STArray.Signers);
+        if (signers == null || signers.isEmpty()) {
+            Blob signature = txn.txnSignature();
+            Blob pubKey = txn.signingPubKey();
+            if (signature == null || pubKey == null) {
+                return Collections.emptyList();
+            }
+            Item item = new Item(txn, null, null, signature.toBytes(), pubKey.toBytes());
+            items.add(item);
+            return Collections.singletonList(item);
+        }
+        List<Item> added = new ArrayList<Item>(signers.size());
+        for (STObject entry : signers) {
+            STObject signer = entry.has(STObject.Signer) ? (STObject) entry.get(STObject.Signer) : entry;
+            Blob signature = signer.get(Blob.TxnSignature);
+            Blob pubKey = signer.get(Blob.SigningPubKey);
+            Item item = new Item(txn, signer.get(AccountID.Account), null,
+                    signature == null ? new byte[0] : signature.toBytes(),
+                    pubKey == null ? new byte[0] : pubKey.toBytes());
+            items.add(item);
+            added.add(item);
+        }
+        return added;
+    }
+
+    /**
+     * @return every item added, in order
+     */
+    public List<Item> items() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Verify every item added.
+     * @return whether all are valid
+     */
+    public boolean verify() {
+        Item[] all = items.toArray(new Item[items.size()]);
+        if (all.length > 0) {
+            pool.invoke(new VerifyTask(all, 0, all.length, chunk));
+        }
+        for (Item item : all) {
+            if (!item.valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verify the signatures on many transactions.
+     * @param txns transactions
+     * @return whether each one's signatures are all valid, in input order
+     */
+    public static boolean[] verifyAll(List<? extends Transaction> txns) {
+        BatchVerifier verifier = new BatchVerifier();
+        List<List<Item>> perTxn = new ArrayList<List<Item>>(txns.size());
+        for (Transaction txn : txns) {
+            perTxn.add(verifier.add(txn));
+        }
+        verifier.verify();
+        boolean[] valid = new boolean[txns.size()];
+        for (int i = 0; i < valid.length; i++) {
+            List<Item> signatures = perTxn.get(i);
+            valid[i] = !signatures.isEmpty();
+            for (Item item : signatures) {
+                valid[i] &= item.valid;
+            }
+        }
+        return valid;
+    }
+
+    static boolean verify(Item item) {
+        try {
+            byte[] pub = item.publicKey;
+            if (pub.length == 33 && pub[0] == ED25519_PREFIX) {
+                EdDSAEngine engine = new EdDSAEngine(MessageDigest.getInstance("SHA-512"));
+                engine.initVerify(new EdDSAPublicKey(new EdDSAPublicKeySpec(
+                        Arrays.copyOfRange(pub, 1, pub.length), EDKeyPair.ed25519)));
+                engine.update(item.message());
+                return engine.verify(item.signature);
+            }
+            return K256KeyPair.verify(HashUtils.halfSha512(item.message()), item.signature, pub);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Item[] items;
+        private final int from, to, chunk;
+
+        VerifyTask(Item[] items, int from, int to, int chunk) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                for (int i = from; i < to; i++) {
+                    items[i].valid = BatchVerifier.verify(items[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new VerifyTask(items, from, mid, chunk),
+                      new VerifyTask(items, mid, to, chunk));
+        }
+    }
+}
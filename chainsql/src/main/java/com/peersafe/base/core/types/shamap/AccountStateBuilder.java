@@ -276,7 +276,7 @@ public class AccountStateBuilder {
     }
 
     public boolean bad() {
-        return !state.hash().equals(targetAccountHash);
+        return !state.parallelHash().equals(targetAccountHash);
     }
 
     public AccountState previousState() {
@@ -0,0 +1,7 @@
+package com.peersafe.base.core.types.shamap;
+
+public interface DiffWalker {
+    public void onAdded(ShaMapLeaf added);
+    public void onDeleted(ShaMapLeaf deleted);
+    public void onModified(ShaMapLeaf before, ShaMapLeaf after);
+}
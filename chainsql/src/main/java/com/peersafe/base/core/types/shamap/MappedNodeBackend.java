@@ -0,0 +1,387 @@
+package com.peersafe.base.core.types.shamap;
+
+import com.peersafe.base.core.coretypes.hash.Hash256;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent KeyValueBackend for the NodeStore.
+ *
+ * Values are appended to a single segment file, which is memory mapped in
+ * fixed size regions so that it can grow past 2GB. Each record is laid out as
+ *
+ *     [32 byte key][4 byte length][4 byte CRC32 of key and content][content]
+ *
+ * and never spans a region; the tail of a region that can't fit the next
+ * record is marked as padding. The key -> file offset index is an open
+ * addressing table held off heap, and is rebuilt by scanning the segment
+ * when the file is opened. The scan stops at the first record whose
+ * checksum doesn't match, so a torn write at the tail is dropped and then
+ * overwritten. Empty values are rejected, a zero length marks the end.
+ *
+ * Writes are fsynced in batches of `syncEvery` puts, or on flush()/close().
+ * As the store is content addressed, putting a key already present is a no-op.
+ */
+public class MappedNodeBackend implements NodeStore.KeyValueBackend, Closeable, Flushable {
+    public static interface KeyFilter {
+        boolean retain(Hash256 key);
+    }
+
+    private static interface RecordWalker {
+        void onRecord(long offset, ByteBuffer region, int at, int length);
+    }
+
+    public static final int DEFAULT_REGION_SIZE = 64 << 20;
+    public static final int DEFAULT_SYNC_EVERY = 4096;
+
+    private static final int KEY_SIZE = 32;
+    private static final int CRC_AT = KEY_SIZE + 4;
+    private static final int HEADER_SIZE = CRC_AT + 4;
+    private static final int PADDING = -1;
+    // tag (first 8 bytes of the key) and record offset
+    private static final int SLOT_SIZE = 16;
+    private static final int MIN_SLOTS = 1 << 12;
+    // keeps the index under Integer.MAX_VALUE bytes
+    private static final int MAX_SLOTS = 1 << 26;
+
+    private final File file;
+    private final int regionSize;
+    private final int syncEvery;
+
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private ArrayList<MappedByteBuffer> regions;
+    private long writePos;
+    private int unsynced;
+    private int firstDirtyRegion;
+
+    private ByteBuffer index;
+    private int mask;
+    private int count;
+
+    public MappedNodeBackend(File file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE, DEFAULT_SYNC_EVERY);
+    }
+
+    public MappedNodeBackend(File file, int regionSize, int syncEvery) throws IOException {
+        if (regionSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("regionSize too small: " + regionSize);
+        }
+        this.file = file;
+        this.regionSize = regionSize;
+        this.syncEvery = Math.max(1, syncEvery);
+        open();
+    }
+
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        regions = new ArrayList<MappedByteBuffer>();
+
+        long mapped = Math.max(channel.size(), 1);
+        long numRegions = (mapped + regionSize - 1) / regionSize;
+        for (int i = 0; i < numRegions; i++) {
+            mapRegion(i);
+        }
+
+        allocateIndex(MIN_SLOTS);
+        writePos = walkRecords(new RecordWalker() {
+            @Override
+            public void onRecord(long offset, ByteBuffer region, int at, int length) {
+                insert(region.getLong(at), offset);
+            }
+        });
+        firstDirtyRegion = regionOf(writePos);
+        unsynced = 0;
+    }
+
+    @Override
+    public synchronized void put(Hash256 key, byte[] content) {
+        if (content.length == 0) {
+            throw new IllegalArgumentException("content must not be empty");
+        }
+        if (locate(key) != -1) {
+            return;
+        }
+        int size = HEADER_SIZE + content.length;
+        if (size > regionSize) {
+            throw new IllegalArgumentException("content too large for region: " + content.length);
+        }
+        try {
+            int at = offsetOf(writePos);
+            if (at + size > regionSize) {
+                if (at + HEADER_SIZE <= regionSize) {
+                    region(writePos).putInt(at + KEY_SIZE, PADDING);
+                }
+                writePos = (long) (regionOf(writePos) + 1) * regionSize;
+                at = 0;
+            }
+            int r = regionOf(writePos);
+            while (r >= regions.size()) {
+                mapRegion(regions.size());
+            }
+            ByteBuffer out = regions.get(r).duplicate();
+            out.position(at);
+            out.put(key.bytes());
+            out.putInt(content.length);
+            out.putInt(checksum(key.bytes(), content));
+            out.put(content);
+
+            insert(out.getLong(at), writePos);
+            writePos += size;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (++unsynced >= syncEvery) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized byte[] get(Hash256 key) {
+        long offset = locate(key);
+        if (offset == -1) {
+            return null;
+        }
+        ByteBuffer in = region(offset).duplicate();
+        int at = offsetOf(offset);
+        byte[] content = new byte[in.getInt(at + KEY_SIZE)];
+        in.position(at + HEADER_SIZE);
+        in.get(content);
+        return content;
+    }
+
+    public synchronized boolean has(Hash256 key) {
+        return locate(key) != -1;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Forces all records appended since the last sync to disk.
+     */
+    @Override
+    public synchronized void flush() {
+        int last = Math.min(regionOf(writePos), regions.size() - 1);
+        for (int i = firstDirtyRegion; i <= last; i++) {
+            regions.get(i).force();
+        }
+        firstDirtyRegion = last;
+        unsynced = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        flush();
+        channel.close();
+        raf.close();
+        channel = null;
+        raf = null;
+        regions = null;
+        index = null;
+    }
+
+    /**
+     * Rewrites the segment keeping only the records `filter` retains, and
+     * swaps it in place of the current one.
+     *
+     * @param filter decides which keys survive
+     * @return the number of records dropped
+     * @throws IOException if the compacted segment can't be written
+     */
+    public synchronized int compact(final KeyFilter filter) throws IOException {
+        File tmp = new File(file.getPath() + ".compact");
+        if (tmp.exists() && !tmp.delete()) {
+            throw new IOException("Can't remove stale " + tmp);
+        }
+        final MappedNodeBackend target = new MappedNodeBackend(tmp, regionSize, Integer.MAX_VALUE);
+        int before = count;
+        try {
+            walkRecords(new RecordWalker() {
+                @Override
+                public void onRecord(long offset, ByteBuffer region, int at, int length) {
+                    byte[] key = new byte[KEY_SIZE];
+                    ByteBuffer in = region.duplicate();
+                    in.position(at);
+                    in.get(key);
+                    Hash256 hash = new Hash256(key);
+                    if (filter.retain(hash)) {
+                        byte[] content = new byte[length];
+                        in.position(at + HEADER_SIZE);
+                        in.get(content);
+                        target.put(hash, content);
+                    }
+                }
+            });
+        } finally {
+            target.close();
+        }
+        close();
+        Files.move(tmp.toPath(), file.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        open();
+        return before - count;
+    }
+
+    private long walkRecords(RecordWalker walker) {
+        long pos = 0;
+        while (true) {
+            int r = regionOf(pos);
+            if (r >= regions.size()) {
+                break;
+            }
+            int at = offsetOf(pos);
+            if (at + HEADER_SIZE > regionSize) {
+                pos = (long) (r + 1) * regionSize;
+                continue;
+            }
+            ByteBuffer region = regions.get(r);
+            int length = region.getInt(at + KEY_SIZE);
+            if (length == PADDING) {
+                pos = (long) (r + 1) * regionSize;
+                continue;
+            }
+            // The unwritten part of the file is zeroed, and no node is empty
+            if (length <= 0 || at + HEADER_SIZE + length > regionSize
+                    || !checksumMatches(region, at, length)) {
+                break;
+            }
+            walker.onRecord(pos, region, at, length);
+            pos += HEADER_SIZE + length;
+        }
+        return pos;
+    }
+
+    private static int checksum(byte[] key, byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    private static boolean checksumMatches(ByteBuffer region, int at, int length) {
+        byte[] key = new byte[KEY_SIZE];
+        byte[] content = new byte[length];
+        ByteBuffer in = region.duplicate();
+        in.position(at);
+        in.get(key);
+        in.position(at + HEADER_SIZE);
+        in.get(content);
+        return checksum(key, content) == region.getInt(at + CRC_AT);
+    }
+
+    private void mapRegion(int i) throws IOException {
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                                (long) i * regionSize, regionSize));
+    }
+
+    private int regionOf(long offset) {
+        return (int) (offset / regionSize);
+    }
+
+    private int offsetOf(long offset) {
+        return (int) (offset % regionSize);
+    }
+
+    private ByteBuffer region(long offset) {
+        return regions.get(regionOf(offset));
+    }
+
+    // Off heap open addressing index
+
+    private void allocateIndex(int slots) {
+        long bytes = (long) slots * SLOT_SIZE;
+        if (slots > MAX_SLOTS || bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("index is full: " + count + " entries");
+        }
+        index = ByteBuffer.allocateDirect((int) bytes);
+        mask = slots - 1;
+        count = 0;
+    }
+
+    private static long tag(long keyPrefix) {
+        // 0 marks an empty slot
+        return keyPrefix == 0 ? 1 : keyPrefix;
+    }
+
+    private int slotFor(long tag) {
+        return (int) (tag ^ (tag >>> 32)) & mask;
+    }
+
+    private long locate(Hash256 key) {
+        byte[] bytes = key.bytes();
+        long tag = tag(ByteBuffer.wrap(bytes).getLong());
+        int slot = slotFor(tag);
+
+        while (true) {
+            long slotTag = index.getLong(slot * SLOT_SIZE);
+            if (slotTag == 0) {
+                return -1;
+            }
+            if (slotTag == tag) {
+                long offset = index.getLong(slot * SLOT_SIZE + 8);
+                if (keyMatches(offset, bytes)) {
+                    return offset;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyMatches(long offset, byte[] key) {
+        ByteBuffer region = region(offset);
+        int at = offsetOf(offset);
+        for (int i = 0; i < KEY_SIZE; i++) {
+            if (region.get(at + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(long keyPrefix, long offset) {
+        if ((count + 1) * 4L > (mask + 1) * 3L) {
+            grow();
+        }
+        long tag = tag(keyPrefix);
+        int slot = slotFor(tag);
+        while (index.getLong(slot * SLOT_SIZE) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index.putLong(slot * SLOT_SIZE, tag);
+        index.putLong(slot * SLOT_SIZE + 8, offset);
+        count++;
+    }
+
+    private void grow() {
+        int slots = mask + 1;
+        if (slots >= MAX_SLOTS) {
+            throw new IllegalStateException("index is full: " + count + " entries");
+        }
+        ByteBuffer old = index;
+        allocateIndex(slots * 2);
+        for (int i = 0; i < slots; i++) {
+            long tag = old.getLong(i * SLOT_SIZE);
+            if (tag != 0) {
+                insert(tag, old.getLong(i * SLOT_SIZE + 8));
+            }
+        }
+    }
+}
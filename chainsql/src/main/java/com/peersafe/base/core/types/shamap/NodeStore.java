@@ -1,11 +1,24 @@
 package com.peersafe.base.core.types.shamap;
 
+import com.peersafe.base.core.coretypes.STObject;
 import com.peersafe.base.core.coretypes.hash.HalfSha512;
 import com.peersafe.base.core.coretypes.hash.Hash256;
+import com.peersafe.base.core.coretypes.hash.prefixes.HashPrefix;
+import com.peersafe.base.core.serialized.BinaryParser;
+import com.peersafe.base.core.serialized.BytesList;
+import com.peersafe.base.core.types.known.sle.LedgerEntry;
+import com.peersafe.base.core.types.known.tx.Transaction;
+import com.peersafe.base.core.types.known.tx.result.TransactionMeta;
+import com.peersafe.base.core.types.known.tx.result.TransactionResult;
 
-/**
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 
- * This is a toy implementation for illustrative purposes.
+/**
+ * Stores ShaMap nodes keyed by their hash, the way ripple does.
+ *
+ * See {@link MappedNodeBackend} for a persistent backend.
  */
 public class NodeStore {
     /**
@@ -66,4 +79,185 @@ public class NodeStore {
     public Hash256 set(byte[] content) {
         return storeContent(content);
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores every node of the tree, children before parents. An inner
+     * already in the store implies its whole subtree is, so consecutive
+     * snapshots of a map only write the nodes that changed.
+     *
+     * @param root root of the tree to store
+     * @return the root hash, which is the key to reload the tree with
+     */
+    public Hash256 storeTree(ShaMapInner root) {
+        Hash256 rootHash = root.parallelHash();
+        storeNode(root);
+        return rootHash;
+    }
+
+    /**
+     * @param rootHash as returned by storeTree
+     * @return the account state, with its hash verified
+     */
+    public AccountState loadAccountState(Hash256 rootHash) {
+        AccountState state = new AccountState();
+        loadTree(state, rootHash, 0);
+        return state;
+    }
+
+    /**
+     * @param rootHash as returned by storeTree
+     * @param ledgerIndex the ledger the transactions were applied in
+     * @return the transaction tree, with its hash verified
+     */
+    public TransactionTree loadTransactionTree(Hash256 rootHash, long ledgerIndex) {
+        TransactionTree tree = new TransactionTree();
+        loadTree(tree, rootHash, ledgerIndex);
+        return tree;
+    }
+
+    /**
+     * Looks up a single item by descending the stored inners, without
+     * loading the tree.
+     *
+     * @param rootHash as returned by storeTree
+     * @param index index of the item
+     * @param ledgerIndex used for transaction items
+     * @return the item, or null if the tree doesn't contain it
+     */
+    public ShaMapItem<?> getItem(Hash256 rootHash, Hash256 index, long ledgerIndex) {
+        Hash256 hash = rootHash;
+        for (int depth = 0; !hash.isZero(); depth++) {
+            byte[] content = getNode(hash);
+            if (isInner(content)) {
+                hash = childHash(content, index.nibblet(depth));
+            } else {
+                Hash256 leafIndex = leafIndex(content);
+                return leafIndex.equals(index) ? parseItem(content, leafIndex, ledgerIndex) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compacts the backend so that it only holds the nodes of the given trees.
+     *
+     * @param backend the backend this store writes to
+     * @param roots root hashes of the trees to keep
+     * @return the number of nodes dropped
+     * @throws IOException if the compacted segment can't be written
+     */
+    public int retainTrees(MappedNodeBackend backend, Hash256... roots) throws IOException {
+        final HashSet<Hash256> live = new HashSet<Hash256>();
+        for (Hash256 root : roots) {
+            collectReachable(root, live);
+        }
+        return backend.compact(new MappedNodeBackend.KeyFilter() {
+            @Override
+            public boolean retain(Hash256 key) {
+                return live.contains(key);
+            }
+        });
+    }
+
+    private void collectReachable(Hash256 hash, HashSet<Hash256> live) {
+        if (hash.isZero() || !live.add(hash)) {
+            return;
+        }
+        byte[] content = getNode(hash);
+        if (isInner(content)) {
+            for (int i = 0; i < 16; i++) {
+                collectReachable(childHash(content, i), live);
+            }
+        }
+    }
+
+    private void storeNode(ShaMapNode node) {
+        Hash256 hash = node.hash();
+        if (node.isInner()) {
+            ShaMapInner inner = node.asInner();
+            if (inner.empty() || backend.get(hash) != null) {
+                return;
+            }
+            for (ShaMapNode branch : inner) {
+                if (branch != null) {
+                    storeNode(branch);
+                }
+            }
+        }
+        BytesList content = new BytesList();
+        content.add(node.hashPrefix().bytes());
+        node.toBytesSink(content);
+        storeHashKeyedContent(hash, content.bytes());
+    }
+
+    private void loadTree(ShaMapInner map, Hash256 rootHash, long ledgerIndex) {
+        addStoredLeaves(map, rootHash, ledgerIndex);
+        if (!map.parallelHash().equals(rootHash)) {
+            throw new IllegalStateException("Loaded tree doesn't hash to " + rootHash);
+        }
+    }
+
+    private void addStoredLeaves(ShaMapInner map, Hash256 hash, long ledgerIndex) {
+        if (hash.isZero()) {
+            return;
+        }
+        byte[] content = getNode(hash);
+        if (isInner(content)) {
+            for (int i = 0; i < 16; i++) {
+                addStoredLeaves(map, childHash(content, i), ledgerIndex);
+            }
+        } else {
+            Hash256 index = leafIndex(content);
+            map.addItem(index, parseItem(content, index, ledgerIndex));
+        }
+    }
+
+    private byte[] getNode(Hash256 hash) {
+        byte[] content = backend.get(hash);
+        if (content == null) {
+            throw new IllegalStateException("Missing node " + hash);
+        }
+        return content;
+    }
+
+    private static boolean isPrefixed(byte[] content, HashPrefix prefix) {
+        byte[] bytes = prefix.bytes();
+        for (int i = 0; i < bytes.length; i++) {
+            if (content[i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInner(byte[] content) {
+        return isPrefixed(content, HashPrefix.innerNode);
+    }
+
+    private static Hash256 childHash(byte[] inner, int branch) {
+        int from = 4 + branch * 32;
+        return new Hash256(Arrays.copyOfRange(inner, from, from + 32));
+    }
+
+    private static Hash256 leafIndex(byte[] leaf) {
+        return new Hash256(Arrays.copyOfRange(leaf, leaf.length - 32, leaf.length));
+    }
+
+    private static ShaMapItem<?> parseItem(byte[] leaf, Hash256 index, long ledgerIndex) {
+        if (isPrefixed(leaf, HashPrefix.leafNode)) {
+            LedgerEntry le = (LedgerEntry) STObject.translate.fromBytes(
+                    Arrays.copyOfRange(leaf, 4, leaf.length - 32));
+            le.index(index);
+            return new LedgerEntryItem(le);
+        } else if (isPrefixed(leaf, HashPrefix.txNode)) {
+            BinaryParser parser = new BinaryParser(leaf);
+            parser.skip(4);
+            Transaction txn = (Transaction) STObject.translate.fromParser(parser, parser.readVLLength());
+            TransactionMeta meta = (TransactionMeta) STObject.translate.fromParser(parser, parser.readVLLength());
+            txn.put(Hash256.hash, index);
+            return new TransactionResultItem(new TransactionResult(ledgerIndex, index, txn, meta));
+        } else {
+            throw new IllegalStateException("Unknown node prefix for " + index);
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.peersafe.base.core.types.shamap;
 
 import com.peersafe.base.core.coretypes.hash.Hash256;
 
+import java.util.ArrayList;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class ShaMapDiff {
     public ShaMap one, two;
@@ -18,9 +21,44 @@ public class ShaMapDiff {
 
     // Find what's added, modified and deleted in `two`
     public void find() {
-        one.hash();
-        two.hash();
-        compare(one, two);
+        one.parallelHash();
+        two.parallelHash();
+        compare(one, two, new DiffWalker() {
+            @Override
+            public void onAdded(ShaMapLeaf leaf) {
+                added.add(leaf.index);
+            }
+
+            @Override
+            public void onDeleted(ShaMapLeaf leaf) {
+                deleted.add(leaf.index);
+            }
+
+            @Override
+            public void onModified(ShaMapLeaf before, ShaMapLeaf after) {
+                modified.add(after.index);
+            }
+        });
+    }
+
+    /**
+     * Streams what's added, modified and deleted in `two` to the walker
+     * instead of collecting it. Subtrees with matching hashes are skipped,
+     * and the inner pairs above `forkDepth` are compared concurrently, so
+     * the walker must be thread safe.
+     *
+     * @param pool pool to compare disjoint branches in
+     * @param forkDepth inner pairs at or below this depth are compared serially
+     * @param walker receives the differences, in no particular order
+     */
+    public void find(ForkJoinPool pool, int forkDepth, DiffWalker walker) {
+        one.parallelHash(pool, ShaMapInner.DEFAULT_FORK_DEPTH);
+        two.parallelHash(pool, ShaMapInner.DEFAULT_FORK_DEPTH);
+        pool.invoke(new CompareTask(one, two, forkDepth, walker));
+    }
+
+    public void find(DiffWalker walker) {
+        find(ForkJoinPool.commonPool(), ShaMapInner.DEFAULT_FORK_DEPTH, walker);
     }
 
     public ShaMapDiff inverted() {
@@ -48,79 +86,130 @@ public class ShaMapDiff {
             if (!removed) throw new AssertionError();
         }
     }
-    private void compare(ShaMapInner a, ShaMapInner b) {
-        for (int i = 0; i < 16; i++) {
-            ShaMapNode aChild = a.getBranch(i);
-            ShaMapNode bChild = b.getBranch(i);
-
-            if (aChild == null && bChild != null) {
-                trackAdded(bChild);
-                // added in B
-            } else if (aChild != null && bChild == null) {
-                trackRemoved(aChild);
-                // removed from B
-            } else if (aChild != null && !aChild.hash().equals(bChild.hash())) {
-                boolean aleaf  = aChild.isLeaf(),
-                        bLeaf  = bChild.isLeaf();
-
-                if (aleaf && bLeaf) {
-                    ShaMapLeaf la = (ShaMapLeaf) aChild;
-                    ShaMapLeaf lb = (ShaMapLeaf) bChild;
-                    if (la.index.equals(lb.index)) {
-                        modified.add(la.index);
-                    } else {
-                        deleted.add(la.index);
-                        added.add(lb.index);
+
+    private static class CompareTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ShaMapInner a, b;
+        private final int forkDepth;
+        private final DiffWalker walker;
+
+        CompareTask(ShaMapInner a, ShaMapInner b, int forkDepth, DiffWalker walker) {
+            this.a = a;
+            this.b = b;
+            this.forkDepth = forkDepth;
+            this.walker = walker;
+        }
+
+        @Override
+        protected void compute() {
+            if (a.depth >= forkDepth) {
+                compare(a, b, walker);
+                return;
+            }
+            ArrayList<CompareTask> forked = new ArrayList<CompareTask>(16);
+            for (int i = 0; i < 16; i++) {
+                ShaMapNode aChild = a.getBranch(i);
+                ShaMapNode bChild = b.getBranch(i);
+                if (aChild != null && bChild != null && aChild.isInner() && bChild.isInner()) {
+                    if (!aChild.hash().equals(bChild.hash())) {
+                        CompareTask task = new CompareTask(aChild.asInner(), bChild.asInner(),
+                                                           forkDepth, walker);
+                        task.fork();
+                        forked.add(task);
                     }
-                } else if (aleaf /*&& bInner*/) {
-                    ShaMapLeaf la = (ShaMapLeaf) aChild;
-                    ShaMapInner ib = (ShaMapInner) bChild;
-                    trackAdded(ib);
-
-                    if (ib.hasLeaf(la.index)) {
-                        // because trackAdded would have added it
-                        added.remove(la.index);
-                        ShaMapLeaf leaf = ib.getLeaf(la.index);
-                        if (!leaf.hash().equals(la.hash())) {
-                            modified.add(la.index);
+                } else {
+                    compareBranch(aChild, bChild, walker);
+                }
+            }
+            for (CompareTask task : forked) {
+                task.join();
+            }
+        }
+    }
+
+    private static void compare(ShaMapInner a, ShaMapInner b, DiffWalker walker) {
+        for (int i = 0; i < 16; i++) {
+            compareBranch(a.getBranch(i), b.getBranch(i), walker);
+        }
+    }
+
+    private static void compareBranch(ShaMapNode aChild, ShaMapNode bChild, final DiffWalker walker) {
+        if (aChild == null && bChild != null) {
+            trackAdded(bChild, walker);
+            // added in B
+        } else if (aChild != null && bChild == null) {
+            trackRemoved(aChild, walker);
+            // removed from B
+        } else if (aChild != null && !aChild.hash().equals(bChild.hash())) {
+            boolean aleaf  = aChild.isLeaf(),
+                    bLeaf  = bChild.isLeaf();
+
+            if (aleaf && bLeaf) {
+                ShaMapLeaf la = (ShaMapLeaf) aChild;
+                ShaMapLeaf lb = (ShaMapLeaf) bChild;
+                if (la.index.equals(lb.index)) {
+                    walker.onModified(la, lb);
+                } else {
+                    walker.onDeleted(la);
+                    walker.onAdded(lb);
+                }
+            } else if (aleaf /*&& bInner*/) {
+                final ShaMapLeaf la = (ShaMapLeaf) aChild;
+                final boolean[] found = {false};
+                bChild.walkAnyLeaves(new LeafWalker() {
+                    @Override
+                    public void onLeaf(ShaMapLeaf leaf) {
+                        if (leaf.index.equals(la.index)) {
+                            found[0] = true;
+                            if (!leaf.hash().equals(la.hash())) {
+                                walker.onModified(la, leaf);
+                            }
+                        } else {
+                            walker.onAdded(leaf);
                         }
-                    } else {
-                        deleted.add(la.index);
                     }
-                } else if (bLeaf /*&& aInner*/) {
-                    ShaMapLeaf lb = (ShaMapLeaf) bChild;
-                    ShaMapInner ia = (ShaMapInner) aChild;
-                    trackRemoved(ia);
-
-                    if (ia.hasLeaf(lb.index)) {
-                        // because trackRemoved would have deleted it
-                        deleted.remove(lb.index);
-                        ShaMapLeaf leaf = ia.getLeaf(lb.index);
-                        if (!leaf.hash().equals(lb.hash())) {
-                            modified.add(lb.index);
+                });
+                if (!found[0]) {
+                    walker.onDeleted(la);
+                }
+            } else if (bLeaf /*&& aInner*/) {
+                final ShaMapLeaf lb = (ShaMapLeaf) bChild;
+                final boolean[] found = {false};
+                aChild.walkAnyLeaves(new LeafWalker() {
+                    @Override
+                    public void onLeaf(ShaMapLeaf leaf) {
+                        if (leaf.index.equals(lb.index)) {
+                            found[0] = true;
+                            if (!leaf.hash().equals(lb.hash())) {
+                                walker.onModified(leaf, lb);
+                            }
+                        } else {
+                            walker.onDeleted(leaf);
                         }
-                    } else {
-                        added.add(lb.index);
                     }
-                } else /*if (aInner && bInner)*/ {
-                    compare((ShaMapInner) aChild, (ShaMapInner) bChild);
+                });
+                if (!found[0]) {
+                    walker.onAdded(lb);
                 }
+            } else /*if (aInner && bInner)*/ {
+                compare((ShaMapInner) aChild, (ShaMapInner) bChild, walker);
             }
         }
     }
-    private void trackRemoved(ShaMapNode child) {
+    private static void trackRemoved(ShaMapNode child, final DiffWalker walker) {
         child.walkAnyLeaves(new LeafWalker() {
             @Override
             public void onLeaf(ShaMapLeaf leaf) {
-                deleted.add(leaf.index);
+                walker.onDeleted(leaf);
             }
         });
     }
-    private void trackAdded(ShaMapNode child) {
+    private static void trackAdded(ShaMapNode child, final DiffWalker walker) {
         child.walkAnyLeaves(new LeafWalker() {
             @Override
             public void onLeaf(ShaMapLeaf leaf) {
-                added.add(leaf.index);
+                walker.onAdded(leaf);
             }
         });
     }
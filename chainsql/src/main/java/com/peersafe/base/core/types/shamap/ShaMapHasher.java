@@ -0,0 +1,53 @@
+package com.peersafe.base.core.types.shamap;
+
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recomputes the hashes of the dirty nodes under an inner, forking
+ * the dirty child inners into the pool while above `forkDepth`.
+ *
+ * Clean nodes keep their memoized hash and are never descended into.
+ */
+class ShaMapHasher extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final ShaMapInner inner;
+    private final int forkDepth;
+
+    ShaMapHasher(ShaMapInner inner, int forkDepth) {
+        this.inner = inner;
+        this.forkDepth = forkDepth;
+    }
+
+    @Override
+    protected void compute() {
+        if (inner.hash != null) {
+            return;
+        }
+        if (inner.depth >= forkDepth) {
+            inner.hash();
+            return;
+        }
+
+        ArrayList<ShaMapHasher> forked = new ArrayList<ShaMapHasher>(16);
+        for (ShaMapNode branch : inner.branches) {
+            if (branch != null && branch.hash == null && branch.isInner()) {
+                ShaMapHasher task = new ShaMapHasher(branch.asInner(), forkDepth);
+                task.fork();
+                forked.add(task);
+            }
+        }
+        // dirty leaves are hashed here while the subtrees are in flight
+        for (ShaMapNode branch : inner.branches) {
+            if (branch != null && branch.isLeaf()) {
+                branch.hash();
+            }
+        }
+        for (ShaMapHasher task : forked) {
+            task.join();
+        }
+        // every branch is clean now, so this only hashes the 16 child hashes
+        inner.hash();
+    }
+}
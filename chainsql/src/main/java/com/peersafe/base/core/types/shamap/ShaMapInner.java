@@ -6,8 +6,12 @@ import com.peersafe.base.core.coretypes.hash.prefixes.Prefix;
 import com.peersafe.base.core.serialized.BytesSink;
 
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 public class ShaMapInner extends ShaMapNode implements Iterable<ShaMapNode> {
+    // 16^2 = 256 subtrees is plenty to keep every core busy
+    public static final int DEFAULT_FORK_DEPTH = 2;
+
     public int depth;
     int slotBits = 0;
     int version = 0;
@@ -289,6 +293,31 @@ public class ShaMapInner extends ShaMapNode implements Iterable<ShaMapNode> {
         }
     }
 
+    /**
+     * Parallel variant of hash() using the common ForkJoinPool.
+     * @return the hash of this inner
+     */
+    public Hash256 parallelHash() {
+        return parallelHash(ForkJoinPool.commonPool(), DEFAULT_FORK_DEPTH);
+    }
+
+    /**
+     * Recomputes the hash of this inner, hashing dirty subtrees rooted
+     * above `forkDepth` concurrently in `pool`. Clean nodes keep their
+     * memoized hash, so after a batch of updates only the touched paths
+     * are rehashed.
+     *
+     * @param pool the pool to fork subtree hashing into
+     * @param forkDepth inners at or below this depth are hashed serially
+     * @return the hash of this inner
+     */
+    public Hash256 parallelHash(ForkJoinPool pool, int forkDepth) {
+        if (hash == null && !empty()) {
+            pool.invoke(new ShaMapHasher(this, forkDepth));
+        }
+        return hash();
+    }
+
     public ShaMapLeaf getLeafForUpdating(Hash256 leaf) {
         PathToIndex path = pathToIndex(leaf);
         if (path.hasMatchedLeaf()) {
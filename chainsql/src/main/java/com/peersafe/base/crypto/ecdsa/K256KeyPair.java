@@ -3,11 +3,8 @@ package com.peersafe.base.crypto.ecdsa;
 import com.peersafe.base.utils.HashUtils;
 import com.peersafe.base.utils.Sha512;
 import com.peersafe.base.utils.Utils;
-import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
 import org.bouncycastle.crypto.params.ECPublicKeyParameters;
-import org.bouncycastle.crypto.signers.ECDSASigner;
-import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
 import org.bouncycastle.math.ec.ECPoint;
 
 import java.math.BigInteger;
@@ -15,6 +12,7 @@ import java.math.BigInteger;
 public class K256KeyPair implements IKeyPair {
     BigInteger priv, pub;
     byte[] pubBytes;
+    private final ECPrivateKeyParameters privKey;
 
     // See https://wiki.ripple.com/Account_Family
     /**
@@ -57,7 +55,7 @@ public class K256KeyPair implements IKeyPair {
                                           int accountNumber) {
         ECPoint rootPubPoint = SECP256K1.curve().decodePoint(publicGenBytes);
         BigInteger scalar = generateKey(publicGenBytes, accountNumber);
-        ECPoint point = SECP256K1.basePoint().multiply(scalar);
+        ECPoint point = SECP256K1.basePointMultiply(scalar);
         ECPoint offset = rootPubPoint.add(point);
         return offset.getEncoded(true);
     }
@@ -117,6 +115,7 @@ public class K256KeyPair implements IKeyPair {
         this.priv = priv;
         this.pub = pub;
         this.pubBytes = pub.toByteArray();
+        this.privKey = K256Signer.privateKey(priv);
     }
 
     @Override
@@ -129,7 +128,7 @@ public class K256KeyPair implements IKeyPair {
     }
 
     public byte[] signHash(byte[] bytes) {
-        return signHash(bytes, priv);
+        return toCanonicalDER(K256Signer.sign(bytes, privKey));
     }
 
     @Override
@@ -160,38 +159,38 @@ public class K256KeyPair implements IKeyPair {
     }
 
     public static boolean verify(byte[] data, byte[] sigBytes, BigInteger pub) {
+        return verify(data, sigBytes, pub.toByteArray());
+    }
+
+    /**
+     * @param data hash that was signed.
+     * @param sigBytes DER signature.
+     * @param pubBytes public key.
+     * @return whether the signature is valid; false for a malformed key.
+     */
+    public static boolean verify(byte[] data, byte[] sigBytes, byte[] pubBytes) {
         ECDSASignature signature = ECDSASignature.decodeFromDER(sigBytes);
         if (signature == null) {
             return false;
         }
-        ECDSASigner signer = new ECDSASigner();
-        ECPoint pubPoint = SECP256K1.curve().decodePoint(pub.toByteArray());
-        ECPublicKeyParameters params = new ECPublicKeyParameters(pubPoint, SECP256K1.params());
-        signer.init(false, params);
-        return signer.verifySignature(data, signature.r, signature.s);
+        ECPublicKeyParameters key;
+        try {
+            key = K256Signer.publicKey(pubBytes);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return K256Signer.verify(data, signature, key);
     }
 
     public static byte[] signHash(byte[] bytes, BigInteger secret) {
-        ECDSASignature sig = createECDSASignature(bytes, secret);
+        return toCanonicalDER(K256Signer.sign(bytes, K256Signer.privateKey(secret)));
+    }
+
+    private static byte[] toCanonicalDER(ECDSASignature sig) {
         byte[] der = sig.encodeToDER();
         if (!ECDSASignature.isStrictlyCanonical(der)) {
             throw new IllegalStateException("Signature is not strictly canonical");
         }
         return der;
     }
-
-    private static ECDSASignature createECDSASignature(byte[] hash, BigInteger secret) {
-        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
-        ECPrivateKeyParameters privKey = new ECPrivateKeyParameters(secret, SECP256K1.params());
-        signer.init(true, privKey);
-        BigInteger[] sigs = signer.generateSignature(hash);
-        BigInteger r = sigs[0], s = sigs[1];
-
-        BigInteger otherS = SECP256K1.order().subtract(s);
-        if (s.compareTo(otherS) == 1) {
-            s = otherS;
-        }
-
-        return new ECDSASignature(r, s);
-    }
 }
@@ -0,0 +1,85 @@
+package com.peersafe.base.crypto.ecdsa;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deterministic (RFC 6979) ECDSA over secp256k1, giving low-S signatures.
+ *
+ * Each thread keeps one signer and its HMAC nonce generator, which are
+ * re-initialised per signature instead of being allocated. The base point
+ * multiplication uses the comb table SECP256K1 precomputes for the generator.
+ *
+ * Decoded public keys are cached. The wNAF tables built when verifying
+ * against a key are kept on its point, so repeated signers skip them.
+ */
+final class K256Signer {
+    private static final ThreadLocal<ECDSASigner> signers = new ThreadLocal<ECDSASigner>() {
+        @Override
+        protected ECDSASigner initialValue() {
+            return new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        }
+    };
+
+    private static final ThreadLocal<ECDSASigner> verifiers = new ThreadLocal<ECDSASigner>() {
+        @Override
+        protected ECDSASigner initialValue() {
+            return new ECDSASigner();
+        }
+    };
+
+    private static final int MAX_CACHED_KEYS = 4096;
+    private static final ConcurrentHashMap<ByteBuffer, ECPublicKeyParameters> publicKeys =
+            new ConcurrentHashMap<ByteBuffer, ECPublicKeyParameters>();
+
+    private K256Signer() {
+    }
+
+    static ECPrivateKeyParameters privateKey(BigInteger secret) {
+        return new ECPrivateKeyParameters(secret, SECP256K1.params());
+    }
+
+    /**
+     * @param encoded public key, compressed or not
+     * @return the decoded key, shared by every caller
+     */
+    static ECPublicKeyParameters publicKey(byte[] encoded) {
+        ByteBuffer key = ByteBuffer.wrap(encoded);
+        ECPublicKeyParameters params = publicKeys.get(key);
+        if (params == null) {
+            params = new ECPublicKeyParameters(SECP256K1.curve().decodePoint(encoded),
+                    SECP256K1.params());
+            if (publicKeys.size() < MAX_CACHED_KEYS) {
+                publicKeys.putIfAbsent(ByteBuffer.wrap(encoded.clone()), params);
+            }
+        }
+        return params;
+    }
+
+    static boolean verify(byte[] hash, ECDSASignature signature, ECPublicKeyParameters key) {
+        ECDSASigner verifier = verifiers.get();
+        verifier.init(false, key);
+        return verifier.verifySignature(hash, signature.r, signature.s);
+    }
+
+    static ECDSASignature sign(byte[] hash, ECPrivateKeyParameters key) {
+        ECDSASigner signer = signers.get();
+        signer.init(true, key);
+        BigInteger[] sigs = signer.generateSignature(hash);
+        BigInteger r = sigs[0], s = sigs[1];
+
+        BigInteger otherS = SECP256K1.order().subtract(s);
+        if (s.compareTo(otherS) == 1) {
+            s = otherS;
+        }
+
+        return new ECDSASignature(r, s);
+    }
+}
@@ -2,20 +2,30 @@ package com.peersafe.base.crypto.ecdsa;
 
 import org.bouncycastle.asn1.sec.SECNamedCurves;
 import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECMultiplier;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
 
 import java.math.BigInteger;
 
 public class SECP256K1 {
     private static final ECDomainParameters ecParams;
     private static final X9ECParameters params;
+    private static final ECMultiplier baseMultiplier = new FixedPointCombMultiplier();
 
     static {
-
-        params = SECNamedCurves.getByName("secp256k1");
+        // The custom curve has fixed width field arithmetic and the GLV
+        // endomorphism, the generic one works on BigIntegers.
+        X9ECParameters custom = CustomNamedCurves.getByName("secp256k1");
+        params = custom != null ? custom : SECNamedCurves.getByName("secp256k1");
         ecParams = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
+        // Build the generator's comb table up front, rather than on the first
+        // signature. It's cached on the point, which every multiplier shares.
+        FixedPointUtil.precompute(ecParams.getG(), 5);
     }
 
     public static ECDomainParameters params() {
@@ -35,8 +45,16 @@ public class SECP256K1 {
         return ecParams.getG();
     }
 
+    /**
+     * @param scalar scalar.
+     * @return scalar * G, using the precomputed comb table.
+     */
+    public static ECPoint basePointMultiply(BigInteger scalar) {
+        return baseMultiplier.multiply(basePoint(), scalar);
+    }
+
     static byte[] basePointMultipliedBy(BigInteger secret) {
-        return basePoint().multiply(secret).getEncoded(true);
+        return basePointMultiply(secret).getEncoded(true);
     }
 
 }
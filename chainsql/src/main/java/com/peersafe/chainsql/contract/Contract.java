@@ -9,7 +9,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import org.bouncycastle.util.encoders.Hex;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -139,9 +141,70 @@ public abstract class Contract extends Submit{
         });
     }
 
-    private JSONObject prepareCallParam(Function function) {
-    	String encodedFunction = FunctionEncoder.encode(function);
-        String data = encodedFunction.substring(2, encodedFunction.length());
+    /**
+     * Execute a constant function call that is already ABI encoded, as generated
+     * wrappers with static codecs do.
+     *
+     * @param data method id followed by the encoded parameters
+     * @return the raw return data
+     * @throws ContractCallException if the call fails or returns nothing
+     */
+    protected byte[] executeRawCall(byte[] data) throws ContractCallException {
+        JSONObject ret = this.chainsql.connection.client.contractCall(prepareCallParam(data));
+        return rawCallResult(ret);
+    }
+
+    /**
+     * Asynchronous {@link #executeRawCall(byte[])}.
+     *
+     * @param data method id followed by the encoded parameters
+     * @return the raw return data, or a {@link ContractCallException}
+     */
+    protected CompletableFuture<byte[]> executeRawCallAsync(byte[] data) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        this.chainsql.connection.client.contractCall(prepareCallParam(data), new Callback<JSONObject>() {
+
+            @Override
+            public void called(JSONObject ret) {
+                try {
+                    future.complete(rawCallResult(ret));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    static void checkCallResult(JSONObject ret) throws ContractCallException {
+        if (ret.has("error") && ret.has("error_message")) {
+            throw new ContractCallException(ret.getString("error"), ret.getString("error_message"));
+        } else if (ret.has("error")) {
+            throw new ContractCallException(ret.getString("error"));
+        }
+    }
+
+    static byte[] callResultBytes(JSONObject ret) {
+        String result = ret.getString("contract_call_result");
+        return Hex.decode(result.startsWith("0x") ? result.substring(2) : result);
+    }
+
+    // Raw calls are only made to functions with outputs, so 0x is never a valid result
+    private static byte[] rawCallResult(JSONObject ret) throws ContractCallException {
+        checkCallResult(ret);
+        byte[] result = callResultBytes(ret);
+        if (result.length == 0) {
+            throw new ContractCallException("Empty value (0x) returned from contract");
+        }
+        return result;
+    }
+
+    JSONObject prepareCallParam(Function function) {
+        return prepareCallParam(FunctionEncoder.encodeToBytes(function));
+    }
+
+    private JSONObject prepareCallParam(byte[] encoded) {
+    	String data = Hex.toHexString(encoded);
         JSONObject objTx = new JSONObject();
         objTx.put("account", chainsql.connection.address);
         objTx.put("contract_data", data);
@@ -242,6 +305,18 @@ public abstract class Contract extends Submit{
         return executeTransaction(FunctionEncoder.encode(function), dropValue, function.getName());
     }
 
+    /**
+     * Prepare a transaction from a call that is already ABI encoded.
+     *
+     * @param data method id followed by the encoded parameters
+     * @param dropValue value to send with the transaction
+     * @param funcName function name
+     * @return this
+     */
+    protected Contract executeTransaction(byte[] data, BigInteger dropValue, String funcName) {
+        return executeTransaction("0x" + Hex.toHexString(data), dropValue, funcName);
+    }
+
     /**
      * Given the duration required to execute a transaction.
      *
@@ -529,6 +604,38 @@ public abstract class Contract extends Submit{
     	});
     }
 
+    /**
+     * Subscribe to an event, handing over the undecoded log.
+     * See {@link #eventTopics(JSONObject)} and {@link #eventData(JSONObject)}.
+     *
+     * @param event event to subscribe to
+     * @param cb called with each log of the event
+     */
+    protected void onLog(Event event, Callback<JSONObject> cb) {
+        this.eventManager.subscribeContract(contractAddress, event, cb);
+    }
+
+    /**
+     * @param log a log passed to {@link #onLog(Event, Callback)}
+     * @return its topics, the event signature first
+     */
+    protected static byte[][] eventTopics(JSONObject log) {
+        JSONArray arr = log.getJSONArray("ContractEventTopics");
+        byte[][] topics = new byte[arr.length()][];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = Hex.decode(arr.getString(i));
+        }
+        return topics;
+    }
+
+    /**
+     * @param log a log passed to {@link #onLog(Event, Callback)}
+     * @return its non indexed data
+     */
+    protected static byte[] eventData(JSONObject log) {
+        return Hex.decode(log.getString("ContractEventInfo"));
+    }
+
     /**
      * Subclasses should implement this method to return pre-existing addresses for deployed
      * contracts.
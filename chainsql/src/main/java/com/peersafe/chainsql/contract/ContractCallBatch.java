@@ -0,0 +1,272 @@
+package com.peersafe.chainsql.contract;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+import com.peersafe.abi.FunctionReturnDecoder;
+import com.peersafe.abi.datatypes.Function;
+import com.peersafe.abi.datatypes.Type;
+import com.peersafe.base.client.Client;
+import com.peersafe.base.client.pubsub.Publisher.Callback;
+import com.peersafe.chainsql.contract.exception.ContractCallException;
+
+/**
+ * Runs many constant function calls, on any number of contracts, as one batch.
+ *
+ * At most `maxInFlight` contract_call requests are pipelined over the
+ * connections at a time. Each response is decoded on a worker pool as it
+ * arrives, and the results come back in the order the calls were added,
+ * each holding either its values or its error. Calls unanswered when the
+ * timeout passes fail, and responses arriving after that are dropped.
+ */
+public class ContractCallBatch {
+    public static class Result {
+        public final Contract contract;
+        public final Function function;
+        private List<Type> values;
+        private ContractCallException error;
+
+        Result(Contract contract, Function function) {
+            this.contract = contract;
+            this.function = function;
+        }
+
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        /**
+         * @return the values returned by the function
+         * @throws ContractCallException the error of this call, if it failed
+         */
+        public List<Type> getValues() throws ContractCallException {
+            if (error != null) {
+                throw error;
+            }
+            return values;
+        }
+
+        public ContractCallException getError() {
+            return error;
+        }
+    }
+
+    private final ArrayList<Result> results = new ArrayList<Result>();
+
+    private ExecutorService decoders;
+    private boolean ownDecoders = false;
+    private int maxInFlight = 32;
+    private long timeoutMillis = 60000;
+
+    private CountDownLatch finished;
+    private Callback<List<Result>> onDone;
+    private int nextRequest;
+    private int inFlight;
+    private int remaining;
+    private boolean done;
+
+    public ContractCallBatch add(Contract contract, Function function) {
+        if (finished != null) {
+            throw new IllegalStateException("Batch already executed");
+        }
+        results.add(new Result(contract, function));
+        return this;
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Most calls waiting on a response at once.
+     * @param n calls, at least 1.
+     * @return this.
+     */
+    public ContractCallBatch maxInFlight(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        maxInFlight = n;
+        return this;
+    }
+
+    /**
+     * Pool to decode results on, defaults to one thread per core.
+     * @param executor executor.
+     * @return this.
+     */
+    public ContractCallBatch decodeOn(ExecutorService executor) {
+        decoders = executor;
+        return this;
+    }
+
+    /**
+     * How long the batch runs; calls still unanswered then fail.
+     * @param millis timeout.
+     * @return this.
+     */
+    public ContractCallBatch timeout(long millis) {
+        timeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Run every call and wait for the results.
+     * @return one result per call, in the order added.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public List<Result> execute() throws InterruptedException {
+        start(null);
+        if (!finished.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            finish("Timeout waiting for contract_call");
+        }
+        return results;
+    }
+
+    /**
+     * Run every call in the background.
+     * @param cb called with one result per call, in the order added, at the
+     *           latest once the timeout has passed.
+     */
+    public void execute(Callback<List<Result>> cb) {
+        start(cb);
+        if (!results.isEmpty()) {
+            Client client = results.get(0).contract.getChainsql().connection.client;
+            client.schedule(timeoutMillis, new Runnable() {
+                @Override
+                public void run() {
+                    finish("Timeout waiting for contract_call");
+                }
+            });
+        }
+    }
+
+    private void start(Callback<List<Result>> cb) {
+        synchronized (this) {
+            if (finished != null) {
+                throw new IllegalStateException("Batch already executed");
+            }
+            finished = new CountDownLatch(1);
+            onDone = cb;
+            remaining = results.size();
+        }
+        if (results.isEmpty()) {
+            finish(null);
+            return;
+        }
+        if (decoders == null) {
+            decoders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            ownDecoders = true;
+        }
+        requestMore();
+    }
+
+    private void requestMore() {
+        while (true) {
+            Result result;
+            synchronized (this) {
+                if (done || nextRequest == results.size() || inFlight >= maxInFlight) {
+                    return;
+                }
+                inFlight++;
+                result = results.get(nextRequest++);
+            }
+            request(result);
+        }
+    }
+
+    private void request(final Result result) {
+        JSONObject objTx;
+        try {
+            objTx = result.contract.prepareCallParam(result.function);
+        } catch (Exception e) {
+            synchronized (this) {
+                inFlight--;
+            }
+            completed(result, null, e);
+            return;
+        }
+        result.contract.getChainsql().connection.client.contractCall(objTx, new Callback<JSONObject>() {
+
+            @Override
+            public void called(final JSONObject ret) {
+                synchronized (ContractCallBatch.this) {
+                    if (done) {
+                        // timed out, its slot is already released
+                        return;
+                    }
+                    inFlight--;
+                }
+                requestMore();
+                try {
+                    decoders.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                Contract.checkCallResult(ret);
+                                completed(result, FunctionReturnDecoder.decode(
+                                        Contract.callResultBytes(ret),
+                                        result.function.getOutputParameters()), null);
+                            } catch (Exception e) {
+                                completed(result, null, e);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // finished in the meantime
+                }
+            }
+        });
+    }
+
+    private void completed(Result result, List<Type> values, Exception e) {
+        boolean last;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            result.values = values;
+            if (e instanceof ContractCallException) {
+                result.error = (ContractCallException) e;
+            } else if (e != null) {
+                result.error = new ContractCallException(
+                        "Couldn't decode " + result.function.getName() + ": " + e, e);
+            }
+            last = --remaining == 0;
+        }
+        if (last) {
+            finish(null);
+        }
+    }
+
+    private void finish(String error) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            inFlight = 0;
+            if (error != null) {
+                for (Result result : results) {
+                    if (result.values == null && result.error == null) {
+                        result.error = new ContractCallException(error);
+                    }
+                }
+            }
+        }
+        if (ownDecoders) {
+            decoders.shutdown();
+        }
+        finished.countDown();
+        if (onDone != null) {
+            onDone.called(results);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.peersafe.chainsql.contract;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.peersafe.abi.EventEncoder;
+import com.peersafe.abi.WordCodec;
+import com.peersafe.abi.datatypes.Event;
+import com.peersafe.base.client.Client;
+import com.peersafe.base.client.Client.OnConnected;
+import com.peersafe.base.client.Client.OnLedgerClosed;
+import com.peersafe.base.client.pubsub.Publisher.Callback;
+import com.peersafe.base.client.requests.Request;
+import com.peersafe.base.client.responses.Response;
+import com.peersafe.base.client.subscriptions.ServerInfo;
+import com.peersafe.base.client.transactions.AccountTxPager;
+import com.peersafe.base.core.coretypes.AccountID;
+import com.peersafe.chainsql.core.Chainsql;
+
+/**
+ * Keeps a {@link ContractEventStore} up to date with the logs of a contract.
+ *
+ * On start the logs after the store's last mark are backfilled from the
+ * metadata of the contract's transactions, paging account_tx forward. Live
+ * events then trigger an incremental catch-up from the last mark, as do
+ * reconnects, skipped ledger closes, and ledger closes while live events
+ * are still missing from the store (every ledger close when no events are
+ * tracked). The stream carries no ledger sequence,
+ * so logs are only ever written from validated transactions, in ledger
+ * order, and nothing is lost across reconnects.
+ *
+ * Nor does it carry the transaction hash, so a live event is matched by its
+ * topics and data to the log it was indexed as, identified by transaction
+ * hash and log index, and each indexed log accounts for one live event at
+ * most. Live events that match no log within {@link #LIVE_GRACE_LEDGERS}
+ * ledgers, from transactions that never made it into a validated ledger,
+ * are given up on.
+ *
+ * Logs are matched on topic0 against the precomputed topics of the tracked
+ * events; with no events tracked every log of the contract is kept.
+ */
+public class ContractEventIndexer {
+    public interface OnLog {
+        /**
+         * Called for each log written to the store, in ledger order.
+         * @param event the tracked event it matched, null if none are tracked
+         * @param log the log
+         */
+        void onLog(Event event, ContractEventStore.Log log);
+    }
+
+    public interface OnError {
+        /**
+         * Called when a catch-up fails; the next trigger retries it.
+         * @param error what went wrong
+         */
+        void onError(String error);
+    }
+
+    // where the node puts the logs of a contract transaction in its metadata
+    static final String LOGS = "ContractLogs";
+    static final String DATA = "ContractEventInfo";
+    static final String ADDRESS = "ContractAddress";
+
+    static final int LIVE_GRACE_LEDGERS = 20;
+    // indexed logs kept for live events that arrive after them
+    private static final int MAX_UNCLAIMED = 256;
+
+    // the topics and data of a log, and the ledger it is from or was live in
+    private static final class LogContent {
+        final String content;
+        long ledger;
+
+        LogContent(String content, long ledger) {
+            this.content = content;
+            this.ledger = ledger;
+        }
+    }
+
+    private final Chainsql chainsql;
+    private final Client client;
+    private final String address;
+    private final ContractEventStore store;
+    private final HashMap<ByteBuffer, Event> events = new HashMap<ByteBuffer, Event>();
+    // live events not indexed yet, in arrival order
+    private final ArrayList<LogContent> pendingLive = new ArrayList<LogContent>();
+    // by tx hash and log index, recently indexed logs no live event has matched
+    private final LinkedHashMap<String, LogContent> unclaimed =
+            new LinkedHashMap<String, LogContent>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LogContent> eldest) {
+                    return size() > MAX_UNCLAIMED;
+                }
+            };
+
+    private OnLog onLog;
+    private OnError onError;
+    private int pageSize = 200;
+
+    private AccountTxPager pager;
+    private boolean started = false;
+    private boolean catchingUp = false;
+    private boolean again = false;
+    private long lastClosed = 0;
+
+    private final OnLedgerClosed ledgerClosed = new OnLedgerClosed() {
+        @Override
+        public void called(ServerInfo serverInfo) {
+            onLedgerClosed(serverInfo.ledger_index);
+        }
+    };
+
+    private final OnConnected connected = new OnConnected() {
+        @Override
+        public void called(Client c) {
+            catchUp();
+        }
+    };
+
+    private final Callback<JSONObject> live = new Callback<JSONObject>() {
+        @Override
+        public void called(JSONObject log) {
+            if (onLive(log)) {
+                catchUp();
+            }
+        }
+    };
+
+    /**
+     * @param chainsql Chainsql.
+     * @param address contract address.
+     * @param store where the logs go.
+     */
+    public ContractEventIndexer(Chainsql chainsql, String address, ContractEventStore store) {
+        this.chainsql = chainsql;
+        this.client = chainsql.connection.client;
+        this.address = address;
+        this.store = store;
+    }
+
+    /**
+     * Index an event. Call before start().
+     * @param event event.
+     * @return this.
+     */
+    public ContractEventIndexer track(Event event) {
+        if (started) {
+            throw new IllegalStateException("Indexer already started");
+        }
+        events.put(ByteBuffer.wrap(WordCodec.selector(EventEncoder.encode(event))), event);
+        return this;
+    }
+
+    public ContractEventIndexer onLog(OnLog cb) {
+        onLog = cb;
+        return this;
+    }
+
+    public ContractEventIndexer onError(OnError cb) {
+        onError = cb;
+        return this;
+    }
+
+    /**
+     * Transactions per account_tx page.
+     * @param n transactions.
+     * @return this.
+     */
+    public ContractEventIndexer pageSize(int n) {
+        pageSize = n;
+        return this;
+    }
+
+    public ContractEventStore store() {
+        return store;
+    }
+
+    /**
+     * Backfill from the store's last mark, then follow the live stream.
+     */
+    public void start() {
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("Indexer already started");
+            }
+            started = true;
+        }
+        for (Event event : events.values()) {
+            chainsql.eventManager().subscribeContract(address, event, live);
+        }
+        client.onLedgerClosed(ledgerClosed);
+        client.onConnected(connected);
+        catchUp();
+    }
+
+    /**
+     * Stop following the contract. The store stays open.
+     */
+    public void stop() {
+        AccountTxPager running;
+        synchronized (this) {
+            started = false;
+            running = pager;
+            pager = null;
+            catchingUp = false;
+            pendingLive.clear();
+            unclaimed.clear();
+        }
+        if (running != null) {
+            running.abort();
+        }
+        for (Event event : events.values()) {
+            chainsql.eventManager().unsubscribeContract(address, event);
+        }
+        client.removeListener(OnLedgerClosed.class, ledgerClosed);
+        client.removeListener(OnConnected.class, connected);
+    }
+
+    /**
+     * Fetch the contract's transactions after the store's last mark and
+     * index their logs. Runs once at a time; a call while one runs makes it
+     * go again when done.
+     */
+    public void catchUp() {
+        final AccountTxPager next;
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            if (catchingUp) {
+                again = true;
+                return;
+            }
+            catchingUp = true;
+            again = false;
+            next = new AccountTxPager(client, AccountID.fromString(address), null,
+                    store.indexedThrough() + 1)
+                    .forward(true)
+                    .binary(false)
+                    .pageSize(pageSize)
+                    .maxRetriesPerPage(3);
+            pager = next;
+        }
+        next.onPage(new AccountTxPager.OnPage() {
+            @Override
+            public void onPage(AccountTxPager.Page page) {
+                try {
+                    JSONArray transactions = page.transactionsJSON();
+                    for (int i = 0; i < transactions.length(); i++) {
+                        index(transactions.getJSONObject(i));
+                    }
+                    if (page.hasNext()) {
+                        page.requestNext();
+                        return;
+                    }
+                    store.mark(page.ledgerMax());
+                    store.sync();
+                    caughtUp(next, null);
+                } catch (Exception e) {
+                    caughtUp(next, "Couldn't index logs of " + address + ": " + e);
+                }
+            }
+        }).onError(new Request.OnError() {
+            @Override
+            public void called(Response response) {
+                caughtUp(next, "account_tx failed: " + response.error_message);
+            }
+        });
+        next.request();
+    }
+
+    private void caughtUp(AccountTxPager done, String error) {
+        boolean rerun;
+        synchronized (this) {
+            if (pager != done) {
+                return;
+            }
+            pager = null;
+            catchingUp = false;
+            rerun = again && error == null;
+            if (error == null) {
+                again = false;
+            }
+        }
+        if (error != null && onError != null) {
+            onError.onError(error);
+        }
+        if (rerun) {
+            catchUp();
+        }
+    }
+
+    private void onLedgerClosed(long ledger) {
+        boolean gap;
+        synchronized (this) {
+            expire(pendingLive.iterator(), ledger);
+            expire(unclaimed.values().iterator(), ledger);
+            // with no events to subscribe to, every ledger may hold new logs
+            gap = events.isEmpty() || !pendingLive.isEmpty() ||
+                    (lastClosed != 0 && ledger > lastClosed + 1);
+            lastClosed = ledger;
+        }
+        if (gap) {
+            catchUp();
+        }
+    }
+
+    private static void expire(Iterator<LogContent> logs, long ledger) {
+        while (logs.hasNext()) {
+            LogContent log = logs.next();
+            if (log.ledger == 0) {
+                // live before the first ledger close
+                log.ledger = ledger;
+            } else if (log.ledger + LIVE_GRACE_LEDGERS < ledger) {
+                logs.remove();
+            }
+        }
+    }
+
+    /**
+     * @return whether the live event is still missing from the store
+     */
+    private synchronized boolean onLive(JSONObject log) {
+        byte[] data = log.has(DATA) ? Hex.decode(log.getString(DATA)) : new byte[0];
+        String content = content(Contract.eventTopics(log), data);
+        Iterator<LogContent> it = unclaimed.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().content.equals(content)) {
+                it.remove();
+                return false;
+            }
+        }
+        pendingLive.add(new LogContent(content, lastClosed));
+        return true;
+    }
+
+    /**
+     * Match an indexed log to the live event it accounts for, or keep it for
+     * one that has yet to arrive.
+     */
+    private synchronized void claim(String txHash, int logIndex, long ledger, String content) {
+        for (int i = 0; i < pendingLive.size(); i++) {
+            if (pendingLive.get(i).content.equals(content)) {
+                pendingLive.remove(i);
+                return;
+            }
+        }
+        unclaimed.put(txHash + "/" + logIndex, new LogContent(content, ledger));
+    }
+
+    private static String content(byte[][] topics, byte[] data) {
+        StringBuilder sb = new StringBuilder();
+        for (byte[] topic : topics) {
+            sb.append(Hex.toHexString(topic)).append('/');
+        }
+        return sb.append(Hex.toHexString(data)).toString();
+    }
+
+    private void index(JSONObject entry) throws IOException {
+        JSONObject tx = entry.getJSONObject("tx");
+        JSONObject meta = entry.optJSONObject("meta");
+        if (meta == null || !meta.has(LOGS) || !entry.optBoolean("validated", true)) {
+            return;
+        }
+        long ledger = tx.getLong("ledger_index");
+        int txIndex = meta.optInt("TransactionIndex");
+        JSONArray logs = meta.getJSONArray(LOGS);
+        for (int i = 0; i < logs.length(); i++) {
+            JSONObject log = logs.getJSONObject(i);
+            if (!address.equals(log.optString(ADDRESS, address))) {
+                continue;
+            }
+            // already there from a catch-up that failed part way
+            if (!store.isAfterLast(ledger, txIndex, i)) {
+                continue;
+            }
+            byte[][] topics = Contract.eventTopics(log);
+            Event event = null;
+            if (!events.isEmpty()) {
+                if (topics.length == 0) {
+                    continue;
+                }
+                event = events.get(ByteBuffer.wrap(topics[0]));
+                if (event == null) {
+                    continue;
+                }
+            }
+            byte[] data = log.has(DATA) ? Hex.decode(log.getString(DATA)) : new byte[0];
+            String hash = tx.optString("hash", null);
+            store.append(ledger, txIndex, i, hash, address, topics, data);
+            if (event != null) {
+                claim(hash, i, ledger, content(topics, data));
+            }
+            if (onLog != null) {
+                onLog.onLog(event, new ContractEventStore.Log(ledger, txIndex, i,
+                        hash, address, topics, data));
+            }
+        }
+    }
+}
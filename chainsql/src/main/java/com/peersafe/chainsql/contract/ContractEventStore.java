@@ -0,0 +1,471 @@
+package com.peersafe.chainsql.contract;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.bouncycastle.util.encoders.Hex;
+
+import com.peersafe.abi.EventValues;
+import com.peersafe.abi.FunctionReturnDecoder;
+import com.peersafe.abi.TypeReference;
+import com.peersafe.abi.WordCodec;
+import com.peersafe.abi.datatypes.Event;
+import com.peersafe.abi.datatypes.Type;
+import com.peersafe.base.core.coretypes.AccountID;
+
+/**
+ * Append-only file of contract logs, indexed by (address, topic0, ledger).
+ *
+ * The file is laid out as
+ *
+ *     [magic][version]
+ *     [record]*         [length][crc32][payload]
+ *
+ * A record is either a log or a mark, which says every log up to and
+ * including its ledger has been written. Logs are appended in ledger order.
+ * The index lives in memory and is rebuilt by scanning the file on open;
+ * a torn record at the end, e.g. the writer died, is cut off.
+ */
+public class ContractEventStore implements Closeable {
+
+    /**
+     * A log as stored, decode it with {@link #decode(Event)}.
+     */
+    public static class Log {
+        public final long ledger;
+        public final int txIndex;
+        public final int logIndex;
+        public final String txHash;
+        public final String address;
+        private final byte[][] topics;
+        private final byte[] data;
+
+        Log(long ledger, int txIndex, int logIndex, String txHash, String address,
+            byte[][] topics, byte[] data) {
+            this.ledger = ledger;
+            this.txIndex = txIndex;
+            this.logIndex = logIndex;
+            this.txHash = txHash;
+            this.address = address;
+            this.topics = topics;
+            this.data = data;
+        }
+
+        /**
+         * @return the topics, the event signature first
+         */
+        public byte[][] getTopics() {
+            return topics;
+        }
+
+        /**
+         * @return the non indexed data
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * @param event event this log was emitted for
+         * @return its values
+         */
+        public EventValues decode(Event event) {
+            List<TypeReference<Type>> indexed = event.getIndexedParameters();
+            List<Type> indexedValues = new ArrayList<>(indexed.size());
+            for (int i = 0; i < indexed.size(); i++) {
+                indexedValues.add(FunctionReturnDecoder.decodeIndexedValue(
+                        topics[i + 1], indexed.get(i)));
+            }
+            return new EventValues(indexedValues,
+                    FunctionReturnDecoder.decode(data, event.getNonIndexedParameters()));
+        }
+    }
+
+    static final int MAGIC = 0x4353454C; // CSEL
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    // length, crc32 of the payload
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte LOG = 1;
+    private static final byte MARK = 2;
+
+    private static final int ADDRESS_SIZE = 20;
+    private static final int TOPIC_SIZE = WordCodec.WORD;
+    private static final int HASH_SIZE = 32;
+    // kind, ledger, tx index, log index, address, tx hash, topic count
+    private static final int LOG_HEAD_SIZE = 1 + 4 + 4 + 4 + ADDRESS_SIZE + HASH_SIZE + 1;
+    private static final byte[] NO_TOPIC = new byte[TOPIC_SIZE];
+
+    /**
+     * Record offsets of one (address, topic0), in ledger order.
+     */
+    static class Postings {
+        int size = 0;
+        int[] ledgers = new int[16];
+        long[] offsets = new long[16];
+
+        void add(long ledger, long offset) {
+            if (size == ledgers.length) {
+                ledgers = Arrays.copyOf(ledgers, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ledgers[size] = (int) ledger;
+            offsets[size++] = offset;
+        }
+
+        long ledger(int i) {
+            return ledgers[i] & 0xFFFFFFFFL;
+        }
+
+        /**
+         * @return the position of the first log at or after ledger
+         */
+        int ceiling(long ledger) {
+            return search(ledger, false);
+        }
+
+        /**
+         * @return the position of the first log after ledger
+         */
+        int higher(long ledger) {
+            return search(ledger, true);
+        }
+
+        private int search(long ledger, boolean inclusive) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                long at = ledger(mid);
+                if (at < ledger || (inclusive && at == ledger)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final HashMap<ByteBuffer, Postings> index = new HashMap<ByteBuffer, Postings>();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    private long end = FILE_HEADER_SIZE;
+    private long lastLedger = 0;
+    private int lastTxIndex = -1;
+    private int lastLogIndex = -1;
+    private long indexedThrough = 0;
+    private int logs = 0;
+
+    private ContractEventStore(File file) throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer head = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                head.putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(head, 0);
+            }
+            scan();
+            channel.truncate(end);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create or reopen a store.
+     * @param file store file.
+     * @return ContractEventStore.
+     * @throws IOException if the file isn't a contract event store.
+     */
+    public static ContractEventStore open(File file) throws IOException {
+        return new ContractEventStore(file);
+    }
+
+    /**
+     * Append a log. Logs must come in (ledger, txIndex, logIndex) order,
+     * after the last mark.
+     * @param ledger ledger sequence.
+     * @param txIndex index of the transaction in its ledger.
+     * @param logIndex index of the log in its transaction.
+     * @param txHash transaction hash, as hex.
+     * @param address contract address.
+     * @param topics the topics, the event signature first.
+     * @param data the non indexed data.
+     * @throws IOException on write failure.
+     */
+    public synchronized void append(long ledger, int txIndex, int logIndex, String txHash,
+                                    String address, byte[][] topics, byte[] data)
+            throws IOException {
+        if (!isAfterLast(ledger, txIndex, logIndex)) {
+            throw new IllegalArgumentException("Log " + ledger + "/" + txIndex + "/" + logIndex +
+                    " must come after " + lastLedger + "/" + lastTxIndex + "/" + lastLogIndex +
+                    " and ledger " + indexedThrough);
+        }
+        byte[] account = AccountID.fromString(address).toBytes();
+        ByteBuffer payload = ByteBuffer.allocate(
+                LOG_HEAD_SIZE + topics.length * TOPIC_SIZE + data.length);
+        payload.put(LOG)
+               .putInt((int) ledger)
+               .putInt(txIndex)
+               .putInt(logIndex)
+               .put(account)
+               .put(hashBytes(txHash))
+               .put((byte) topics.length);
+        for (byte[] topic : topics) {
+            payload.put(topic);
+        }
+        payload.put(data);
+
+        long at = end;
+        writeRecord(payload);
+        postings(account, topics.length == 0 ? NO_TOPIC : topics[0]).add(ledger, at);
+        setLast(ledger, txIndex, logIndex);
+    }
+
+    /**
+     * Record that every log up to and including a ledger has been appended.
+     * @param ledger ledger sequence.
+     * @throws IOException on write failure.
+     */
+    public synchronized void mark(long ledger) throws IOException {
+        if (ledger <= indexedThrough) {
+            return;
+        }
+        if (ledger < lastLedger) {
+            throw new IllegalArgumentException("Ledger " + ledger +
+                    " is before the last log, " + lastLedger);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(5);
+        payload.put(MARK).putInt((int) ledger);
+        writeRecord(payload);
+        indexedThrough = ledger;
+    }
+
+    /**
+     * @param ledger ledger sequence.
+     * @param txIndex index of the transaction in its ledger.
+     * @param logIndex index of the log in its transaction.
+     * @return whether a log at this position may be appended.
+     */
+    public synchronized boolean isAfterLast(long ledger, int txIndex, int logIndex) {
+        if (ledger <= indexedThrough || ledger != lastLedger) {
+            return ledger > indexedThrough && ledger > lastLedger;
+        }
+        return txIndex > lastTxIndex || (txIndex == lastTxIndex && logIndex > lastLogIndex);
+    }
+
+    /**
+     * @return the last ledger whose logs are all in the store, 0 if none.
+     */
+    public synchronized long indexedThrough() {
+        return indexedThrough;
+    }
+
+    /**
+     * @return number of logs in the store.
+     */
+    public synchronized int size() {
+        return logs;
+    }
+
+    /**
+     * The logs of one event of a contract in [from, to], in ledger order.
+     * @param address contract address.
+     * @param topic0 event signature hash, see {@link com.peersafe.abi.EventEncoder}.
+     * @param from first ledger, inclusive.
+     * @param to last ledger, inclusive.
+     * @return logs.
+     * @throws IOException on read failure.
+     */
+    public List<Log> query(String address, String topic0, long from, long to) throws IOException {
+        return query(address, WordCodec.selector(topic0), from, to);
+    }
+
+    /**
+     * See {@link #query(String, String, long, long)}.
+     * @param address contract address.
+     * @param topic0 event signature hash.
+     * @param from first ledger, inclusive.
+     * @param to last ledger, inclusive.
+     * @return logs.
+     * @throws IOException on read failure.
+     */
+    public List<Log> query(String address, byte[] topic0, long from, long to) throws IOException {
+        int first, last;
+        long[] offsets;
+        synchronized (this) {
+            Postings postings = index.get(key(AccountID.fromString(address).toBytes(), topic0));
+            if (postings == null) {
+                return new ArrayList<Log>();
+            }
+            first = postings.ceiling(from);
+            // inclusive, as to + 1 would overflow for Long.MAX_VALUE
+            last = Math.max(first, postings.higher(to));
+            offsets = Arrays.copyOfRange(postings.offsets, first, last);
+        }
+        List<Log> result = new ArrayList<Log>(offsets.length);
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        for (long at : offsets) {
+            head.clear();
+            readFully(head, at);
+            ByteBuffer payload = ByteBuffer.allocate(head.getInt(0));
+            readFully(payload, at + RECORD_HEADER_SIZE);
+            payload.flip();
+            result.add(readLog(payload));
+        }
+        return result;
+    }
+
+    /**
+     * Force written records to disk.
+     * @throws IOException on failure.
+     */
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(true);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void writeRecord(ByteBuffer payload) throws IOException {
+        byte[] bytes = payload.array();
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        recordHeader.clear();
+        recordHeader.putInt(bytes.length).putInt((int) crc.getValue()).flip();
+        writeFully(recordHeader, end);
+        writeFully(ByteBuffer.wrap(bytes), end + RECORD_HEADER_SIZE);
+        end += RECORD_HEADER_SIZE + bytes.length;
+    }
+
+    private void scan() throws IOException {
+        long length = channel.size();
+        ByteBuffer head = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        readFully(head, 0);
+        if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) {
+            throw new IOException("Not a contract event store");
+        }
+        long at = FILE_HEADER_SIZE;
+        ByteBuffer recordHead = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (at + RECORD_HEADER_SIZE <= length) {
+            recordHead.clear();
+            readFully(recordHead, at);
+            int size = recordHead.getInt(0);
+            if (size <= 0 || at + RECORD_HEADER_SIZE + size > length) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(size);
+            readFully(payload, at + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, size);
+            if ((int) crc.getValue() != recordHead.getInt(4)) {
+                break;
+            }
+            long ledger = payload.getInt(1) & 0xFFFFFFFFL;
+            if (payload.get(0) == MARK) {
+                indexedThrough = Math.max(indexedThrough, ledger);
+            } else {
+                byte[] account = new byte[ADDRESS_SIZE];
+                byte[] topic0 = NO_TOPIC;
+                payload.position(13);
+                payload.get(account);
+                payload.position(LOG_HEAD_SIZE - 1);
+                if (payload.get() > 0) {
+                    topic0 = new byte[TOPIC_SIZE];
+                    payload.get(topic0);
+                }
+                postings(account, topic0).add(ledger, at);
+                setLast(ledger, payload.getInt(5), payload.getInt(9));
+            }
+            at += RECORD_HEADER_SIZE + size;
+        }
+        end = at;
+    }
+
+    private void setLast(long ledger, int txIndex, int logIndex) {
+        lastLedger = ledger;
+        lastTxIndex = txIndex;
+        lastLogIndex = logIndex;
+        logs++;
+    }
+
+    private static Log readLog(ByteBuffer payload) {
+        payload.get();
+        long ledger = payload.getInt() & 0xFFFFFFFFL;
+        int txIndex = payload.getInt();
+        int logIndex = payload.getInt();
+        byte[] account = new byte[ADDRESS_SIZE];
+        payload.get(account);
+        byte[] hash = new byte[HASH_SIZE];
+        payload.get(hash);
+        byte[][] topics = new byte[payload.get() & 0xFF][TOPIC_SIZE];
+        for (byte[] topic : topics) {
+            payload.get(topic);
+        }
+        byte[] data = new byte[payload.remaining()];
+        payload.get(data);
+        return new Log(ledger, txIndex, logIndex, Hex.toHexString(hash).toUpperCase(),
+                AccountID.fromBytes(account).address, topics, data);
+    }
+
+    private Postings postings(byte[] account, byte[] topic0) {
+        ByteBuffer key = key(account, topic0);
+        Postings postings = index.get(key);
+        if (postings == null) {
+            postings = new Postings();
+            index.put(key, postings);
+        }
+        return postings;
+    }
+
+    private static ByteBuffer key(byte[] account, byte[] topic0) {
+        ByteBuffer key = ByteBuffer.allocate(ADDRESS_SIZE + TOPIC_SIZE);
+        key.put(account).put(topic0).flip();
+        return key;
+    }
+
+    private static byte[] hashBytes(String txHash) {
+        byte[] hash = new byte[HASH_SIZE];
+        if (txHash != null) {
+            byte[] raw = Hex.decode(txHash);
+            System.arraycopy(raw, 0, hash, 0, Math.min(raw.length, HASH_SIZE));
+        }
+        return hash;
+    }
+
+    private void readFully(ByteBuffer buf, long at) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, at);
+            if (n < 0) {
+                throw new IOException("Unexpected end of store");
+            }
+            at += n;
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long at) throws IOException {
+        while (buf.hasRemaining()) {
+            at += channel.write(buf, at);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.peersafe.chainsql.core;
 import static com.peersafe.base.config.Config.getB58IdentiferCodecs;
 
 import java.math.BigInteger;
-import java.security.Security;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -12,13 +11,13 @@ import java.util.logging.Logger;
 
 import org.bouncycastle.crypto.digests.RIPEMD160Digest;
 import org.bouncycastle.crypto.digests.SHA256Digest;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.peersafe.base.client.Client;
 import com.peersafe.base.client.Client.OnReconnected;
 import com.peersafe.base.client.Client.OnReconnecting;
+import com.peersafe.base.client.ledger.LedgerTxExporter;
 import com.peersafe.base.client.pubsub.Publisher.Callback;
 import com.peersafe.base.client.requests.Request;
 import com.peersafe.base.config.Config;
@@ -38,6 +37,7 @@ import com.peersafe.chainsql.crypto.EncryptCommon;
 import com.peersafe.chainsql.manager.EventManager;
 import com.peersafe.chainsql.net.Connection;
 import com.peersafe.chainsql.resources.Constant;
+import com.peersafe.chainsql.util.FeeCalculator;
 import com.peersafe.chainsql.util.GenericPair;
 import com.peersafe.chainsql.util.Util;
 import com.peersafe.chainsql.util.Validate;
@@ -392,7 +392,7 @@ public class Chainsql extends Submit {
 	private void checkFee(Transaction transaction,JSONObject tx_json){
 		if(!tx_json.has("Fee")){
 			if(connection != null && connection.client != null && connection.client.serverInfo != null){
-				Amount fee = connection.client.serverInfo.transactionFee(transaction);
+				Amount fee = FeeCalculator.fee(connection.client.serverInfo, transaction);
 				transaction.as(Amount.Fee, fee);
 			}else{
 				transaction.as(Amount.Fee, "50");
@@ -1095,13 +1095,13 @@ public class Chainsql extends Submit {
 	 * 		   publicKey:Account publickey. 
 	 */
 	public JSONObject generateAddress(){
-		Security.addProvider(new BouncyCastleProvider());
+		Config.initBouncy();
 		Seed seed = Seed.randomSeed();		
 		return generateAddress(seed);
 	}
 	
 	public JSONObject generateAddress(String secret){
-		Security.addProvider(new BouncyCastleProvider());
+		Config.initBouncy();
 		Seed seed = Seed.fromBase58(secret);
 		
 		return generateAddress(seed);
@@ -1156,7 +1156,7 @@ public class Chainsql extends Submit {
 	 * @return JSONObject with field "seed" and "publickey".
 	 */
 	public JSONObject validationCreate(){
-		Security.addProvider(new BouncyCastleProvider());
+		Config.initBouncy();
 		JSONObject ret = new JSONObject();
 		Seed seed = Seed.randomSeed();
 		
@@ -1478,4 +1478,14 @@ public class Chainsql extends Submit {
 	{
 		connection.client.getLedgerTxs(ledgerSeq,bIncludeSuccess,bIncludefailure,cb);
 	}
+	/**
+	 * 按区块顺序导出一段区块中的全部交易，多个区块并发请求、在线程池中解析
+	 * @param from 起始区块号（包含）
+	 * @param to 结束区块号（包含）
+	 * @return LedgerTxExporter，设置sink后调用start()或run()
+	 */
+	public LedgerTxExporter ledgerTxExporter(long from, long to)
+	{
+		return connection.client.ledgerTxExporter(from, to);
+	}
 }
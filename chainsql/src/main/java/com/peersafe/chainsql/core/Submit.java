@@ -23,6 +23,7 @@ import com.peersafe.base.core.types.known.tx.Transaction;
 import com.peersafe.base.core.types.known.tx.signed.SignedTransaction;
 import com.peersafe.chainsql.manager.EventManager;
 import com.peersafe.chainsql.net.Connection;
+import com.peersafe.chainsql.util.FeeCalculator;
 import com.peersafe.chainsql.util.GenericPair;
 import com.peersafe.chainsql.util.Util;
 
@@ -178,11 +179,18 @@ public abstract class Submit {
 	    ManagedTxn tx = new ManagedTxn(signed);
         
         //subscribe tx
+        String trackedId = null;
         if(sync || cb != null){
         	if(tx == null || tx.hash == null){
     			return getError("Submit failed,transaction hash is null.");
         	}
-        	subscribeTx(tx.hash.toString());
+        	if(cb == null && condition == SyncCond.validate_success){
+        		//the account's transaction stream tells when it is validated
+        		trackedId = tx.hash.toString();
+        		trackTx(trackedId);
+        	}else if(cb != null || condition == SyncCond.db_success){
+        		subscribeTx(tx.hash.toString());
+        	}
         }
         
         tm.submitSigned(tx.onSubmitSuccess(new OnSubmitSuccess(){
@@ -213,6 +221,7 @@ public abstract class Submit {
         if(sync){
         	if(submit_state == SubmitState.submit_error || 
         		(submit_state == SubmitState.send_success && condition == SyncCond.send_success)){
+        		untrackTx(trackedId);
         		return submitRes;
         	}else{
         		count = sync_maxtime / wait_milli;
@@ -220,6 +229,7 @@ public abstract class Submit {
             		Util.waiting();
             		if(--count <= 0){
             			syncRes = getError("waiting sync result timeout");
+            			untrackTx(trackedId);
             			break;
             		}
             	}
@@ -272,16 +282,46 @@ public abstract class Submit {
 	    				unSubscribeTx(hash);
 	    			}
     				
-	    			if(!res.isNull("status") && sync_state == SyncState.waiting_sync){
-	        			syncRes = res;
-	        			sync_state = SyncState.sync_response;
-	        			submit_state = SubmitState.send_success;
+	    			if(!res.isNull("status")){
+	    				onSyncResult(res);
 	    			}
 	    		}
 			}
     	});
 	}
 	
+	private void trackTx(final String txId){
+		UInt32 lastLedgerSequence = signed.txn.get(UInt32.LastLedgerSequence);
+		this.eventManager.tracker().track(txId, lastLedgerSequence == null ? 0 : lastLedgerSequence.longValue(),
+				new Callback<JSONObject>(){
+			@Override
+			public void called(JSONObject data) {
+				JSONObject res = new JSONObject();
+				res.put("tx_hash", txId);
+				res.put("status", data.get("status"));
+				if(data.has("error_message"))
+					res.put("error_message", data.get("error_message"));
+				if(data.has("error"))
+					res.put("error", data.get("error"));
+				onSyncResult(res);
+			}
+		});
+	}
+	
+	private void untrackTx(String txId) {
+		if(txId != null){
+			this.eventManager.tracker().untrack(txId);
+		}
+	}
+	
+	private void onSyncResult(JSONObject res) {
+		if(sync_state == SyncState.waiting_sync){
+			syncRes = res;
+			sync_state = SyncState.sync_response;
+			submit_state = SubmitState.send_success;
+		}
+	}
+	
 	private void unSubscribeTx(String txId) {
 		this.eventManager.unsubscribeTx(txId,null);
 	}
@@ -364,16 +404,16 @@ public abstract class Submit {
 	 */
 	protected Transaction toTransaction(JSONObject json,TransactionType type) throws Exception{
     	Transaction tx = new Transaction(type);
-    	Amount fee;
-    	int drops_per_byte = 1000;
+    	long feeDrops;
+    	int drops_per_byte = FeeCalculator.DEFAULT_DROPS_PER_BYTE;
     	if(connection.client.serverInfo.primed()) {
 			drops_per_byte = connection.client.serverInfo.drops_per_byte;
-    		fee = connection.client.serverInfo.transactionFee(tx);
+    		feeDrops = connection.client.serverInfo.transactionFeeDrops(tx);
     		if(!json.has(UInt32.LastLedgerSequence.toString())) {
     			tx.put(UInt32.LastLedgerSequence, new UInt32(connection.client.serverInfo.ledger_index + 5));
     		}
     	}else {
-    		fee = Amount.fromString("50");
+    		feeDrops = FeeCalculator.DEFAULT_BASE_DROPS;
     		JSONObject ledger = connection.client.getLedgerVersion();
     		if(ledger.has("ledger_current_index")) {
     			tx.put(UInt32.LastLedgerSequence, new UInt32(ledger.getInt("ledger_current_index") + 5));
@@ -381,10 +421,9 @@ public abstract class Submit {
     	}    		
     	
     	//chainsql type tx needs higher fee
-    	Amount extraFee = Util.getExtraFee(json,drops_per_byte,type);
-    	fee = fee.add(extraFee);
+    	feeDrops += FeeCalculator.extraDrops(json,drops_per_byte,type);
     	
-		tx.as(Amount.Fee, fee);
+		tx.as(Amount.Fee, FeeCalculator.fromDrops(feeDrops));
 		
   		AccountID account = AccountID.fromAddress(this.connection.address);
   		JSONObject obj = connection.client.accountInfo(account);
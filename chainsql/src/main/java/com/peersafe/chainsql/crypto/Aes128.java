@@ -1,10 +1,10 @@
 package com.peersafe.chainsql.crypto;
 
 import java.io.UnsupportedEncodingException;
-import java.security.AlgorithmParameters;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -26,18 +26,51 @@ public class Aes128 {
     }  
     
     //生成iv  
-	private static AlgorithmParameters generateIV(byte[] pass) throws Exception{  
-        //iv 为一个 16 字节的数组，这里采用和 iOS 端一样的构造方法，数据全为0  
-        AlgorithmParameters params = AlgorithmParameters.getInstance(KEY_ALGORITHM);  
-        byte[] iv = new byte[16];
-        for(int i=0; i<16; i++)
-        {
-        	iv[i] = pass[i];
-        }
-        params.init(new IvParameterSpec(iv));  
-        return params;  
+	private static IvParameterSpec generateIV(byte[] pass) {  
+        //iv 为一个 16 字节的数组，这里采用和 iOS 端一样的构造方法，取密码的前 16 字节  
+        return new IvParameterSpec(pass, 0, 16);  
     } 
     
+    //每个线程按方向缓存一个密码器，密码不变时不再重新初始化
+    private static class CachedCipher {
+    	final Cipher cipher;
+    	byte[] password;
+    	
+    	CachedCipher(Cipher cipher) {
+    		this.cipher = cipher;
+    	}
+    }
+    
+    private static final ThreadLocal<CachedCipher[]> ciphers = new ThreadLocal<CachedCipher[]>() {
+    	@Override
+    	protected CachedCipher[] initialValue() {
+    		return new CachedCipher[2];
+    	}
+    };
+    
+	private static byte[] doFinal(int mode, byte[] password, byte[] input) throws Exception {
+		CachedCipher[] local = ciphers.get();
+		int index = mode == Cipher.ENCRYPT_MODE ? 0 : 1;
+		CachedCipher cached = local[index];
+		if(cached == null) {
+			cached = new CachedCipher(Cipher.getInstance("AES/CBC/PKCS5Padding"));// 创建密码器  
+			local[index] = cached;
+		}
+		if(!Arrays.equals(cached.password, password)) {
+			cached.password = null;
+			byte[] padded = Util.paddingPass(password,16);
+			cached.cipher.init(mode, convertToKey(padded), generateIV(padded));// 初始化  
+			cached.password = password.clone();
+		}
+		try {
+			return cached.cipher.doFinal(input);
+		} catch (Exception e) {
+			//出错后密码器状态不确定，下次重新初始化
+			cached.password = null;
+			throw e;
+		}
+	}
+    
 	/** 
 	 * 加密 
 	 *  
@@ -50,12 +83,7 @@ public class Aes128 {
 			return null;
 		}
         try {             
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");// 创建密码器  
-            password = Util.paddingPass(password,16);
-            Key key = convertToKey(password);
-            AlgorithmParameters algo = generateIV(password);
-            cipher.init(Cipher.ENCRYPT_MODE, key, algo);// 初始化  
-            byte[] result = cipher.doFinal(byteContent);  
+            byte[] result = doFinal(Cipher.ENCRYPT_MODE, password, byteContent);  
             return result; // 加密  
         } catch (NoSuchAlgorithmException e) {  
                 e.printStackTrace();  
@@ -88,12 +116,7 @@ public class Aes128 {
 		}
 		
         try {
-            password = Util.paddingPass(password,16);              
-            Key key = convertToKey(password);
-            AlgorithmParameters algo = generateIV(password);
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");// 创建密码器  
-            cipher.init(Cipher.DECRYPT_MODE, key,algo);// 初始化  
-            byte[] result = cipher.doFinal(content);  
+            byte[] result = doFinal(Cipher.DECRYPT_MODE, password, content);  
             return result; // 解密  
         } catch (NoSuchAlgorithmException e) {  
                 e.printStackTrace();  
@@ -1,23 +1,17 @@
 package com.peersafe.chainsql.crypto;
 
-import java.security.Security;
-import java.util.Random;
-
-import javax.crypto.Cipher;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.bouncycastle.crypto.BufferedBlockCipher;
-import org.bouncycastle.crypto.DataLengthException;
-import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.CipherOutputStream;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
-import com.peersafe.base.utils.Sha512;
+import com.peersafe.base.config.Config;
 import com.peersafe.chainsql.util.Util;  
   
 public class Aes256 {  
@@ -27,35 +21,119 @@ public class Aes256 {
 	public static final int AESKeyLength = 32;
 	public static final int IVLength = 16; // bytes
 	
+	// the context of the last key each thread used, as a table is usually
+	// read or written with one password for many fields in a row
+	private static final ThreadLocal<Context> lastContext = new ThreadLocal<Context>();
+	
+	/**
+	 * An aes-256-cbc key with its iv, keeping a cipher per thread and
+	 * direction so the key schedule is expanded only once.
+	 */
+	public static class Context {
+		private final byte[] password;
+		private final ParametersWithIV keyWithIv;
+		private final ThreadLocal<BufferedBlockCipher> encryptor = new ThreadLocal<BufferedBlockCipher>();
+		private final ThreadLocal<BufferedBlockCipher> decryptor = new ThreadLocal<BufferedBlockCipher>();
+		
+		/**
+		 * @param password password, padded or cut to 32 bytes, its first 16 bytes being the iv
+		 */
+		public Context(byte[] password) {
+			this.password = password.clone();
+			byte[] key = Util.paddingPass(this.password, AESKeyLength);
+			byte[] iv = new byte[IVLength];
+			System.arraycopy(key, 0, iv, 0, IVLength);
+			keyWithIv = new ParametersWithIV(new KeyParameter(key), iv);
+		}
+		
+		boolean isFor(byte[] password) {
+			return Arrays.equals(this.password, password);
+		}
+		
+		public byte[] encrypt(byte[] plainBytes) {
+			return crypt(plainBytes, true);
+		}
+		
+		public byte[] decrypt(byte[] cipherBytes) {
+			return crypt(cipherBytes, false);
+		}
+		
+		/**
+		 * Encrypt everything written, for blobs too large to hold twice.
+		 * Closing the stream writes the last block and closes out.
+		 * @param out where the cipher goes
+		 * @return the stream to write the plain bytes to
+		 */
+		public OutputStream encryptingStream(OutputStream out) {
+			return new CipherOutputStream(out, newCipher(true));
+		}
+		
+		/**
+		 * Decrypt everything written. Closing the stream checks the padding
+		 * and closes out.
+		 * @param out where the plain bytes go
+		 * @return the stream to write the cipher to
+		 */
+		public OutputStream decryptingStream(OutputStream out) {
+			return new CipherOutputStream(out, newCipher(false));
+		}
+		
+		private BufferedBlockCipher newCipher(boolean bEncrypt) {
+			BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+			cipher.init(bEncrypt, keyWithIv);
+			return cipher;
+		}
+		
+		private byte[] crypt(byte[] bytes, boolean bEncrypt) {
+			if(bytes.length == 0) {
+				return null;
+			}
+			ThreadLocal<BufferedBlockCipher> local = bEncrypt ? encryptor : decryptor;
+			BufferedBlockCipher cipher = local.get();
+			if(cipher == null) {
+				cipher = newCipher(bEncrypt);
+				local.set(cipher);
+			}
+			try{
+		        byte[] cryptedBytes  = new byte[cipher.getOutputSize(bytes.length)];
+		        int length1 = cipher.processBytes(bytes, 0, bytes.length, cryptedBytes , 0);	        
+		        int length2 = cipher.doFinal(cryptedBytes , length1);
+		        byte[] finalBytes = cryptedBytes;
+		        int finalLength = length1+length2;
+		        if(!bEncrypt && finalLength != cryptedBytes.length) {
+		        	finalBytes = new byte[finalLength];
+		        	System.arraycopy(cryptedBytes, 0, finalBytes, 0, finalLength);
+		        }
+		        return finalBytes;
+			}catch(Exception e){
+				// doFinal resets the cipher only when it succeeds
+				cipher.reset();
+				e.printStackTrace();
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * @param key password
+	 * @return the context for it, reused while the thread keeps to one password
+	 */
+	public static Context context(byte[] key) {
+		Context context = lastContext.get();
+		if(context == null || !context.isFor(key)) {
+			context = new Context(key);
+			lastContext.set(context);
+		}
+		return context;
+	}
       
    public static byte[] crypt(byte[] bytes, byte[] key,boolean bEncrypt){  
 		if(bytes.length == 0 || key.length == 0) {
 			return null;
 		}
        initialize();  
-		try{
-	        key = Util.paddingPass(key, AESKeyLength);
-	        byte[] iv = new byte[IVLength];
-	        System.arraycopy(key, 0, iv, 0, IVLength);
-	        
-	        //aes-256-cbc
-	        ParametersWithIV keyWithIv = new ParametersWithIV(new KeyParameter(key), iv);
-	        BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
-	        cipher.init(bEncrypt, keyWithIv);        
-	        byte[] cryptedBytes  = new byte[cipher.getOutputSize(bytes.length)];
-	        int length1 = cipher.processBytes(bytes, 0, bytes.length, cryptedBytes , 0);	        
-	        int length2 = cipher.doFinal(cryptedBytes , length1);
-	        byte[] finalBytes = cryptedBytes;
-	        int finalLength = length1+length2;
-	        if(!bEncrypt && finalLength != cryptedBytes.length) {
-	        	finalBytes = new byte[finalLength];
-	        	System.arraycopy(cryptedBytes, 0, finalBytes, 0, finalLength);
-	        }
-	        return finalBytes;
-		}catch(Exception e){
-			e.printStackTrace();
-		}
-		return null;
+		Context context = context(key);
+		return bEncrypt ? context.encrypt(bytes) : context.decrypt(bytes);
    }  
  
    /**
@@ -80,7 +158,7 @@ public class Aes256 {
       
     public static void initialize(){  
         if (initialized) return;  
-        Security.addProvider(new BouncyCastleProvider());  
+        Config.initBouncy();  
         initialized = true;  
     }
     
@@ -6,11 +6,9 @@ import java.math.BigInteger;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.Security;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.crypto.KeyAgreement;
 
@@ -23,7 +21,6 @@ import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.jce.ECNamedCurveTable;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.jce.spec.ECParameterSpec;
 import org.bouncycastle.jce.spec.ECPrivateKeySpec;
 import org.bouncycastle.jce.spec.ECPublicKeySpec;
@@ -57,81 +54,20 @@ public class Ecies {
 	 * @return byte array
 	 */
 	public static byte[] encryptText(String plainText,List<String> listPublicKey) {
-		Security.addProvider(new BouncyCastleProvider());
 		//check size
 		if(listPublicKey.size() == 0)
 			return null;
-		
-		//AES encrypt
-		byte[] password = Util.getRandomBytes(AESKeyLength);
-    	byte[] aesEnc = Aes256.encrypt(plainText.getBytes(), password);
-    	
-    	try {
-    	   	//encrypt password
-        	List<byte[]> listPubHash = new ArrayList<byte[]>();
-        	List<byte[]> listPassCipher = new ArrayList<byte[]>();
-        	byte[] dataPubA = {0};
-        	//如果使用国密
-        	if(Config.isUseGM()) {
-            	for(String sPub : listPublicKey) {
-            		byte[] pubBytes = getB58IdentiferCodecs().decode(sPub, B58IdentiferCodecs.VER_ACCOUNT_PUBLIC);
-            		byte[] pubHash = HashUtils.quarterSha512(pubBytes);
-            		byte[] passCipher = EncryptCommon.asymEncrypt(password, pubBytes);;
-            		listPubHash.add(pubHash);
-            		listPassCipher.add(passCipher);
-            	}
-        	}else {
-        		//random key-pair
-            	IKeyPair pair = Seed.randomKeyPair();
-        		byte [] dataPrvA = pair.priv().toByteArray();
-        		dataPubA = pair.pub().toByteArray();
-
-            	for(String sPub : listPublicKey) {
-            		byte[] pubBytes = getB58IdentiferCodecs().decode(sPub, B58IdentiferCodecs.VER_ACCOUNT_PUBLIC);
-            		byte[] pubHash = HashUtils.quarterSha512(pubBytes);
-            		byte[] passCipher = simpleEncrypt(password,pubBytes,dataPrvA);
-            		listPubHash.add(pubHash);
-            		listPassCipher.add(passCipher);
-            	}
-        	}
-
-//        	int singleLen = listPubHash.get(0).length + listPassCipher.get(0).length;
-//        	int finalLen = 1 + singleLen * listPublicKey.size() + dataPubA.length + aesEnc.length;
-//        	byte[] finalBytes = new byte[finalLen];
-//        	byte[] lenByte = new byte[1];
-//        	lenByte[0] = (byte) (listPublicKey.size() & 0xff);
-//        	System.arraycopy(lenByte, 0, finalBytes, 0, 1);
-//        	System.arraycopy(dataPubA, 0, finalBytes, 1, dataPubA.length);
-//        	int pos = 1 + dataPubA.length;
-//        	for(int i=0; i<listPubHash.size(); i++) {
-//        		byte[] pubHash = listPubHash.get(i);
-//        		byte[] passCipher = listPassCipher.get(i);
-//        		
-//        		System.arraycopy(pubHash, 0, finalBytes, pos, pubHash.length);
-//        		pos += pubHash.length;
-//        		System.arraycopy(passCipher, 0, finalBytes, pos, passCipher.length);
-//        		pos += passCipher.length;
-//        	}
-//        	System.arraycopy(aesEnc, 0, finalBytes, pos, aesEnc.length);
+		return new EciesRecipients(listPublicKey).encryptText(plainText);
+	}
 
-//    		return finalBytes;
-        	EncryptMsg.MultiEncrypt.Builder builder = EncryptMsg.MultiEncrypt.newBuilder();
-        	builder.setPublicOther(ByteString.copyFrom(dataPubA));
-        	for(int i=0; i<listPubHash.size(); i++) {
-        		EncryptMsg.MultiEncrypt.HashToken.Builder bd = EncryptMsg.MultiEncrypt.HashToken.newBuilder();
-        		bd.setPublicHash(ByteString.copyFrom(listPubHash.get(i)));
-        		bd.setToken(ByteString.copyFrom(listPassCipher.get(i)));
-        		builder.addHashTokenPair(bd);
-        	}
-        	builder.setCipher(ByteString.copyFrom(aesEnc));
-        	
-        	byte[] finalByte =  builder.build().toByteArray();
-        	
-        	return ZLibUtils.compress(finalByte);	
-    	}catch(Exception e) {
-    		e.printStackTrace();
-    		return null;
-    	}
+	/**
+	 * encrypt text for a recipient set, reusing its decoded publickeys.
+	 * @param plainText  plainText
+	 * @param recipients recipients
+	 * @return byte array
+	 */
+	public static byte[] encryptText(String plainText,EciesRecipients recipients) {
+		return recipients.encryptText(plainText);
 	}
 	
 	public static String decryptText(byte[] cipher,String secret) {
@@ -225,19 +161,27 @@ public class Ecies {
 	
 	private static byte[] simpleEncrypt(byte[] plainBytes,byte[] publicKey,byte[] dataPrvA) {
 		try{
-			byte[] secret = doECDH(dataPrvA, publicKey);
+			return aesWrap(plainBytes, doECDH(dataPrvA, publicKey));
+		}catch(Exception e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * aes-256-cbc encrypt with a key derived from an ECDH secret, the random iv first.
+	 */
+	static byte[] aesWrap(byte[] plainBytes,byte[] secret) {
+		try{
 			Sha512 hash = new Sha512(secret);
 			byte[] kdOutput = hash.finish();
-			//System.out.println("kdOutput:" + Util.bytesToHex(kdOutput));
 			
 	        byte[] aesKey = new byte[AESKeyLength];
 	        System.arraycopy(kdOutput, 0, aesKey, 0, AESKeyLength);
 	        
 	        //generate random iv
 	        byte[] iv = new byte[IVLength];
-	        Random r = new Random();
-	        r.nextBytes(iv);
-	        //System.out.println(Util.bytesToHex(iv));
+	        ThreadLocalRandom.current().nextBytes(iv);
 	        //aes-256-cbc
 	        ParametersWithIV keyWithIv = new ParametersWithIV(new KeyParameter(aesKey), iv);
 	        BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
@@ -245,7 +189,6 @@ public class Ecies {
 	        byte[] encryptedBytes = new byte[cipher.getOutputSize(plainBytes.length)];
 	        int length1 = cipher.processBytes(plainBytes, 0, plainBytes.length, encryptedBytes, 0);	        
 	        cipher.doFinal(encryptedBytes, length1);
-	        //System.out.println("cipher:" + Util.bytesToHex(encryptedBytes));
 	       
 	        byte[] finalBytes = new byte[iv.length + encryptedBytes.length];
 	        System.arraycopy(iv, 0, finalBytes, 0, iv.length);
@@ -294,7 +237,7 @@ public class Ecies {
 	 * @return return value.
 	 */
 	public static byte[] eciesEncrypt(byte[] plainBytes,byte[] publicKey){
-		Security.addProvider(new BouncyCastleProvider());
+		Config.initBouncy();
 
 		//random key-pair
     	IKeyPair pair = Seed.randomKeyPair();
@@ -325,8 +268,7 @@ public class Ecies {
 
 	        //generate random iv
 	        byte[] iv = new byte[IVLength];
-	        Random r = new Random();
-	        r.nextBytes(iv);
+	        ThreadLocalRandom.current().nextBytes(iv);
 	        //System.out.println(Util.bytesToHex(iv));
 	        //aes-256-cbc
 	        ParametersWithIV keyWithIv = new ParametersWithIV(new KeyParameter(aesKey), iv);
@@ -356,7 +298,7 @@ public class Ecies {
 	}
 	
 	public static byte[] eciesDecrypt (byte[] cipherText,byte[] privateKey) throws Exception{
-		Security.addProvider(new BouncyCastleProvider());
+		Config.initBouncy();
 		byte[] ciphertext = cipherText;
 	    int level = 256;
 	    int Rb_len = 33;
@@ -0,0 +1,176 @@
+package com.peersafe.chainsql.crypto;
+
+import static com.peersafe.base.config.Config.getB58IdentiferCodecs;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.bouncycastle.crypto.agreement.ECDHBasicAgreement;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.util.BigIntegers;
+
+import com.google.protobuf.ByteString;
+import com.peersafe.base.config.Config;
+import com.peersafe.base.crypto.ecdsa.IKeyPair;
+import com.peersafe.base.crypto.ecdsa.SECP256K1;
+import com.peersafe.base.crypto.ecdsa.Seed;
+import com.peersafe.base.encodings.B58IdentiferCodecs;
+import com.peersafe.base.utils.HashUtils;
+import com.peersafe.chainsql.util.Util;
+import com.peersafe.chainsql.util.ZLibUtils;
+
+/**
+ * A fixed list of recipients to encrypt many texts for, in the format of
+ * {@link Ecies#encryptText(String, List)}.
+ *
+ * Recipient public keys are decoded once, and shared through a cache with
+ * every other set, so the curve points keep their precomputed tables. The
+ * password of each text is wrapped for the recipients in parallel.
+ */
+public class EciesRecipients {
+	private static final int MAX_CACHED_RECIPIENTS = 4096;
+	private static final ConcurrentHashMap<String, Recipient> cache = new ConcurrentHashMap<String, Recipient>();
+	// recipients wrapped by one task without forking further
+	private static final int CHUNK = 8;
+
+	static final class Recipient {
+		final byte[] pubBytes;
+		final ByteString pubHash;
+		// null when using GM
+		final ECPublicKeyParameters key;
+
+		Recipient(String publicKey) {
+			pubBytes = getB58IdentiferCodecs().decode(publicKey, B58IdentiferCodecs.VER_ACCOUNT_PUBLIC);
+			pubHash = ByteString.copyFrom(HashUtils.quarterSha512(pubBytes));
+			key = Config.isUseGM() ? null :
+				new ECPublicKeyParameters(SECP256K1.curve().decodePoint(pubBytes), SECP256K1.params());
+		}
+	}
+
+	private final Recipient[] recipients;
+
+	/**
+	 * @param listPublicKey base58 public keys of the recipients
+	 */
+	public EciesRecipients(List<String> listPublicKey) {
+		recipients = new Recipient[listPublicKey.size()];
+		for (int i = 0; i < recipients.length; i++) {
+			recipients[i] = recipient(listPublicKey.get(i));
+		}
+	}
+
+	public int size() {
+		return recipients.length;
+	}
+
+	/**
+	 * @param plainText plainText
+	 * @return the cipher, null if there are no recipients or it fails
+	 */
+	public byte[] encryptText(String plainText) {
+		return encrypt(plainText.getBytes());
+	}
+
+	/**
+	 * @param plainBytes plainBytes
+	 * @return the cipher, null if there are no recipients or it fails
+	 */
+	public byte[] encrypt(byte[] plainBytes) {
+		if (recipients.length == 0)
+			return null;
+
+		byte[] password = Util.getRandomBytes(Ecies.AESKeyLength);
+		byte[] aesEnc = Aes256.encrypt(plainBytes, password);
+
+		try {
+			byte[][] tokens = new byte[recipients.length][];
+			byte[] dataPubA = {0};
+			if (Config.isUseGM()) {
+				// the device takes one request at a time
+				for (int i = 0; i < recipients.length; i++) {
+					tokens[i] = EncryptCommon.asymEncrypt(password, recipients[i].pubBytes);
+				}
+			} else {
+				// random key-pair
+				IKeyPair pair = Seed.randomKeyPair();
+				dataPubA = pair.pub().toByteArray();
+				ECPrivateKeyParameters prvA = new ECPrivateKeyParameters(pair.priv(), SECP256K1.params());
+				if (recipients.length <= CHUNK) {
+					wrap(password, prvA, tokens, 0, recipients.length);
+				} else {
+					ForkJoinPool.commonPool().invoke(new WrapTask(password, prvA, tokens, 0, recipients.length));
+				}
+			}
+
+			EncryptMsg.MultiEncrypt.Builder builder = EncryptMsg.MultiEncrypt.newBuilder();
+			builder.setPublicOther(ByteString.copyFrom(dataPubA));
+			for (int i = 0; i < recipients.length; i++) {
+				EncryptMsg.MultiEncrypt.HashToken.Builder bd = EncryptMsg.MultiEncrypt.HashToken.newBuilder();
+				bd.setPublicHash(recipients[i].pubHash);
+				bd.setToken(ByteString.copyFrom(tokens[i]));
+				builder.addHashTokenPair(bd);
+			}
+			builder.setCipher(ByteString.copyFrom(aesEnc));
+
+			return ZLibUtils.compress(builder.build().toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private void wrap(byte[] password, ECPrivateKeyParameters prvA, byte[][] tokens, int from, int to) {
+		for (int i = from; i < to; i++) {
+			ECDHBasicAgreement agreement = new ECDHBasicAgreement();
+			agreement.init(prvA);
+			BigInteger x = agreement.calculateAgreement(recipients[i].key);
+			byte[] secret = BigIntegers.asUnsignedByteArray(agreement.getFieldSize(), x);
+			tokens[i] = Ecies.aesWrap(password, secret);
+		}
+	}
+
+	private class WrapTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] password;
+		private final ECPrivateKeyParameters prvA;
+		private final byte[][] tokens;
+		private final int from, to;
+
+		WrapTask(byte[] password, ECPrivateKeyParameters prvA, byte[][] tokens, int from, int to) {
+			this.password = password;
+			this.prvA = prvA;
+			this.tokens = tokens;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CHUNK) {
+				wrap(password, prvA, tokens, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new WrapTask(password, prvA, tokens, from, mid),
+					new WrapTask(password, prvA, tokens, mid, to));
+		}
+	}
+
+	private static Recipient recipient(String publicKey) {
+		// the key can't be reused across a switch to or from GM
+		String cacheKey = Config.isUseGM() + publicKey;
+		Recipient recipient = cache.get(cacheKey);
+		if (recipient == null) {
+			recipient = new Recipient(publicKey);
+			if (cache.size() < MAX_CACHED_RECIPIENTS) {
+				cache.putIfAbsent(cacheKey, recipient);
+			}
+		}
+		return recipient;
+	}
+}
@@ -7,7 +7,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import com.peersafe.chainsql.resources.Constant;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.peersafe.abi.EventEncoder;
@@ -17,6 +16,7 @@ import com.peersafe.base.client.Client.OnContractEvent;
 import com.peersafe.base.client.Client.OnTBMessage;
 import com.peersafe.base.client.Client.OnTXMessage;
 import com.peersafe.base.client.pubsub.Publisher.Callback;
+import com.peersafe.base.client.subscriptions.SubscriptionBatcher;
 import com.peersafe.base.core.serialized.enums.TransactionType;
 import com.peersafe.chainsql.crypto.EncryptCommon;
 import com.peersafe.chainsql.net.Connection;
@@ -63,43 +63,37 @@ public class EventManager {
 	 * Resubscribe automatically after reconnected.
 	 */
 	public void reSubscribe(){
+		SubscriptionBatcher batcher = batcher();
 		for(String key : mapTableCache.keySet()){
 			String[] keys = key.split(";");
 			if(keys.length != 2){
 				continue;
 			}
-			String name = keys[0];
-			String owner = keys[1];
-			
-	 		JSONObject messageTx = new JSONObject();
-			messageTx.put("command", "subscribe");
-			messageTx.put("owner", owner);
-			messageTx.put("tablename", name);
-			
-			this.connection.client.subscriptions.addMessage(messageTx);
+			batcher.subscribeTable(keys[0], keys[1]);
 		}
 
 		for(String key : mapCache.keySet()){
-
-			JSONObject messageTx = new JSONObject();
-			messageTx.put("command", "subscribe");
-			messageTx.put("transaction", key);
-			this.connection.client.subscriptions.addMessage(messageTx);
+			batcher.subscribeTransaction(key);
 		}
 		
-		
+		//one request for all the contracts
 		for(String address : mapContractEvents.keySet()){
-
-			JSONObject contractEv = new JSONObject();
-			contractEv.put("command", "subscribe");
-			JSONArray arrAdd = new JSONArray();
-			arrAdd.put(address);
-			contractEv.put("accounts_contract", arrAdd);
-
-			this.connection.client.subscriptions.addMessage(contractEv);
+			batcher.subscribeContract(address);
 		}
 		
 	}
+
+	private SubscriptionBatcher batcher() {
+		return this.connection.client.subscriptionBatcher;
+	}
+
+	/**
+	 * The tracker for transactions submitted through this connection.
+	 * @return the tracker of the connection's client.
+	 */
+	public TransactionTracker tracker() {
+		return this.connection.client.transactionTracker;
+	}
 	private void onChainsqlSubRet() {
 		this.connection.client.OnSubChainsqlRet(new Client.OnChainsqlSubRet() {
 			@Override
@@ -122,11 +116,7 @@ public class EventManager {
 	 * @param cb Callback.
 	 */
 	public void subscribeTable(String name, String owner ,Callback<?> cb) {
- 		JSONObject messageTx = new JSONObject();
-		messageTx.put("command", "subscribe");
-		messageTx.put("owner", owner);
-		messageTx.put("tablename", name);
-		this.connection.client.subscriptions.addMessage(messageTx);
+		batcher().subscribeTable(name, owner);
 		
 		if (!this.onTbMessage) {
 			//this.connection.client.OnTBMessage(this::onTBMessage);
@@ -151,10 +141,7 @@ public class EventManager {
 	 * @param cb Callback.
 	 */
 	public void subscribeTx(String id,Callback<?> cb) {
-		JSONObject messageTx = new JSONObject();
-		messageTx.put("command", "subscribe");
-		messageTx.put("transaction", id);
-		this.connection.client.subscriptions.addMessage(messageTx);
+		batcher().subscribeTransaction(id);
 		if (!this.onTxMessage) {
 			this.connection.client.OnTXMessage(new OnTXMessage(){
 				@Override
@@ -179,13 +166,7 @@ public class EventManager {
 			map.put(event, cb);
 			mapContractEvents.put(address, map);
 			
-			JSONObject messageEv = new JSONObject();
-			messageEv.put("command", "subscribe");
-			JSONArray arr = new JSONArray();
-			arr.put(address);
-			messageEv.put("accounts_contract", arr);
-			
-			this.connection.client.subscriptions.addMessage(messageEv);
+			batcher().subscribeContract(address);
 			if (!this.onContractMessage) {
 				this.connection.client.onContractEvent(new OnContractEvent() {
 
@@ -198,6 +179,9 @@ public class EventManager {
 							return;
 						}
 						Map<Event,Callback> mapCb = mapContractEvents.get(address);
+						if(mapCb == null) {
+							return;
+						}
 						for (Entry<Event,Callback> entry : mapCb.entrySet()) {
 							String encodedEventSignature = EventEncoder.encode(entry.getKey());
 							encodedEventSignature = encodedEventSignature.substring(2, encodedEventSignature.length());
@@ -214,8 +198,20 @@ public class EventManager {
 		}
 	}
 	
+	/**
+	 * Un-subscribe an event of a contract, and the contract once none is left.
+	 * @param address Contract address.
+	 * @param event Event.
+	 */
 	public void unsubscribeContract(String address,Event event) {
-		
+		Map<Event,Callback> map = mapContractEvents.get(address);
+		if(map == null || map.remove(event) == null) {
+			return;
+		}
+		if(map.isEmpty()) {
+			mapContractEvents.remove(address);
+			batcher().unsubscribeContract(address);
+		}
 	}
 	/**
 	 * Un-subscribe a table.
@@ -224,11 +220,7 @@ public class EventManager {
 	 * @param cb Callback.
 	 */
 	public void unsubscribeTable(String name, String owner,Callback<JSONObject> cb) {
-		JSONObject messageTx = new JSONObject();
-		messageTx.put("command", "unsubscribe");
-		messageTx.put("owner", owner);
-		messageTx.put("tablename", name);
-		this.connection.client.subscriptions.addMessage(messageTx);
+		batcher().unsubscribeTable(name, owner);
 	
 		String key = name +";" + owner;
 
@@ -254,11 +246,7 @@ public class EventManager {
 	 * @param cb Callback.
 	 */
 	public void unsubscribeTx(String id,Callback<JSONObject> cb) {
-		JSONObject messageTx = new JSONObject();
-		messageTx.put("command", "unsubscribe");
-		messageTx.put("transaction", id);
-		
-		this.connection.client.subscriptions.addMessage(messageTx);
+		batcher().unsubscribeTransaction(id);
 		
 		JSONObject obj = new JSONObject();
 		if(this.mapCache.containsKey(id)) {
@@ -377,9 +365,11 @@ public class EventManager {
 			if(Util.isChainsqlType(type)) {
 				if(!("validate_success".equals(data.getString("status")))){
 					mapCache.remove(key);
+					batcher().unsubscribeTransaction(key);
 				}
 			}else {
 				mapCache.remove(key);
+				batcher().unsubscribeTransaction(key);
 			}
 		}
 	}
@@ -0,0 +1,208 @@
+package com.peersafe.chainsql.manager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONObject;
+
+import com.peersafe.base.client.Client;
+import com.peersafe.base.client.Client.OnLedgerClosed;
+import com.peersafe.base.client.Client.OnValidatedTransaction;
+import com.peersafe.base.client.enums.Command;
+import com.peersafe.base.client.pubsub.Publisher.Callback;
+import com.peersafe.base.client.requests.Request;
+import com.peersafe.base.client.responses.Response;
+import com.peersafe.base.client.subscriptions.ServerInfo;
+import com.peersafe.base.core.serialized.enums.EngineResult;
+import com.peersafe.base.core.types.known.tx.result.TransactionResult;
+
+/**
+ * Waits for many submitted transactions to be validated, without a
+ * subscription per transaction.
+ *
+ * The transaction stream of every submitting account is subscribed once by
+ * the Client, and each validated transaction on it is matched by hash
+ * against the ones tracked. A transaction whose LastLedgerSequence has
+ * passed without it showing up is looked up with a tx request, and reported
+ * as validate_timeout if it is not validated.
+ *
+ * Results are reported in the form of a transaction subscription message:
+ * status is validate_success, validate_error with the engine result as
+ * error, error_code and error_message, or validate_timeout.
+ */
+public class TransactionTracker {
+	private static final class Tracked {
+		final String hash;
+		final long lastLedgerSequence;
+		final Callback<JSONObject> cb;
+
+		Tracked(String hash, long lastLedgerSequence, Callback<JSONObject> cb) {
+			this.hash = hash;
+			this.lastLedgerSequence = lastLedgerSequence;
+			this.cb = cb;
+		}
+	}
+
+	private static final Comparator<Tracked> EXPIRY_ORDER = new Comparator<Tracked>() {
+		@Override
+		public int compare(Tracked a, Tracked b) {
+			return a.lastLedgerSequence < b.lastLedgerSequence ? -1
+					: a.lastLedgerSequence == b.lastLedgerSequence ? 0 : 1;
+		}
+	};
+
+	private final Client client;
+	private final ConcurrentHashMap<String, Tracked> tracked = new ConcurrentHashMap<String, Tracked>();
+	// by LastLedgerSequence, entries already resolved are skipped when they come up
+	private final PriorityQueue<Tracked> expiries = new PriorityQueue<Tracked>(64, EXPIRY_ORDER);
+
+	private final OnValidatedTransaction onValidated = new OnValidatedTransaction() {
+		@Override
+		public void called(TransactionResult tr) {
+			if (tracked.isEmpty() || tr.hash == null) {
+				return;
+			}
+			Tracked entry = tracked.remove(tr.hash.toString());
+			if (entry != null) {
+				entry.cb.called(result(entry.hash, String.valueOf(tr.engineResult),
+						tr.ledgerIndex == null ? 0 : tr.ledgerIndex.longValue()));
+			}
+		}
+	};
+
+	private final OnLedgerClosed onLedgerClosed = new OnLedgerClosed() {
+		@Override
+		public void called(ServerInfo serverInfo) {
+			if (!tracked.isEmpty()) {
+				lookUpExpired(serverInfo.ledger_index);
+			}
+		}
+	};
+
+	/**
+	 * @param client client whose account streams to match against
+	 */
+	public TransactionTracker(Client client) {
+		this.client = client;
+		client.onValidatedTransaction(onValidated);
+		client.onLedgerClosed(onLedgerClosed);
+	}
+
+	/**
+	 * Track a transaction. Its account must be subscribed through the Client,
+	 * as it is for every account transactions are submitted for.
+	 * @param hash transaction hash
+	 * @param lastLedgerSequence its LastLedgerSequence, 0 if it has none
+	 * @param cb called once with its result
+	 */
+	public void track(String hash, long lastLedgerSequence, Callback<JSONObject> cb) {
+		Tracked entry = new Tracked(hash, lastLedgerSequence, cb);
+		tracked.put(hash, entry);
+		if (lastLedgerSequence > 0) {
+			synchronized (expiries) {
+				expiries.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Stop tracking a transaction, its callback won't be called.
+	 * @param hash transaction hash
+	 * @return whether it was tracked
+	 */
+	public boolean untrack(String hash) {
+		return tracked.remove(hash) != null;
+	}
+
+	/**
+	 * @return how many transactions are waiting for a result
+	 */
+	public int size() {
+		return tracked.size();
+	}
+
+	/**
+	 * Stop listening to the client, dropping every transaction tracked.
+	 */
+	public void close() {
+		client.removeListener(OnValidatedTransaction.class, onValidated);
+		client.removeListener(OnLedgerClosed.class, onLedgerClosed);
+		tracked.clear();
+		synchronized (expiries) {
+			expiries.clear();
+		}
+	}
+
+	private void lookUpExpired(long ledgerIndex) {
+		List<Tracked> expired = new ArrayList<Tracked>();
+		synchronized (expiries) {
+			while (!expiries.isEmpty() && expiries.peek().lastLedgerSequence < ledgerIndex) {
+				Tracked entry = expiries.poll();
+				if (tracked.get(entry.hash) == entry) {
+					expired.add(entry);
+				}
+			}
+		}
+		// all sent at once, the responses come back as they are ready
+		for (Tracked entry : expired) {
+			lookUp(entry);
+		}
+	}
+
+	private void lookUp(final Tracked entry) {
+		Request request = client.newRequest(Command.tx);
+		request.json("transaction", entry.hash);
+		request.once(Request.OnResponse.class, new Request.OnResponse() {
+			@Override
+			public void called(Response response) {
+				if (!tracked.remove(entry.hash, entry)) {
+					return;
+				}
+				JSONObject result = response.result;
+				if (response.succeeded && result != null && result.optBoolean("validated")
+						&& result.has("meta")) {
+					String code = result.getJSONObject("meta").getString("TransactionResult");
+					entry.cb.called(result(entry.hash, code, result.optLong("ledger_index")));
+				} else {
+					JSONObject timeout = message(entry.hash, "validate_timeout");
+					timeout.put("error_message", "not validated by LastLedgerSequence " + entry.lastLedgerSequence);
+					entry.cb.called(timeout);
+				}
+			}
+		});
+		request.request();
+	}
+
+	private static JSONObject result(String hash, String code, long ledgerIndex) {
+		JSONObject obj;
+		if (EngineResult.tesSUCCESS.toString().equals(code)) {
+			obj = message(hash, "validate_success");
+		} else {
+			obj = message(hash, "validate_error");
+			obj.put("error", code);
+			try {
+				EngineResult engineResult = EngineResult.valueOf(code);
+				obj.put("error_code", engineResult.asInteger());
+				obj.put("error_message", engineResult.human);
+			} catch (IllegalArgumentException e) {
+				obj.put("error_message", code);
+			}
+		}
+		if (ledgerIndex > 0) {
+			obj.put("ledger_index", ledgerIndex);
+		}
+		return obj;
+	}
+
+	private static JSONObject message(String hash, String status) {
+		JSONObject tx = new JSONObject();
+		tx.put("hash", hash);
+		JSONObject obj = new JSONObject();
+		obj.put("status", status);
+		obj.put("transaction", tx);
+		return obj;
+	}
+}
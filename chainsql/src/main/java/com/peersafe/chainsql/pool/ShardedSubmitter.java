@@ -0,0 +1,457 @@
+package com.peersafe.chainsql.pool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.peersafe.base.client.Client;
+import com.peersafe.base.client.Client.OnLedgerClosed;
+import com.peersafe.base.client.Client.OnReconnected;
+import com.peersafe.base.client.pubsub.Publisher.Callback;
+import com.peersafe.base.client.subscriptions.ServerInfo;
+import com.peersafe.chainsql.core.Chainsql;
+import com.peersafe.chainsql.core.Submit;
+import com.peersafe.chainsql.core.Submit.SyncCond;
+import com.peersafe.chainsql.net.Connection;
+import com.peersafe.chainsql.util.Util;
+
+/**
+ * Submits transactions through a set of funded worker accounts, so they
+ * are not all serialized on the Sequence of a single account.
+ *
+ * Every worker signs with its own account over the owner's connection and
+ * runs one submission at a time. Each operation goes to the worker with the
+ * fewest queued and running operations. A worker whose submission times
+ * out, is retried or rejected locally by the node, or runs longer than the
+ * stall time is paused for that long, and the operations queued on it move
+ * to the other workers. Running submissions are checked for stalls as
+ * operations come in, on every ledger close and on reconnect. Table operations act on the owner's tables, which
+ * the owner grants to every worker with {@link #grant(String, String, boolean)}.
+ */
+public class ShardedSubmitter {
+	public interface Operation {
+		/**
+		 * Build the transaction with the Chainsql of a worker, e.g.
+		 * worker.table(name).insert(rows). Don't submit it.
+		 * @param worker Chainsql acting as the worker, using the owner's tables.
+		 * @return the transaction to submit.
+		 */
+		Submit build(Chainsql worker);
+	}
+
+	public static class Worker {
+		public final String address;
+		public final String publicKey;
+		final Chainsql chainsql;
+		private final ArrayDeque<Task> queue = new ArrayDeque<Task>();
+		private boolean running = false;
+		private long runningSince;
+		private long stalledUntil = 0;
+
+		Worker(String address, String publicKey, Chainsql chainsql) {
+			this.address = address;
+			this.publicKey = publicKey;
+			this.chainsql = chainsql;
+		}
+
+		/**
+		 * @return operations queued on this worker or running.
+		 */
+		public int backlog() {
+			return queue.size() + (running ? 1 : 0);
+		}
+
+		public boolean isStalled() {
+			return stalledUntil > System.currentTimeMillis();
+		}
+	}
+
+	private static class Task {
+		final Operation operation;
+		final SyncCond cond;
+		final Callback<JSONObject> cb;
+		final CountDownLatch done = new CountDownLatch(1);
+		JSONObject result;
+
+		Task(Operation operation, SyncCond cond, Callback<JSONObject> cb) {
+			this.operation = operation;
+			this.cond = cond;
+			this.cb = cb;
+		}
+
+		void complete(JSONObject result) {
+			this.result = result;
+			done.countDown();
+			if (cb != null) {
+				cb.called(result);
+			}
+		}
+	}
+
+	private final Chainsql owner;
+	private final ArrayList<Worker> workers = new ArrayList<Worker>();
+	private ExecutorService executor;
+	private boolean ownExecutor = false;
+	private long stallMillis = 15000;
+	private int nextPick = 0;
+	private boolean closed = false;
+
+	private final OnLedgerClosed onLedgerClosed = new OnLedgerClosed() {
+		@Override
+		public void called(ServerInfo serverInfo) {
+			checkStalls();
+		}
+	};
+
+	private final OnReconnected onReconnected = new OnReconnected() {
+		@Override
+		public void called(JSONObject args) {
+			for (Worker worker : workers()) {
+				worker.chainsql.eventManager().reSubscribe();
+			}
+			checkStalls();
+		}
+	};
+
+	/**
+	 * @param owner Chainsql connected and acting as the owner, which funds the
+	 * 		  workers and owns the tables they write to.
+	 */
+	public ShardedSubmitter(Chainsql owner) {
+		this.owner = owner;
+		Client client = owner.connection.client;
+		client.onLedgerClosed(onLedgerClosed);
+		client.onReconnected(onReconnected);
+	}
+
+	/**
+	 * Add a worker account that is already funded.
+	 * @param address Account address.
+	 * @param secret Account secret.
+	 * @return this.
+	 */
+	public ShardedSubmitter addWorker(String address, String secret) {
+		JSONObject keys = owner.generateAddress(secret);
+		if (!address.equals(keys.getString("address"))) {
+			throw new IllegalArgumentException("address and secret not match: " + address);
+		}
+		Chainsql chainsql = new Chainsql();
+		Connection connection = new Connection();
+		connection.setClient(owner.connection.client);
+		chainsql.connection = connection;
+		chainsql.eventManager().init(connection);
+		chainsql.as(address, secret);
+		chainsql.use(owner.connection.address);
+		synchronized (this) {
+			workers.add(new Worker(address, keys.getString("publicKey"), chainsql));
+		}
+		return this;
+	}
+
+	/**
+	 * Create new worker accounts, each funded by a payment from the owner.
+	 * @param count Accounts to create.
+	 * @param value Coins each is paid, Unit:ZXC.
+	 * @return the accounts created, each as {"address":xxx,"secret":xxx,"publicKey":xxx},
+	 * 		   to add again with {@link #addWorker(String, String)} later.
+	 * @throws Exception if a payment fails; the accounts funded before it are added.
+	 */
+	public JSONArray createWorkers(int count, String value) throws Exception {
+		JSONArray created = new JSONArray();
+		for (int i = 0; i < count; i++) {
+			JSONObject account = owner.generateAddress();
+			if (!account.has("secret")) {
+				throw new Exception("Can't create worker accounts in GM mode");
+			}
+			JSONObject ret = owner.pay(account.getString("address"), value).submit(SyncCond.validate_success);
+			if (!"validate_success".equals(ret.optString("status"))) {
+				throw new Exception("Funding " + account.getString("address") + " failed: " + ret);
+			}
+			addWorker(account.getString("address"), account.getString("secret"));
+			created.put(account);
+		}
+		return created;
+	}
+
+	/**
+	 * Grant every worker authorities on a table of the owner.
+	 * @param name Table name.
+	 * @param flag Authorities, e.g.:"{insert:true,update:true}".
+	 * @param confidential Whether the table is confidential, so its token is
+	 * 		  passed on to each worker's public key.
+	 * @return this.
+	 * @throws Exception if a grant fails.
+	 */
+	public ShardedSubmitter grant(String name, String flag, boolean confidential) throws Exception {
+		for (Worker worker : workers()) {
+			Chainsql granted = confidential ?
+					owner.grant(name, worker.address, worker.publicKey, flag) :
+					owner.grant(name, worker.address, flag);
+			if (granted == null) {
+				throw new Exception("Couldn't grant " + name + " to " + worker.address);
+			}
+			JSONObject ret = granted.submit(SyncCond.validate_success);
+			if (!"validate_success".equals(ret.optString("status"))) {
+				throw new Exception("Granting " + name + " to " + worker.address + " failed: " + ret);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Pool running the submissions, by default a cached pool of its own.
+	 * @param executor executor.
+	 * @return this.
+	 */
+	public synchronized ShardedSubmitter runOn(ExecutorService executor) {
+		this.executor = executor;
+		ownExecutor = false;
+		return this;
+	}
+
+	/**
+	 * How long a submission may run before its worker counts as stalled, and
+	 * how long a stalled worker then gets no new operations.
+	 * @param millis Stall time.
+	 * @return this.
+	 */
+	public synchronized ShardedSubmitter stallAfter(long millis) {
+		stallMillis = millis;
+		return this;
+	}
+
+	public synchronized List<Worker> workers() {
+		return Collections.unmodifiableList(new ArrayList<Worker>(workers));
+	}
+
+	/**
+	 * Submit an operation and wait for its result.
+	 * @param operation Operation.
+	 * @param cond Condition to return on.
+	 * @return Submit result, as of Submit.submit(cond).
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public JSONObject submit(Operation operation, SyncCond cond) throws InterruptedException {
+		Task task = enqueue(operation, cond, null);
+		task.done.await();
+		return task.result;
+	}
+
+	/**
+	 * Submit an operation in the background.
+	 * @param operation Operation.
+	 * @param cond Condition the result is reported on.
+	 * @param cb called with the result, as of Submit.submit(cond).
+	 */
+	public void submit(Operation operation, SyncCond cond, Callback<JSONObject> cb) {
+		enqueue(operation, cond, cb);
+	}
+
+	/**
+	 * Pay from a worker.
+	 * @param accountId The Address of an account.
+	 * @param value Count of coins to transfer,Unit:ZXC.
+	 * @param cond Condition to return on.
+	 * @return Submit result.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public JSONObject pay(final String accountId, final String value, SyncCond cond) throws InterruptedException {
+		return submit(new Operation() {
+			@Override
+			public Submit build(Chainsql worker) {
+				return worker.pay(accountId, value);
+			}
+		}, cond);
+	}
+
+	/**
+	 * Insert into a table of the owner from a worker.
+	 * @param name Table name.
+	 * @param rows Rows to insert, as for Table.insert.
+	 * @param cond Condition to return on.
+	 * @return Submit result.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public JSONObject insert(final String name, final List<String> rows, SyncCond cond) throws InterruptedException {
+		return submit(new Operation() {
+			@Override
+			public Submit build(Chainsql worker) {
+				return worker.table(name).insert(rows);
+			}
+		}, cond);
+	}
+
+	/**
+	 * Stop submitting and listening to the owner's client. Operations still
+	 * queued fail; running ones finish.
+	 */
+	public void close() {
+		List<Task> dropped = new ArrayList<Task>();
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			Client client = owner.connection.client;
+			client.removeListener(OnLedgerClosed.class, onLedgerClosed);
+			client.removeListener(OnReconnected.class, onReconnected);
+			for (Worker worker : workers) {
+				dropped.addAll(worker.queue);
+				worker.queue.clear();
+			}
+			if (ownExecutor && executor != null) {
+				executor.shutdown();
+			}
+		}
+		for (Task task : dropped) {
+			task.complete(Util.errorObject("ShardedSubmitter closed"));
+		}
+	}
+
+	private Task enqueue(Operation operation, SyncCond cond, Callback<JSONObject> cb) {
+		Task task = new Task(operation, cond, cb);
+		Worker worker;
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("ShardedSubmitter closed");
+			}
+			if (workers.isEmpty()) {
+				throw new IllegalStateException("No worker accounts");
+			}
+			if (executor == null) {
+				executor = Executors.newCachedThreadPool();
+				ownExecutor = true;
+			}
+			stallOverdue();
+			worker = pick(null);
+			worker.queue.add(task);
+		}
+		dispatchAll();
+		return task;
+	}
+
+	private void checkStalls() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			stallOverdue();
+		}
+		// workers whose stall has passed take their queues up again
+		dispatchAll();
+	}
+
+	// stall the workers whose submission has run longer than the stall time
+	private void stallOverdue() {
+		long now = System.currentTimeMillis();
+		for (Worker w : workers) {
+			if (w.running && !w.isStalled() && now - w.runningSince > stallMillis) {
+				stall(w, now);
+			}
+		}
+	}
+
+	// the least backlogged worker that isn't stalled, if there is one
+	private Worker pick(Worker except) {
+		Worker best = null;
+		boolean bestStalled = true;
+		int n = workers.size();
+		for (int i = 0; i < n; i++) {
+			Worker w = workers.get((nextPick + i) % n);
+			if (w == except) {
+				continue;
+			}
+			boolean stalled = w.isStalled();
+			if (best == null || (bestStalled && !stalled) ||
+					(bestStalled == stalled && w.backlog() < best.backlog())) {
+				best = w;
+				bestStalled = stalled;
+			}
+		}
+		nextPick = (nextPick + 1) % n;
+		return best;
+	}
+
+	private void stall(Worker worker, long now) {
+		worker.stalledUntil = now + stallMillis;
+		if (workers.size() < 2) {
+			return;
+		}
+		// rebalance onto the others, unless they are all stalled as well
+		ArrayList<Task> moving = new ArrayList<Task>(worker.queue);
+		worker.queue.clear();
+		for (Task task : moving) {
+			Worker to = pick(worker);
+			(to.isStalled() ? worker : to).queue.add(task);
+		}
+	}
+
+	private void dispatchAll() {
+		for (Worker worker : workers()) {
+			dispatch(worker);
+		}
+	}
+
+	private void dispatch(final Worker worker) {
+		final Task task;
+		synchronized (this) {
+			if (closed || worker.running || worker.queue.isEmpty()) {
+				return;
+			}
+			task = worker.queue.poll();
+			worker.running = true;
+			worker.runningSince = System.currentTimeMillis();
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					ShardedSubmitter.this.run(worker, task);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			synchronized (this) {
+				worker.running = false;
+			}
+			task.complete(Util.errorObject("ShardedSubmitter closed"));
+		}
+	}
+
+	private void run(Worker worker, Task task) {
+		JSONObject result;
+		try {
+			Submit submit = task.operation.build(worker.chainsql);
+			result = submit == null ? Util.errorObject("Operation built no transaction") : submit.submit(task.cond);
+		} catch (Exception e) {
+			result = Util.errorObject(e.toString());
+		}
+		synchronized (this) {
+			worker.running = false;
+			if (stalls(result)) {
+				stall(worker, System.currentTimeMillis());
+			} else {
+				worker.stalledUntil = 0;
+			}
+		}
+		task.complete(result);
+		dispatchAll();
+	}
+
+	// whether the account itself is held up, rather than the transaction being bad
+	private static boolean stalls(JSONObject result) {
+		if (!"error".equals(result.optString("status"))) {
+			return false;
+		}
+		String error = result.optString("error");
+		return result.optString("error_message").contains("timeout") ||
+				error.startsWith("ter") || error.startsWith("tel");
+	}
+}
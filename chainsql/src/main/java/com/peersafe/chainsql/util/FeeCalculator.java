@@ -0,0 +1,91 @@
+package com.peersafe.chainsql.util;
+
+import java.math.BigDecimal;
+
+import org.json.JSONObject;
+
+import com.peersafe.base.client.subscriptions.ServerInfo;
+import com.peersafe.base.core.coretypes.Amount;
+import com.peersafe.base.core.coretypes.Blob;
+import com.peersafe.base.core.serialized.enums.TransactionType;
+import com.peersafe.base.core.types.known.tx.Transaction;
+
+/**
+ * Transaction fees, counted in drops.
+ *
+ * A fee is the server's base fee at the current load, plus for ChainSQL
+ * transactions a fixed 1000 drops and drops_per_byte for every byte of Raw,
+ * or of Statements when there is no Raw. Payload sizes are read from the
+ * hex length in tx_json or from the blob fields of a transaction, so no
+ * JSON is built or parsed, and only the final Amount is allocated.
+ */
+public class FeeCalculator {
+	public static final long CHAINSQL_BASE_DROPS = 1000;
+	// used until the server has told us its drops_per_byte
+	public static final int DEFAULT_DROPS_PER_BYTE = 1000;
+	// used until the server has told us its fee
+	public static final long DEFAULT_BASE_DROPS = 50;
+
+	/**
+	 * The whole fee of a transaction.
+	 * @param serverInfo server state, primed.
+	 * @param tx transaction, with its Raw or Statements set.
+	 * @return fee.
+	 */
+	public static Amount fee(ServerInfo serverInfo, Transaction tx) {
+		return fromDrops(serverInfo.transactionFeeDrops(tx) + extraDrops(tx, serverInfo.drops_per_byte));
+	}
+
+	/**
+	 * The extra fee of a ChainSQL transaction, from its blob fields.
+	 * @param tx transaction.
+	 * @param dropsPerByte drops per byte of payload.
+	 * @return drops, 0 if it isn't a ChainSQL transaction.
+	 */
+	public static long extraDrops(Transaction tx, int dropsPerByte) {
+		TransactionType type = tx.transactionType();
+		if (!Util.isChainsqlType(type)) {
+			return 0;
+		}
+		Blob payload = tx.get(Blob.Raw);
+		if (payload == null) {
+			payload = tx.get(Blob.Statements);
+		}
+		return extraDrops(type, payload == null ? 0 : payload.toBytes().length, dropsPerByte);
+	}
+
+	/**
+	 * The extra fee of a ChainSQL transaction, from its tx_json.
+	 * @param json tx_json, Raw and Statements in hex.
+	 * @param dropsPerByte drops per byte of payload.
+	 * @param type transaction type.
+	 * @return drops, 0 if it isn't a ChainSQL transaction.
+	 */
+	public static long extraDrops(JSONObject json, int dropsPerByte, TransactionType type) {
+		if (!Util.isChainsqlType(type)) {
+			return 0;
+		}
+		long size = 0;
+		if (json.has("Raw")) {
+			size = json.getString("Raw").length() / 2;
+		} else if (json.has("Statements")) {
+			size = json.getString("Statements").length() / 2;
+		}
+		return extraDrops(type, size, dropsPerByte);
+	}
+
+	static long extraDrops(TransactionType type, long payloadBytes, int dropsPerByte) {
+		if (!Util.isChainsqlType(type)) {
+			return 0;
+		}
+		return CHAINSQL_BASE_DROPS + payloadBytes * dropsPerByte;
+	}
+
+	/**
+	 * @param drops drops.
+	 * @return ZXC amount.
+	 */
+	public static Amount fromDrops(long drops) {
+		return new Amount(BigDecimal.valueOf(drops, 6));
+	}
+}
@@ -2,7 +2,6 @@ package com.peersafe.chainsql.util;
 
 import static com.peersafe.base.config.Config.getB58IdentiferCodecs;
 
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -28,6 +27,16 @@ import com.peersafe.chainsql.crypto.EncryptCommon;
 
 public class Util {
 	private static String hexString = "0123456789ABCDEF";
+	private static final char[] HEX_DIGITS = hexString.toCharArray();
+	// value of each hex digit by char, -1 where indexOf used to find none
+	private static final int[] HEX_VALUES = new int[128];
+	static {
+		Arrays.fill(HEX_VALUES, -1);
+		for (int i = 0; i < 16; i++) {
+			HEX_VALUES[HEX_DIGITS[i]] = i;
+			HEX_VALUES[Character.toLowerCase(HEX_DIGITS[i])] = i;
+		}
+	}
 
 	/**
 	 * @param args String.
@@ -113,11 +122,19 @@ public class Util {
 	 * @return Hexed byte array.
 	 */
 	public static byte[] hexToBytes(String bytes){
-	    ByteArrayOutputStream baos=new ByteArrayOutputStream(bytes.length()/2);
+		int length = bytes.length();
+		if ((length & 1) != 0) {
+			throw new StringIndexOutOfBoundsException(length);
+		}
+		byte[] result = new byte[length >> 1];
 	    //将每2位16进制整数组装成一个字节
-	    for(int i=0;i<bytes.length();i+=2)
-	    	baos.write((hexString.indexOf(bytes.charAt(i))<<4 |hexString.indexOf(bytes.charAt(i+1))));
-	    return baos.toByteArray();
+	    for(int i=0, j=0;i<length;i+=2, j++)
+	    	result[j] = (byte)(hexValue(bytes.charAt(i))<<4 | hexValue(bytes.charAt(i+1)));
+	    return result;
+	}
+	
+	private static int hexValue(char c) {
+		return c < 128 ? HEX_VALUES[c] : -1;
 	}
 	
 	/**
@@ -140,24 +157,20 @@ public class Util {
 	}
 	 
 	private static String encode(byte[] bytes){
-		StringBuilder sb=new StringBuilder(bytes.length*2);
+		char[] chars = new char[bytes.length*2];
 		//将字节数组中每个字节拆解成2位16进制整数
-	    for(int i=0;i<bytes.length;i++)
+	    for(int i=0, j=0;i<bytes.length;i++)
 	    {
-		    sb.append(hexString.charAt((bytes[i]&0xf0)>>4));
-		    sb.append(hexString.charAt((bytes[i]&0x0f)>>0));
+		    chars[j++] = HEX_DIGITS[(bytes[i]&0xf0)>>4];
+		    chars[j++] = HEX_DIGITS[bytes[i]&0x0f];
 	    }
-	    return sb.toString();
+	    return new String(chars);
 	}
 	/*
 	* 将16进制数字解码成字符串,适用于所有字符（包括中文）
 	*/
 	private static String decode(String bytes){
-	    ByteArrayOutputStream baos=new ByteArrayOutputStream(bytes.length()/2);
-	    //将每2位16进制整数组装成一个字节
-	    for(int i=0;i<bytes.length();i+=2)
-	    	baos.write((hexString.indexOf(bytes.charAt(i))<<4 |hexString.indexOf(bytes.charAt(i+1))));
-	    return new String(baos.toByteArray());
+	    return new String(hexToBytes(bytes));
 	} 
 	
 	public static byte[] paddingPass(byte[] password,int keyLength){
@@ -350,22 +363,7 @@ public class Util {
 	 * @return  额外的费用
 	 */
 	public static Amount getExtraFee(JSONObject json,int drops_per_byte,TransactionType type) {
-	   	if(isChainsqlType(type)) {
-    		int zxcDrops = 1000;
-
-    		if(json.has("Raw")) {
-        		String rawHex = json.getString("Raw");
-        		int rawSize = rawHex.length()/2;
-				zxcDrops += rawSize * drops_per_byte;
-    		}else if(json.has("Statements")) {
-    			String statementsHex = json.getString("Statements");
-    			int stateSize = statementsHex.length()/2;
-				zxcDrops +=  stateSize * drops_per_byte;
-    		}
-    		return Amount.fromString(String.valueOf( zxcDrops));
-    	}else {
-    		return Amount.fromString("0");
-    	}
+		return FeeCalculator.fromDrops(FeeCalculator.extraDrops(json, drops_per_byte, type));
 	}
 	
 	public static String getNewAccountFromTx(JSONObject tx) {
@@ -4,6 +4,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;  
 import java.io.InputStream;  
 import java.io.OutputStream;  
+import java.util.Arrays;  
+import java.util.concurrent.ArrayBlockingQueue;  
+import java.util.zip.DataFormatException;  
 import java.util.zip.Deflater;  
 import java.util.zip.DeflaterOutputStream;  
 import java.util.zip.Inflater;  
@@ -18,6 +21,19 @@ import java.util.zip.InflaterInputStream;
  */  
 public abstract class ZLibUtils {  
   
+    // idle contexts kept per compression level; any beyond are ended
+    private static final int POOL_SIZE = 16;  
+    private static final int BUFFER_SIZE = 1024;  
+  
+    @SuppressWarnings("unchecked")  
+    private static final ArrayBlockingQueue<Deflater>[] deflaters = new ArrayBlockingQueue[11];  
+    private static final ArrayBlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<Inflater>(POOL_SIZE);  
+    static {  
+        for (int i = 0; i < deflaters.length; i++) {  
+            deflaters[i] = new ArrayBlockingQueue<Deflater>(POOL_SIZE);  
+        }  
+    }  
+  
     /** 
      * ѹ�� 
      *  
@@ -26,33 +42,41 @@ public abstract class ZLibUtils {
      * @return byte[] ѹ��������� 
      */  
     public static byte[] compress(byte[] data) {  
-        byte[] output = new byte[0];  
-  
-        Deflater compresser = new Deflater();  
+        return compress(data, Deflater.DEFAULT_COMPRESSION);  
+    }  
   
-        compresser.reset();  
-        compresser.setInput(data);  
-        compresser.finish();  
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);  
+    /** 
+     * Compress with a chosen level. 
+     *  
+     * @param data 
+     *            data to compress 
+     * @param level 
+     *            Deflater.BEST_SPEED (1) to Deflater.BEST_COMPRESSION (9), 
+     *            or Deflater.DEFAULT_COMPRESSION 
+     * @return byte[] the compressed data 
+     */  
+    public static byte[] compress(byte[] data, int level) {  
+        Deflater compresser = deflater(level);  
         try {  
-            byte[] buf = new byte[1024];  
+            compresser.setInput(data);  
+            compresser.finish();  
+            // zlib's compressBound, so a single pass normally fits
+            byte[] output = new byte[data.length + (data.length >> 12) + (data.length >> 14)  
+                    + (data.length >> 25) + 13];  
+            int length = 0;  
             while (!compresser.finished()) {  
-                int i = compresser.deflate(buf);  
-                bos.write(buf, 0, i);  
+                if (length == output.length) {  
+                    output = Arrays.copyOf(output, output.length * 2);  
+                }  
+                length += compresser.deflate(output, length, output.length - length);  
             }  
-            output = bos.toByteArray();  
+            return length == output.length ? output : Arrays.copyOf(output, length);  
         } catch (Exception e) {  
-            output = data;  
             e.printStackTrace();  
+            return data;  
         } finally {  
-            try {  
-                bos.close();  
-            } catch (IOException e) {  
-                e.printStackTrace();  
-            }  
+            release(compresser, level);  
         }  
-        compresser.end();  
-        return output;  
     }  
   
     /** 
@@ -65,19 +89,67 @@ public abstract class ZLibUtils {
      *            ����� 
      */  
     public static void compress(byte[] data, OutputStream os) {  
-        DeflaterOutputStream dos = new DeflaterOutputStream(os);  
+        compress(data, os, Deflater.DEFAULT_COMPRESSION);  
+    }  
   
+    /** 
+     * Compress to a stream with a chosen level. The stream is left open. 
+     *  
+     * @param data 
+     *            data to compress 
+     * @param os 
+     *            where the compressed data goes 
+     * @param level 
+     *            compression level, as for {@link #compress(byte[], int)} 
+     */  
+    public static void compress(byte[] data, OutputStream os, int level) {  
+        Deflater compresser = deflater(level);  
         try {  
+            DeflaterOutputStream dos = new DeflaterOutputStream(os, compresser, BUFFER_SIZE);  
             dos.write(data, 0, data.length);  
-  
             dos.finish();  
-  
             dos.flush();  
         } catch (IOException e) {  
             e.printStackTrace();  
+        } finally {  
+            release(compresser, level);  
         }  
     }  
   
+    /** 
+     * A stream compressing everything written to it into os, for data too 
+     * large to hold at once. It must be closed, which finishes the 
+     * compressed data, closes os and gives the context back to the pool. 
+     *  
+     * @param os 
+     *            where the compressed data goes 
+     * @param level 
+     *            compression level, as for {@link #compress(byte[], int)} 
+     * @return the stream to write the data to 
+     */  
+    public static OutputStream compressingStream(OutputStream os, final int level) {  
+        final Deflater compresser = deflater(level);  
+        return new DeflaterOutputStream(os, compresser, BUFFER_SIZE) {  
+            private boolean released = false;  
+  
+            @Override  
+            public void close() throws IOException {  
+                if (released) {  
+                    return;  
+                }  
+                released = true;  
+                try {  
+                    super.close();  
+                } catch (IOException e) {  
+                    // its state is unknown, so don't pool it
+                    compresser.end();  
+                    throw e;  
+                }  
+                release(compresser, level);  
+            }  
+        };  
+    }  
+  
     /** 
      * ��ѹ�� 
      *  
@@ -86,33 +158,29 @@ public abstract class ZLibUtils {
      * @return byte[] ��ѹ��������� 
      */  
     public static byte[] decompress(byte[] data) {  
-        byte[] output = new byte[0];  
-  
-        Inflater decompresser = new Inflater();  
-        decompresser.reset();  
-        decompresser.setInput(data);  
-  
-        ByteArrayOutputStream o = new ByteArrayOutputStream(data.length);  
+        Inflater decompresser = inflater();  
         try {  
-            byte[] buf = new byte[1024];  
+            decompresser.setInput(data);  
+            byte[] output = new byte[Math.max(64, data.length * 2)];  
+            int length = 0;  
             while (!decompresser.finished()) {  
-                int i = decompresser.inflate(buf);  
-                o.write(buf, 0, i);  
-            }
-            output = o.toByteArray();  
+                if (length == output.length) {  
+                    output = Arrays.copyOf(output, output.length * 2);  
+                }  
+                int i = decompresser.inflate(output, length, output.length - length);  
+                if (i == 0 && !decompresser.finished()
+                        && (decompresser.needsInput() || decompresser.needsDictionary())) {  
+                    throw new DataFormatException("truncated zlib data");  
+                }  
+                length += i;  
+            }  
+            return Arrays.copyOf(output, length);  
         } catch (Exception e) {  
-            output = data;  
             e.printStackTrace();  
+            return data;  
         } finally {  
-            try {  
-                o.close();  
-            } catch (IOException e) {  
-                e.printStackTrace();  
-            }  
+            release(decompresser);  
         }  
-  
-        decompresser.end();  
-        return output;  
     }  
   
     /** 
@@ -123,19 +191,75 @@ public abstract class ZLibUtils {
      * @return byte[] ��ѹ��������� 
      */  
     public static byte[] decompress(InputStream is) {  
-        InflaterInputStream iis = new InflaterInputStream(is);  
-        ByteArrayOutputStream o = new ByteArrayOutputStream(1024);  
+        Inflater decompresser = inflater();  
+        ByteArrayOutputStream o = new ByteArrayOutputStream(BUFFER_SIZE);  
         try {  
-            int i = 1024;  
-            byte[] buf = new byte[i];  
-  
-            while ((i = iis.read(buf, 0, i)) > 0) {  
+            InflaterInputStream iis = new InflaterInputStream(is, decompresser, BUFFER_SIZE);  
+            byte[] buf = new byte[BUFFER_SIZE];  
+            int i;  
+            while ((i = iis.read(buf, 0, buf.length)) > 0) {  
                 o.write(buf, 0, i);  
             }  
-  
         } catch (IOException e) {  
             e.printStackTrace();  
+        } finally {  
+            release(decompresser);  
         }  
         return o.toByteArray();  
     }  
+  
+    /** 
+     * A stream decompressing what it reads from is. Closing it closes is 
+     * and gives the context back to the pool. 
+     *  
+     * @param is 
+     *            compressed input 
+     * @return the stream to read the data from 
+     */  
+    public static InputStream decompressingStream(InputStream is) {  
+        final Inflater decompresser = inflater();  
+        return new InflaterInputStream(is, decompresser, BUFFER_SIZE) {  
+            private boolean released = false;  
+  
+            @Override  
+            public void close() throws IOException {  
+                if (released) {  
+                    return;  
+                }  
+                released = true;  
+                try {  
+                    super.close();  
+                } finally {  
+                    release(decompresser);  
+                }  
+            }  
+        };  
+    }  
+  
+    private static Deflater deflater(int level) {  
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {  
+            throw new IllegalArgumentException("invalid compression level: " + level);  
+        }  
+        Deflater compresser = deflaters[level + 1].poll();  
+        return compresser != null ? compresser : new Deflater(level);  
+    }  
+  
+    private static void release(Deflater compresser, int level) {  
+        compresser.reset();  
+        if (!deflaters[level + 1].offer(compresser)) {  
+            compresser.end();  
+        }  
+    }  
+  
+    private static Inflater inflater() {  
+        Inflater decompresser = inflaters.poll();  
+        return decompresser != null ? decompresser : new Inflater();  
+    }  
+  
+    private static void release(Inflater decompresser) {  
+        decompresser.reset();  
+        if (!inflaters.offer(decompresser)) {  
+            decompresser.end();  
+        }  
+    }  
 }  
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.peersafe.codegen;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+
+import com.peersafe.abi.datatypes.Bytes;
+import com.peersafe.abi.datatypes.Int;
+import com.peersafe.abi.datatypes.NumericType;
+import com.peersafe.abi.datatypes.StaticArray;
+import com.peersafe.abi.datatypes.Type;
+import com.peersafe.abi.datatypes.Uint;
+
+/**
+ * Generator class for the constructor references of the generated types, which lets the
+ * decoder create values without reflection.
+ */
+public class AbiTypeFactoriesGenerator extends Generator {
+
+    private static final String NUMERIC = "NUMERIC";
+    private static final String BYTES = "BYTES";
+    private static final String STATIC_ARRAYS = "STATIC_ARRAYS";
+    private static final String TYPE = "type";
+
+    public static void main(String[] args) throws Exception {
+        AbiTypeFactoriesGenerator abiTypeFactoriesGenerator = new AbiTypeFactoriesGenerator();
+        if (args.length == 1) {
+            abiTypeFactoriesGenerator.generate(args[0]);
+        } else {
+            abiTypeFactoriesGenerator.generate(
+                    System.getProperty("user.dir") + "/abi_chainsql/src/main/java/");
+        }
+    }
+
+    private void generate(String destinationDir) throws IOException {
+        String packageName = AbiTypesGenerator.createPackageName(Type.class);
+
+        TypeName typeName = ClassName.get(Type.class);
+        TypeName numericFactory = factoryOf(ClassName.get(BigInteger.class),
+                ClassName.get(NumericType.class));
+        TypeName bytesFactory = factoryOf(TypeName.get(byte[].class),
+                ClassName.get(Bytes.class));
+        TypeName staticArrayFactory = factoryOf(
+                ParameterizedTypeName.get(ClassName.get(List.class), typeName),
+                ParameterizedTypeName.get(ClassName.get(StaticArray.class), typeName));
+
+        CodeBlock.Builder staticBlock = CodeBlock.builder();
+        for (int bitSize = 8; bitSize <= Type.MAX_BIT_LENGTH; bitSize += 8) {
+            addFactory(staticBlock, NUMERIC, packageName, Uint.class.getSimpleName() + bitSize);
+            addFactory(staticBlock, NUMERIC, packageName, Int.class.getSimpleName() + bitSize);
+        }
+        for (int byteSize = 1; byteSize <= 32; byteSize++) {
+            addFactory(staticBlock, BYTES, packageName, Bytes.class.getSimpleName() + byteSize);
+        }
+        for (int length = 1; length <= StaticArray.MAX_SIZE_OF_STATIC_ARRAY; length++) {
+            addFactory(staticBlock, STATIC_ARRAYS, packageName,
+                    StaticArray.class.getSimpleName() + length);
+        }
+
+        TypeSpec typeSpec = TypeSpec
+                .classBuilder("AbiTypeFactories")
+                .addJavadoc(buildWarning(AbiTypeFactoriesGenerator.class))
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addField(registry(NUMERIC, numericFactory))
+                .addField(registry(BYTES, bytesFactory))
+                .addField(registry(STATIC_ARRAYS, staticArrayFactory))
+                .addStaticBlock(staticBlock.build())
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build())
+                .addMethod(lookup("numeric", NUMERIC, numericFactory))
+                .addMethod(lookup("bytes", BYTES, bytesFactory))
+                .addMethod(lookup("staticArray", STATIC_ARRAYS, staticArrayFactory))
+                .build();
+
+        write(packageName, typeSpec, destinationDir);
+    }
+
+    private static TypeName factoryOf(TypeName argument, TypeName result) {
+        return ParameterizedTypeName.get(ClassName.get(Function.class),
+                argument, WildcardTypeName.subtypeOf(result));
+    }
+
+    private static TypeName classKey() {
+        return ParameterizedTypeName.get(ClassName.get(Class.class),
+                WildcardTypeName.subtypeOf(Object.class));
+    }
+
+    private static FieldSpec registry(String name, TypeName factory) {
+        return FieldSpec
+                .builder(ParameterizedTypeName.get(ClassName.get(Map.class), classKey(), factory),
+                        name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("new $T<>()", HashMap.class)
+                .build();
+    }
+
+    private static MethodSpec lookup(String methodName, String registry, TypeName factory) {
+        return MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(classKey(), TYPE)
+                .returns(factory)
+                .addStatement("return $N.get($N)", registry, TYPE)
+                .build();
+    }
+
+    private static void addFactory(CodeBlock.Builder builder, String registry,
+                                   String packageName, String className) {
+        ClassName type = ClassName.get(packageName, className);
+        builder.addStatement("$N.put($T.class, $T::new)", registry, type, type);
+    }
+}
@@ -11,6 +11,7 @@ public abstract class FunctionWrapperGenerator {
 
     public static final String JAVA_TYPES_ARG = "--javaTypes";
     public static final String SOLIDITY_TYPES_ARG = "--solidityTypes";
+    public static final String STATIC_CODECS_ARG = "--staticCodecs";
 
     final File destinationDirLocation;
     final String basePackageName;
@@ -38,6 +39,26 @@ public abstract class FunctionWrapperGenerator {
         return useJavaNativeTypes;
     }
 
+    /**
+     * @return the arguments without the flag, which may appear anywhere
+     */
+    static String[] withoutFlag(String[] args, String flag) {
+        int count = 0;
+        for (String arg : args) {
+            if (!arg.equals(flag)) {
+                count++;
+            }
+        }
+        String[] result = new String[count];
+        int i = 0;
+        for (String arg : args) {
+            if (!arg.equals(flag)) {
+                result[i++] = arg;
+            }
+        }
+        return result;
+    }
+
     static String parsePositionalArg(String[] args, int idx) {
         if (args != null && args.length > idx) {
             return args[idx];
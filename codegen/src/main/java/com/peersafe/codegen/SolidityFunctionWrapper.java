@@ -10,13 +10,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.lang.model.element.Modifier;
 
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.web3j.crypto.Hash;
 import org.web3j.protocol.ObjectMapperFactory;
 import org.web3j.protocol.core.methods.response.AbiDefinition;
 import org.web3j.utils.Collection;
@@ -24,6 +27,7 @@ import org.web3j.utils.Strings;
 import org.web3j.utils.Version;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.peersafe.abi.EventEncoder;
 import com.peersafe.abi.EventValues;
 import com.peersafe.abi.FunctionEncoder;
 import com.peersafe.abi.TypeReference;
@@ -66,6 +70,8 @@ public class SolidityFunctionWrapper extends Generator {
     private static final String GAS_LIMIT = "gasLimit";
     private static final String DROP_VALUE = "dropValue";
     private static final String FUNC_NAME_PREFIX = "FUNC_";
+    private static final String METHOD_ID_SUFFIX = "_ID";
+    private static final String TOPIC_SUFFIX = "_TOPIC";
     private static final String CHAINSQL = "chainsql";
     private static final String CALLBACK = "cb";
 
@@ -81,16 +87,35 @@ public class SolidityFunctionWrapper extends Generator {
             + "codegen module</a> to update.\n";
 
     private final boolean useNativeJavaTypes;
+    private final boolean useStaticCodecs;
     private static final String regex = "(\\w+)(?:\\[(.*?)\\])(?:\\[(.*?)\\])?";
     private static final Pattern pattern = Pattern.compile(regex);
     private final GenerationReporter reporter;
+    // Canonical signature to the name of its selector constant
+    private final Map<String, String> methodIdConstants = new HashMap<>();
 
     public SolidityFunctionWrapper(boolean useNativeJavaTypes) {
         this(useNativeJavaTypes, new LogGenerationReporter(LOGGER));
     }
 
+    public SolidityFunctionWrapper(boolean useNativeJavaTypes, boolean useStaticCodecs) {
+        this(useNativeJavaTypes, useStaticCodecs, new LogGenerationReporter(LOGGER));
+    }
+
     public SolidityFunctionWrapper(boolean useNativeJavaTypes, GenerationReporter reporter) {
+        this(useNativeJavaTypes, false, reporter);
+    }
+
+    /**
+     * @param useNativeJavaTypes native Java types rather than Solidity types
+     * @param useStaticCodecs also emit static encoders and decoders per function and event,
+     *                        which the native type wrappers then call through
+     * @param reporter reporter
+     */
+    public SolidityFunctionWrapper(boolean useNativeJavaTypes, boolean useStaticCodecs,
+                                   GenerationReporter reporter) {
         this.useNativeJavaTypes = useNativeJavaTypes;
+        this.useStaticCodecs = useStaticCodecs;
         this.reporter = reporter;
     }
 
@@ -216,13 +241,21 @@ public class SolidityFunctionWrapper extends Generator {
                 .build();
     }
 
+    private FieldSpec createEventTopicDefinition(
+            String name, List<AbiDefinition.NamedType> inputs) {
+        return FieldSpec.builder(String.class, buildEventTopicName(name))
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", EventEncoder.buildEventSignature(buildSignature(name, inputs)))
+                .build();
+    }
+
     private FieldSpec createEventDefinition(
             String name,
             List<NamedTypeName> indexedParameters,
             List<NamedTypeName> nonIndexedParameters) {
 
         CodeBlock initializer = buildVariableLengthEventInitializer(
-                name, indexedParameters, nonIndexedParameters);
+                name, buildEventTopicName(name), indexedParameters, nonIndexedParameters);
 
         return FieldSpec.builder(Event.class, buildEventDefinitionName(name))
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
@@ -234,6 +267,10 @@ public class SolidityFunctionWrapper extends Generator {
         return eventName.toUpperCase() + "_EVENT";
     }
 
+    private String buildEventTopicName(String eventName) {
+        return buildEventDefinitionName(eventName) + TOPIC_SUFFIX;
+    }
+
     private List<MethodSpec> buildFunctionDefinitions(
             String className,
             TypeSpec.Builder classBuilder,
@@ -245,9 +282,14 @@ public class SolidityFunctionWrapper extends Generator {
         for (AbiDefinition functionDefinition : functionDefinitions) {
             if (functionDefinition.getType().equals("function")) {
                 methodSpecs.add(buildFunction(functionDefinition));
-                if(functionDefinition.isConstant()) {
+                // Static codec calls have <name>Async instead, whose future carries errors
+                if(functionDefinition.isConstant() && !hasStaticCodecBody(functionDefinition)) {
                 	methodSpecs.add(buildConstantFunctionAsync(functionDefinition));
                 }
+                if (useStaticCodecs && StaticCodecs.supports(functionDefinition)) {
+                    methodSpecs.addAll(
+                            buildStaticCodecs(className, functionDefinition, classBuilder));
+                }
             } else if (functionDefinition.getType().equals("event")) {
                 methodSpecs.addAll(buildEventFunctions(functionDefinition, classBuilder));
 
@@ -292,6 +334,8 @@ public class SolidityFunctionWrapper extends Generator {
         List<FieldSpec> fields = new ArrayList<>();
         Set<String> fieldNames = new HashSet<>();
         fieldNames.add(Contract.FUNC_DEPLOY);
+        // Selectors are declared per contract, a reused wrapper starts afresh
+        methodIdConstants.clear();
 
         for (AbiDefinition functionDefinition : functionDefinitions) {
             if (functionDefinition.getType().equals("function")) {
@@ -306,10 +350,159 @@ public class SolidityFunctionWrapper extends Generator {
                     fields.add(field);
                     fieldNames.add(funcName);
                 }
+
+                // Overloads share the name constant, each gets its own selector
+                String signature = buildSignature(funcName, functionDefinition.getInputs());
+                if (!methodIdConstants.containsKey(signature)) {
+                    String constName = funcNameToConst(funcName) + METHOD_ID_SUFFIX;
+                    for (int i = 2; fieldNames.contains(constName); i++) {
+                        constName = funcNameToConst(funcName) + METHOD_ID_SUFFIX + "_" + i;
+                    }
+                    fields.add(FieldSpec.builder(String.class, constName,
+                            Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                            .initializer("$S", buildMethodId(signature))
+                            .build());
+                    fieldNames.add(constName);
+                    methodIdConstants.put(signature, constName);
+                }
             }
         }
         return fields;
     }
+
+    private CodeBlock buildMethodId(AbiDefinition functionDefinition) {
+        String signature = buildSignature(
+                functionDefinition.getName(), functionDefinition.getInputs());
+        String constName = methodIdConstants.get(signature);
+        if (constName != null) {
+            return CodeBlock.of("$N", constName);
+        }
+        return CodeBlock.of("$S", buildMethodId(signature));
+    }
+
+    // The selector is the first 4 bytes of the signature hash
+    static String buildMethodId(String signature) {
+        return Hash.sha3String(signature).substring(0, 10);
+    }
+
+    // "" for the first function of a name, "_2" and so on for its overloads
+    private String overloadSuffix(AbiDefinition functionDefinition) {
+        String constName = methodIdConstants.get(buildSignature(
+                functionDefinition.getName(), functionDefinition.getInputs()));
+        String prefix = funcNameToConst(functionDefinition.getName()) + METHOD_ID_SUFFIX;
+        return constName != null && constName.startsWith(prefix)
+                ? constName.substring(prefix.length()) : "";
+    }
+
+    private List<MethodSpec> buildStaticCodecs(
+            String className, AbiDefinition functionDefinition, TypeSpec.Builder classBuilder) {
+        String functionName = functionDefinition.getName();
+        String overload = overloadSuffix(functionDefinition);
+        String methodIdBytes = funcNameToConst(functionName) + METHOD_ID_SUFFIX + overload
+                + "_BYTES";
+
+        classBuilder.addField(StaticCodecs.buildMethodIdField(
+                methodIdBytes, buildMethodId(functionDefinition)));
+
+        List<MethodSpec> methods = new ArrayList<>();
+        methods.add(StaticCodecs.buildEncoder(StaticCodecs.encoderName(functionName, overload),
+                methodIdBytes, functionDefinition.getInputs()));
+        if (functionDefinition.isConstant()) {
+            String decoder = StaticCodecs.decoderName(functionName, overload);
+            methods.add(StaticCodecs.buildDecoder(decoder, functionDefinition.getOutputs()));
+
+            TypeName returnType = StaticCodecs.returnType(functionDefinition.getOutputs());
+            MethodSpec.Builder async = MethodSpec.methodBuilder(functionName + "Async")
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(ParameterizedTypeName.get(
+                            ClassName.get(CompletableFuture.class), returnType));
+            addStaticCodecParameters(async, functionDefinition.getInputs());
+            async.addStatement("return executeRawCallAsync($N($L)).thenApply($L::$N)",
+                    StaticCodecs.encoderName(functionName, overload),
+                    StaticCodecs.argumentNames(functionDefinition.getInputs()),
+                    className, decoder);
+            methods.add(async.build());
+        }
+        return methods;
+    }
+
+    private boolean hasStaticCodecBody(AbiDefinition functionDefinition) {
+        return useStaticCodecs && useNativeJavaTypes && StaticCodecs.supports(functionDefinition);
+    }
+
+    private static void addStaticCodecParameters(
+            MethodSpec.Builder methodBuilder, List<AbiDefinition.NamedType> inputs) {
+        for (int i = 0; i < inputs.size(); i++) {
+            methodBuilder.addParameter(StaticCodecs.nativeType(inputs.get(i).getType()),
+                    createValidParamName(inputs.get(i).getName(), i));
+        }
+    }
+
+    // The native type wrapper body over the static codecs, the same signature as the generic one
+    private void buildStaticCodecFunction(
+            AbiDefinition functionDefinition, MethodSpec.Builder methodBuilder) {
+        String functionName = functionDefinition.getName();
+        String overload = overloadSuffix(functionDefinition);
+        String encode = StaticCodecs.encoderName(functionName, overload);
+        String args = StaticCodecs.argumentNames(functionDefinition.getInputs());
+
+        addStaticCodecParameters(methodBuilder, functionDefinition.getInputs());
+        if (functionDefinition.isConstant()) {
+            methodBuilder.addException(ContractCallException.class)
+                    .returns(StaticCodecs.returnType(functionDefinition.getOutputs()))
+                    .addStatement("return $N(executeRawCall($N($L)))",
+                            StaticCodecs.decoderName(functionName, overload), encode, args);
+        } else {
+            if (functionDefinition.hasOutputs()) {
+                //CHECKSTYLE:OFF
+                reporter.report(String.format(
+                        "Definition of the function %s returns a value but is not defined as a view function. "
+                                + "Please ensure it contains the view modifier if you want to read the return value",
+                        functionName));
+                //CHECKSTYLE:ON
+            }
+            methodBuilder.returns(TypeName.get(Contract.class));
+            if (functionDefinition.isPayable()) {
+                methodBuilder.addParameter(BigInteger.class, DROP_VALUE);
+                methodBuilder.addStatement("return executeTransaction($N($L), $N, $N)",
+                        encode, args, DROP_VALUE, funcNameToConst(functionName));
+            } else {
+                methodBuilder.addStatement("return executeTransaction($N($L), $T.ZERO, $N)",
+                        encode, args, BigInteger.class, funcNameToConst(functionName));
+            }
+        }
+    }
+
+    static String buildSignature(String name, List<AbiDefinition.NamedType> inputs) {
+        StringBuilder result = new StringBuilder(name).append('(');
+        for (int i = 0; i < inputs.size(); i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(canonicalType(inputs.get(i).getType()));
+        }
+        return result.append(')').toString();
+    }
+
+    // The selector is hashed over canonical names, "uint" is "uint256" and so on
+    static String canonicalType(String type) {
+        String trimmed = trimStorageDeclaration(type);
+        int array = trimmed.indexOf('[');
+        String base = array == -1 ? trimmed : trimmed.substring(0, array);
+        String dimensions = array == -1 ? "" : trimmed.substring(array);
+        switch (base) {
+            case "uint":
+            case "int":
+                return base + "256" + dimensions;
+            case "ufixed":
+            case "fixed":
+                return base + "128x18" + dimensions;
+            case "byte":
+                return "bytes1" + dimensions;
+            default:
+                return trimmed;
+        }
+    }
     
     private static MethodSpec buildConstructor() {
         return MethodSpec.constructorBuilder()
@@ -670,6 +863,11 @@ public class SolidityFunctionWrapper extends Generator {
                 MethodSpec.methodBuilder(functionName)
                         .addModifiers(Modifier.PUBLIC);
 
+        if (hasStaticCodecBody(functionDefinition)) {
+            buildStaticCodecFunction(functionDefinition, methodBuilder);
+            return methodBuilder.build();
+        }
+
         String inputParams = addParameters(methodBuilder, functionDefinition.getInputs());
 
         List<TypeName> outputParameterTypes = buildTypeNames(functionDefinition.getOutputs());
@@ -724,9 +922,10 @@ public class SolidityFunctionWrapper extends Generator {
             methodBuilder.returns(nativeReturnTypeName);
 
             methodBuilder.addStatement("final $T function = "
-                            + "new $T($N, \n$T.<$T>asList($L), "
+                            + "new $T($N, $L, \n$T.<$T>asList($L), "
                             + "\n$T.<$T<?>>asList(new $T<$T>() {}))",
                     Function.class, Function.class, funcNameToConst(functionName),
+                    buildMethodId(functionDefinition),
                     Arrays.class, Type.class, inputParams,
                     Arrays.class, TypeReference.class,
                     TypeReference.class, typeName);
@@ -795,7 +994,8 @@ public class SolidityFunctionWrapper extends Generator {
             methodBuilder.returns(parameterizedTupleType);
 
             buildVariableLengthReturnFunctionConstructor(
-                    methodBuilder, functionName, inputParams, outputParameterTypes);
+                    methodBuilder, functionName, buildMethodId(functionDefinition),
+                    inputParams, outputParameterTypes);
 
             buildTupleResultContainer(methodBuilder, parameterizedTupleType, outputParameterTypes);
         }
@@ -829,9 +1029,10 @@ public class SolidityFunctionWrapper extends Generator {
         	methodBuilder.addParameter(typeName,CALLBACK,Modifier.FINAL);
         	
             methodBuilder.addStatement("final $T function = "
-                            + "new $T($N, \n$T.<$T>asList($L), "
+                            + "new $T($N, $L, \n$T.<$T>asList($L), "
                             + "\n$T.<$T<?>>asList(new $T<$T>() {}))",
                     Function.class, Function.class, funcNameToConst(functionName),
+                    buildMethodId(functionDefinition),
                     Arrays.class, Type.class, inputParams,
                     Arrays.class, TypeReference.class,
                     TypeReference.class, typeName0);
@@ -918,7 +1119,8 @@ public class SolidityFunctionWrapper extends Generator {
 //            methodBuilder.returns(parameterizedTupleType);
 
             buildVariableLengthReturnFunctionConstructor(
-                    methodBuilder, functionName, inputParams, outputParameterTypes);
+                    methodBuilder, functionName, buildMethodId(functionDefinition),
+                    inputParams, outputParameterTypes);
             
             methodBuilder.addParameter(ParameterizedTypeName.get(
                     ClassName.get(Callback.class), parameterizedTupleType),CALLBACK,Modifier.FINAL);
@@ -956,10 +1158,10 @@ public class SolidityFunctionWrapper extends Generator {
 //        methodBuilder.returns(buildRemoteCall(TypeName.get(TransactionReceipt.class)));
         methodBuilder.returns(TypeName.get(Contract.class));
 
-        methodBuilder.addStatement("final $T function = new $T(\n$N, \n$T.<$T>asList($L), \n$T"
+        methodBuilder.addStatement("final $T function = new $T(\n$N, $L, \n$T.<$T>asList($L), \n$T"
                         + ".<$T<?>>emptyList())",
                 Function.class, Function.class, funcNameToConst(functionName),
-                Arrays.class, Type.class, inputParams, Collections.class,
+                buildMethodId(functionDefinition), Arrays.class, Type.class, inputParams, Collections.class,
                 TypeReference.class);
         if (functionDefinition.isPayable()) {
             methodBuilder.addStatement(
@@ -1138,6 +1340,30 @@ public class SolidityFunctionWrapper extends Generator {
         return transactionMethodBuilder.build();
     }
 
+    private MethodSpec buildStaticCodecEventFunction(
+            String responseClassName, String functionName, String decoder) {
+        TypeSpec callback = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(Callback.class, JSONObject.class))
+                .addMethod(MethodSpec.methodBuilder("called")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(JSONObject.class, "log")
+                        .addStatement("cb.called($N(eventTopics(log), eventData(log)))", decoder)
+                        .build())
+                .build();
+
+        return MethodSpec.methodBuilder(
+                        "on" + Strings.capitaliseFirstLetter(functionName) + "Events")
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterizedTypeName.get(
+                        ClassName.get(Callback.class), ClassName.get("", responseClassName)),
+                        "cb", Modifier.FINAL)
+                .returns(TypeName.VOID)
+                .addStatement("super.onLog(" + buildEventDefinitionName(functionName) + ", $L)",
+                        callback)
+                .build();
+    }
+
     public List<MethodSpec> buildEventFunctions(
             AbiDefinition functionDefinition,
             TypeSpec.Builder classBuilder) throws ClassNotFoundException {
@@ -1163,6 +1389,8 @@ public class SolidityFunctionWrapper extends Generator {
             }
         }
 
+        // Hashed in declaration order, which is what the log topic is
+        classBuilder.addField(createEventTopicDefinition(functionName, inputs));
         classBuilder.addField(createEventDefinition(functionName,
                 indexedParameters, nonIndexedParameters));
 
@@ -1170,6 +1398,13 @@ public class SolidityFunctionWrapper extends Generator {
                 nonIndexedParameters));
 
         List<MethodSpec> methods = new ArrayList<>();
+        if (useStaticCodecs && useNativeJavaTypes && StaticCodecs.supports(inputs)) {
+            String decoder = StaticCodecs.eventDecoderName(functionName);
+            methods.add(StaticCodecs.buildEventDecoder(
+                    decoder, ClassName.get("", responseClassName), inputs));
+            methods.add(buildStaticCodecEventFunction(responseClassName, functionName, decoder));
+            return methods;
+        }
         methods.add(buildEventFunction(responseClassName,
               functionName, indexedParameters, nonIndexedParameters));
 //        methods.add(buildEventTransactionReceiptFunction(responseClassName,
@@ -1282,13 +1517,15 @@ public class SolidityFunctionWrapper extends Generator {
     }
 
     private static void buildVariableLengthReturnFunctionConstructor(
-            MethodSpec.Builder methodBuilder, String functionName, String inputParameters,
-            List<TypeName> outputParameterTypes) throws ClassNotFoundException {
+            MethodSpec.Builder methodBuilder, String functionName, CodeBlock methodId,
+            String inputParameters, List<TypeName> outputParameterTypes)
+            throws ClassNotFoundException {
 
         List<Object> objects = new ArrayList<>();
         objects.add(Function.class);
         objects.add(Function.class);
         objects.add(funcNameToConst(functionName));
+        objects.add(methodId);
 
         objects.add(Arrays.class);
         objects.add(Type.class);
@@ -1306,7 +1543,7 @@ public class SolidityFunctionWrapper extends Generator {
                 ", ",
                 typeName -> "new $T<$T>() {}");
 
-        methodBuilder.addStatement("final $T function = new $T($N, \n$T.<$T>asList($L), \n$T"
+        methodBuilder.addStatement("final $T function = new $T($N, $L, \n$T.<$T>asList($L), \n$T"
                 + ".<$T<?>>asList("
                 + asListParams + "))", objects.toArray());
     }
@@ -1446,12 +1683,14 @@ public class SolidityFunctionWrapper extends Generator {
     
     private static CodeBlock buildVariableLengthEventInitializer(
             String eventName,
+            String topicName,
             List<NamedTypeName> indexedParameterTypes,
             List<NamedTypeName> nonIndexedParameterTypes) {
 
         List<Object> objects = new ArrayList<>();
         objects.add(Event.class);
         objects.add(eventName);
+        objects.add(topicName);
 
         objects.add(Arrays.class);
         objects.add(TypeReference.class);
@@ -1478,7 +1717,7 @@ public class SolidityFunctionWrapper extends Generator {
                 typeName -> "new $T<$T>() {}");
 
         return CodeBlock.builder()
-                .addStatement("new $T($S, \n"
+                .addStatement("new $T($S, $N, \n"
                         + "$T.<$T<?>>asList(" + indexedAsListParams + "),\n"
                         + "$T.<$T<?>>asList(" + nonIndexedAsListParams + "))", objects.toArray())
                 .build();
@@ -24,21 +24,25 @@ public class SolidityFunctionWrapperGenerator extends FunctionWrapperGenerator {
             + "codegen_chainsql.jar "
             + "<input binary file>.bin <input abi file>.abi "
             + "-p|--package <base package name> "
-            + "-o|--output <destination base directory>";
+            + "-o|--output <destination base directory> "
+            + "[" + STATIC_CODECS_ARG + "]";
 
     private final String binaryFileLocation;
     private final String absFileLocation;
+    private final boolean useStaticCodecs;
 
     private SolidityFunctionWrapperGenerator(
             String binaryFileLocation,
             String absFileLocation,
             String destinationDirLocation,
             String basePackageName,
-            boolean useJavaNativeTypes) {
+            boolean useJavaNativeTypes,
+            boolean useStaticCodecs) {
 
         super(destinationDirLocation, basePackageName, useJavaNativeTypes);
         this.binaryFileLocation = binaryFileLocation;
         this.absFileLocation = absFileLocation;
+        this.useStaticCodecs = useStaticCodecs;
     }
 
     public static void run(String[] args) throws Exception {
@@ -51,6 +55,9 @@ public class SolidityFunctionWrapperGenerator extends FunctionWrapperGenerator {
 
     public static void main(String[] args) throws Exception {
 
+        boolean useStaticCodecs = Arrays.asList(args).contains(STATIC_CODECS_ARG);
+        args = withoutFlag(args, STATIC_CODECS_ARG);
+
         String[] fullArgs;
         if (args.length == 6) {
             fullArgs = new String[args.length + 1];
@@ -83,7 +90,8 @@ public class SolidityFunctionWrapperGenerator extends FunctionWrapperGenerator {
                 absFileLocation,
                 destinationDirLocation,
                 basePackageName,
-                useJavaNativeTypes)
+                useJavaNativeTypes,
+                useStaticCodecs)
                 .generate();
     }
 
@@ -120,7 +128,7 @@ public class SolidityFunctionWrapperGenerator extends FunctionWrapperGenerator {
         } else {
             String className = Strings.capitaliseFirstLetter(contractName);
             System.out.println("Generating " + basePackageName + "." + className + " ... ");
-            new SolidityFunctionWrapper(useJavaNativeTypes).generateJavaFiles(
+            new SolidityFunctionWrapper(useJavaNativeTypes, useStaticCodecs).generateJavaFiles(
                     contractName, binary, abi, destinationDirLocation.toString(), basePackageName);
             System.out.println("File written to " + destinationDirLocation.toString() + "\n");
         }
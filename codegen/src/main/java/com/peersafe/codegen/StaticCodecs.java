@@ -0,0 +1,322 @@
+package com.peersafe.codegen;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.lang.model.element.Modifier;
+
+import org.web3j.protocol.core.methods.response.AbiDefinition;
+import org.web3j.utils.Strings;
+
+import com.peersafe.base.core.coretypes.AccountID;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * Builds the static encode and decode methods of wrappers generated with
+ * {@link FunctionWrapperGenerator#STATIC_CODECS_ARG}.
+ *
+ * <p>Only elementary types are covered, the static ones read and written at
+ * offsets fixed at generation time and string/bytes through their offset word.
+ * Functions and events with anything else keep the generic codecs.
+ */
+final class StaticCodecs {
+
+    // By name, as codegen builds against the published abi_chainsql
+    private static final ClassName WORD_CODEC = ClassName.get("com.peersafe.abi", "WordCodec");
+    private static final String TUPLE_PACKAGE = "org.web3j.tuples.generated";
+
+    private static final int WORD = 32;
+    private static final int METHOD_ID_LENGTH = 4;
+
+    private static final String OUT = "abiOut";
+    private static final String TAIL = "abiTail";
+    private static final String DATA = "data";
+    private static final String TOPICS = "topics";
+
+    private static final Pattern SIZED = Pattern.compile("(uint|int|bytes)(\\d+)");
+
+    private enum Kind { UINT, INT, ADDRESS, BOOL, BYTES, STRING, DYNAMIC_BYTES }
+
+    private static final class Word {
+        final Kind kind;
+        final int size;
+
+        Word(Kind kind, int size) {
+            this.kind = kind;
+            this.size = size;
+        }
+
+        boolean isDynamic() {
+            return kind == Kind.STRING || kind == Kind.DYNAMIC_BYTES;
+        }
+    }
+
+    private StaticCodecs() { }
+
+    static boolean supports(List<AbiDefinition.NamedType> namedTypes) {
+        for (AbiDefinition.NamedType namedType : namedTypes) {
+            if (wordOf(namedType.getType()) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean supports(AbiDefinition functionDefinition) {
+        return supports(functionDefinition.getInputs())
+                && supports(functionDefinition.getOutputs())
+                && (!functionDefinition.isConstant() || functionDefinition.hasOutputs());
+    }
+
+    static String encoderName(String functionName, String overload) {
+        return "encode" + Strings.capitaliseFirstLetter(functionName) + overload;
+    }
+
+    static String decoderName(String functionName, String overload) {
+        return "decode" + Strings.capitaliseFirstLetter(functionName) + overload;
+    }
+
+    static String eventDecoderName(String eventName) {
+        return "decode" + Strings.capitaliseFirstLetter(eventName) + "Event";
+    }
+
+    static TypeName nativeType(String type) {
+        switch (wordOf(type).kind) {
+            case UINT:
+            case INT:
+                return ClassName.get(BigInteger.class);
+            case ADDRESS:
+            case STRING:
+                return ClassName.get(String.class);
+            case BOOL:
+                return ClassName.get(Boolean.class);
+            default:
+                return TypeName.get(byte[].class);
+        }
+    }
+
+    /**
+     * @return what the decoder of these outputs returns, a tuple for several
+     */
+    static TypeName returnType(List<AbiDefinition.NamedType> outputs) {
+        if (outputs.size() == 1) {
+            return nativeType(outputs.get(0).getType());
+        }
+        TypeName[] typeArguments = new TypeName[outputs.size()];
+        for (int i = 0; i < typeArguments.length; i++) {
+            typeArguments[i] = nativeType(outputs.get(i).getType());
+        }
+        return ParameterizedTypeName.get(
+                ClassName.get(TUPLE_PACKAGE, "Tuple" + outputs.size()), typeArguments);
+    }
+
+    /**
+     * @return the arguments to pass an encoder, in order
+     */
+    static String argumentNames(List<AbiDefinition.NamedType> inputs) {
+        List<String> names = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            names.add(paramName(inputs, i));
+        }
+        return String.join(", ", names);
+    }
+
+    /**
+     * @return the selector as bytes, for the encoders to put first
+     */
+    static FieldSpec buildMethodIdField(String name, CodeBlock methodId) {
+        return FieldSpec.builder(byte[].class, name,
+                Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$T.selector($L)", WORD_CODEC, methodId)
+                .build();
+    }
+
+    static MethodSpec buildEncoder(
+            String methodName, String methodIdField, List<AbiDefinition.NamedType> inputs) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(byte[].class);
+
+        CodeBlock.Builder length = CodeBlock.builder()
+                .add("$L", METHOD_ID_LENGTH + inputs.size() * WORD);
+        List<String> dynamic = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            String name = paramName(inputs, i);
+            Word word = wordOf(inputs.get(i).getType());
+            builder.addParameter(nativeType(inputs.get(i).getType()), name);
+            if (word.isDynamic()) {
+                String encoded = name + "Abi";
+                if (word.kind == Kind.STRING) {
+                    builder.addStatement("byte[] $N = $T.utf8($N)", encoded, WORD_CODEC, name);
+                } else {
+                    builder.addStatement("byte[] $N = $N", encoded, name);
+                }
+                length.add(" + $T.dynamicLength($N)", WORD_CODEC, encoded);
+                dynamic.add(encoded);
+            }
+        }
+
+        builder.addStatement("$T $N = $T.allocate($L)", ByteBuffer.class, OUT,
+                ByteBuffer.class, length.build());
+        builder.addStatement("$N.put($N)", OUT, methodIdField);
+        if (!dynamic.isEmpty()) {
+            builder.addStatement("int $N = $L", TAIL, inputs.size() * WORD);
+        }
+        int dynamicIndex = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            String name = paramName(inputs, i);
+            Word word = wordOf(inputs.get(i).getType());
+            switch (word.kind) {
+                case UINT:
+                    builder.addStatement("$T.putUint($N, $N, $L)",
+                            WORD_CODEC, OUT, name, word.size);
+                    break;
+                case INT:
+                    builder.addStatement("$T.putInt($N, $N, $L)",
+                            WORD_CODEC, OUT, name, word.size);
+                    break;
+                case ADDRESS:
+                    builder.addStatement("$T.putAddress($N, $N)", WORD_CODEC, OUT, name);
+                    break;
+                case BOOL:
+                    builder.addStatement("$T.putBool($N, $N)", WORD_CODEC, OUT, name);
+                    break;
+                case BYTES:
+                    builder.addStatement("$T.putBytes($N, $N, $L)",
+                            WORD_CODEC, OUT, name, word.size);
+                    break;
+                default:
+                    builder.addStatement("$T.putLength($N, $N)", WORD_CODEC, OUT, TAIL);
+                    if (++dynamicIndex < dynamic.size()) {
+                        builder.addStatement("$N += $T.dynamicLength($N)",
+                                TAIL, WORD_CODEC, dynamic.get(dynamicIndex - 1));
+                    }
+                    break;
+            }
+        }
+        for (String encoded : dynamic) {
+            builder.addStatement("$T.putDynamicBytes($N, $N)", WORD_CODEC, OUT, encoded);
+        }
+        return builder.addStatement("return $N.array()", OUT).build();
+    }
+
+    static MethodSpec buildDecoder(String methodName, List<AbiDefinition.NamedType> outputs) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(byte[].class, DATA)
+                .returns(returnType(outputs));
+
+        if (outputs.size() == 1) {
+            String type = outputs.get(0).getType();
+            if (wordOf(type).kind == Kind.ADDRESS) {
+                // as the generic wrappers return a single address
+                builder.addStatement("return $T.fromString($L.substring(2)).toString()",
+                        AccountID.class, decodeWord(type, DATA, 0));
+            } else {
+                builder.addStatement("return $L", decodeWord(type, DATA, 0));
+            }
+        } else {
+            CodeBlock.Builder values = CodeBlock.builder();
+            for (int i = 0; i < outputs.size(); i++) {
+                values.add(i == 0 ? "\n$L" : ",\n$L",
+                        decodeWord(outputs.get(i).getType(), DATA, i * WORD));
+            }
+            builder.addStatement("return new $T($L)", returnType(outputs), values.build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decodes a log into the event response, indexed values from the topics
+     * and the rest from the data. Indexed strings and bytes are their hash.
+     */
+    static MethodSpec buildEventDecoder(
+            String methodName, ClassName responseType, List<AbiDefinition.NamedType> inputs) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(byte[][].class, TOPICS)
+                .addParameter(byte[].class, DATA)
+                .returns(responseType)
+                .addStatement("$1T response = new $1T()", responseType);
+
+        int topic = 1;
+        int offset = 0;
+        for (AbiDefinition.NamedType input : inputs) {
+            String field = input.getName();
+            if (!input.isIndexed()) {
+                builder.addStatement("response.$N = $L",
+                        field, decodeWord(input.getType(), DATA, offset));
+                offset += WORD;
+            } else if (wordOf(input.getType()).isDynamic()) {
+                builder.addStatement("response.$N = $N[$L]", field, TOPICS, topic++);
+            } else {
+                builder.addStatement("response.$N = $L", field,
+                        decodeWord(input.getType(), TOPICS + "[" + topic++ + "]", 0));
+            }
+        }
+        return builder.addStatement("return response").build();
+    }
+
+    private static CodeBlock decodeWord(String type, String input, int offset) {
+        Word word = wordOf(type);
+        switch (word.kind) {
+            case UINT:
+                return CodeBlock.of("$T.getUint($L, $L)", WORD_CODEC, input, offset);
+            case INT:
+                return CodeBlock.of("$T.getInt($L, $L)", WORD_CODEC, input, offset);
+            case ADDRESS:
+                return CodeBlock.of("$T.getAddress($L, $L)", WORD_CODEC, input, offset);
+            case BOOL:
+                return CodeBlock.of("$T.getBool($L, $L)", WORD_CODEC, input, offset);
+            case BYTES:
+                return CodeBlock.of("$T.getBytes($L, $L, $L)",
+                        WORD_CODEC, input, offset, word.size);
+            case STRING:
+                return CodeBlock.of("$T.getString($L, $L)", WORD_CODEC, input, offset);
+            default:
+                return CodeBlock.of("$T.getDynamicBytes($L, $L)", WORD_CODEC, input, offset);
+        }
+    }
+
+    private static String paramName(List<AbiDefinition.NamedType> namedTypes, int i) {
+        return SolidityFunctionWrapper.createValidParamName(namedTypes.get(i).getName(), i);
+    }
+
+    private static Word wordOf(String type) {
+        String canonical = SolidityFunctionWrapper.canonicalType(type);
+        switch (canonical) {
+            case "address":
+                return new Word(Kind.ADDRESS, WORD);
+            case "bool":
+                return new Word(Kind.BOOL, WORD);
+            case "string":
+                return new Word(Kind.STRING, 0);
+            case "bytes":
+                return new Word(Kind.DYNAMIC_BYTES, 0);
+            default:
+                break;
+        }
+        Matcher matcher = SIZED.matcher(canonical);
+        if (!matcher.matches()) {
+            return null;
+        }
+        int size = Integer.parseInt(matcher.group(2));
+        switch (matcher.group(1)) {
+            case "uint":
+                return new Word(Kind.UINT, size);
+            case "int":
+                return new Word(Kind.INT, size);
+            default:
+                return new Word(Kind.BYTES, size);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.peersafe.codegen;
+
+import org.junit.Test;
+
+
+public class AbiTypeFactoriesGeneratorTest extends TempFileProvider {
+
+    @Test
+    public void testGeneration() throws Exception {
+        AbiTypeFactoriesGenerator.main(new String[] { tempDirPath });
+    }
+}
@@ -10,7 +10,9 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaCompiler;
@@ -95,18 +97,19 @@ public class SolidityFunctionWrapperGeneratorTest extends TempFileProvider {
     }
 
     private void testCodeGeneration(
-            String contractName, String inputFileName, String packageName, String types)
+            String contractName, String inputFileName, String packageName, String... options)
             throws Exception {
 
-        SolidityFunctionWrapperGenerator.main(Arrays.asList(
-                types,
+        List<String> args = new ArrayList<>(Arrays.asList(options));
+        args.addAll(Arrays.asList(
                 solidityBaseDir + File.separator + contractName + File.separator
                         + "build" + File.separator + inputFileName + ".bin",
                 solidityBaseDir + File.separator + contractName + File.separator
                         + "build" + File.separator + inputFileName + ".abi",
                 "-p", packageName,
-                "-o", tempDirPath
-        ).toArray(new String[0])); // https://shipilev.net/blog/2016/arrays-wisdom-ancients/
+                "-o", tempDirPath));
+        SolidityFunctionWrapperGenerator.main(
+                args.toArray(new String[0])); // https://shipilev.net/blog/2016/arrays-wisdom-ancients/
 
         verifyGeneratedCode(tempDirPath + File.separator
                 + packageName.replace('.', File.separatorChar) + File.separator
@@ -444,6 +444,8 @@ public class SolidityFunctionWrapperTest extends TempFileProvider {
         String expected =
                 "class testClass {\n" +
                         "  public static final java.lang.String FUNC_FUNCTIONNAME = \"functionName\";\n" +
+                        "\n" +
+                        "  public static final java.lang.String FUNC_FUNCTIONNAME_ID = \"0x7dd4f3c4\";\n" +
                         "}\n";
         //CHECKSTYLE:ON
 
@@ -451,4 +453,25 @@ public class SolidityFunctionWrapperTest extends TempFileProvider {
         assertThat(builder.build().toString(), is(expected));
     }
 
+    @Test
+    public void testBuildFuncNameConstantsPerContract() throws Exception {
+        AbiDefinition functionDefinition = new AbiDefinition(
+                false,
+                Arrays.asList(
+                        new AbiDefinition.NamedType("param", "uint8")),
+                "functionName",
+                Collections.emptyList(),
+                "function",
+                true);
+        solidityFunctionWrapper.buildFuncNameConstants(
+                Collections.singletonList(functionDefinition));
+
+        // a second contract with the same signature declares its own selector
+        TypeSpec.Builder builder = TypeSpec.classBuilder("otherClass");
+        builder.addFields(solidityFunctionWrapper
+                .buildFuncNameConstants(Collections.singletonList(functionDefinition)));
+
+        assertThat(builder.build().toString().contains(" FUNC_FUNCTIONNAME_ID = "), is(true));
+    }
+
 }
@@ -0,0 +1,184 @@
+package com.peersafe.codegen;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.element.Modifier;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+import org.web3j.protocol.core.methods.response.AbiDefinition;
+import org.web3j.tuples.generated.Tuple4;
+
+import com.peersafe.abi.FunctionEncoder;
+import com.peersafe.abi.FunctionReturnDecoder;
+import com.peersafe.abi.TypeReference;
+import com.peersafe.abi.datatypes.Address;
+import com.peersafe.abi.datatypes.Bool;
+import com.peersafe.abi.datatypes.DynamicBytes;
+import com.peersafe.abi.datatypes.Function;
+import com.peersafe.abi.datatypes.Type;
+import com.peersafe.abi.datatypes.Utf8String;
+import com.peersafe.abi.datatypes.generated.Bytes4;
+import com.peersafe.abi.datatypes.generated.Int16;
+import com.peersafe.abi.datatypes.generated.Int8;
+import com.peersafe.abi.datatypes.generated.Uint256;
+import com.peersafe.abi.datatypes.generated.Uint8;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Compiles the static codecs of a function and checks them against
+ * {@link FunctionEncoder} and {@link FunctionReturnDecoder}.
+ */
+public class StaticCodecsTest extends TempFileProvider {
+
+    private static final String PACKAGE = "com.peersafe.codegen.generated";
+    private static final String ADDRESS = "0x00000000000000000000000000000000000000ff";
+
+    private static final List<AbiDefinition.NamedType> INPUTS = Arrays.asList(
+            new AbiDefinition.NamedType("a", "uint8"),
+            new AbiDefinition.NamedType("b", "int16"),
+            new AbiDefinition.NamedType("s", "string"),
+            new AbiDefinition.NamedType("c", "address"),
+            new AbiDefinition.NamedType("d", "bool"),
+            new AbiDefinition.NamedType("e", "bytes4"),
+            new AbiDefinition.NamedType("g", "bytes"));
+
+    private static final List<AbiDefinition.NamedType> OUTPUTS = Arrays.asList(
+            new AbiDefinition.NamedType("", "uint256"),
+            new AbiDefinition.NamedType("", "string"),
+            new AbiDefinition.NamedType("", "bool"),
+            new AbiDefinition.NamedType("", "int8"));
+
+    private static Function function(BigInteger a, BigInteger b) {
+        return new Function("f", Arrays.<Type>asList(
+                new Uint8(a), new Int16(b), new Utf8String("Hello, world!"), new Address(ADDRESS),
+                new Bool(true), new Bytes4(new byte[] { 1, 2, 3, 4 }),
+                new DynamicBytes(new byte[] { 5, 6, 7 })),
+                Collections.<TypeReference<?>>emptyList());
+    }
+
+    private Class<?> compileCodecs() throws Exception {
+        String methodId = Hex.toHexString(
+                FunctionEncoder.encodeToBytes(function(BigInteger.ONE, BigInteger.ONE)), 0, 4);
+        TypeSpec codecs = TypeSpec.classBuilder("Codecs")
+                .addModifiers(Modifier.PUBLIC)
+                .addField(StaticCodecs.buildMethodIdField("F_BYTES", CodeBlock.of("$S", methodId)))
+                .addMethod(StaticCodecs.buildEncoder("encodeF", "F_BYTES", INPUTS))
+                .addMethod(StaticCodecs.buildDecoder("decodeF", OUTPUTS))
+                .build();
+        JavaFile.builder(PACKAGE, codecs).build().writeTo(new File(tempDirPath));
+
+        String sourceFile = tempDirPath + File.separator
+                + PACKAGE.replace('.', File.separatorChar) + File.separator + "Codecs.java";
+        compile(sourceFile);
+        URLClassLoader loader = new URLClassLoader(
+                new URL[] { new File(tempDirPath).toURI().toURL() }, getClass().getClassLoader());
+        return loader.loadClass(PACKAGE + ".Codecs");
+    }
+
+    private static void compile(String sourceFile) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        try (StandardJavaFileManager fileManager =
+                     compiler.getStandardFileManager(diagnostics, null, null)) {
+            Iterable<? extends JavaFileObject> compilationUnits = fileManager
+                    .getJavaFileObjectsFromStrings(Arrays.asList(sourceFile));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path")),
+                    null, compilationUnits);
+            boolean result = task.call();
+
+            System.out.println(diagnostics.getDiagnostics());
+            assertTrue("Generated codecs contain compile time errors", result);
+        }
+    }
+
+    private static byte[] encode(Method encoder, BigInteger a, BigInteger b) throws Exception {
+        return (byte[]) encoder.invoke(null, a, b, "Hello, world!", ADDRESS, true,
+                new byte[] { 1, 2, 3, 4 }, new byte[] { 5, 6, 7 });
+    }
+
+    private static void assertOutOfRange(Method encoder, BigInteger a, BigInteger b)
+            throws Exception {
+        try {
+            encode(encoder, a, b);
+            fail("Encoded " + a + ", " + b);
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    @Test
+    public void testEncoderMatchesFunctionEncoder() throws Exception {
+        Method encoder = compileCodecs().getMethod("encodeF", BigInteger.class, BigInteger.class,
+                String.class, String.class, Boolean.class, byte[].class, byte[].class);
+
+        BigInteger[][] values = {
+                { BigInteger.ZERO, BigInteger.ZERO },
+                { BigInteger.valueOf(255), BigInteger.valueOf(32767) },
+                { BigInteger.ONE, BigInteger.valueOf(-32768) } };
+        for (BigInteger[] value : values) {
+            assertArrayEquals(FunctionEncoder.encodeToBytes(function(value[0], value[1])),
+                    encode(encoder, value[0], value[1]));
+        }
+
+        assertOutOfRange(encoder, BigInteger.valueOf(256), BigInteger.ZERO);
+        assertOutOfRange(encoder, BigInteger.valueOf(-1), BigInteger.ZERO);
+        assertOutOfRange(encoder, BigInteger.ZERO, BigInteger.valueOf(32768));
+        assertOutOfRange(encoder, BigInteger.ZERO, BigInteger.valueOf(-32769));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDecoderMatchesFunctionReturnDecoder() throws Exception {
+        Method decoder = compileCodecs().getMethod("decodeF", byte[].class);
+
+        List<Type> values = Arrays.<Type>asList(new Uint256(BigInteger.valueOf(1000)),
+                new Utf8String("Hello, world!"), new Bool(true), new Int8(BigInteger.valueOf(-5)));
+        byte[] data = FunctionEncoder.encodeConstructorToBytes(values);
+        List<Type> expected = FunctionReturnDecoder.decode(data, Arrays.<TypeReference<Type>>asList(
+                (TypeReference) new TypeReference<Uint256>() { },
+                (TypeReference) new TypeReference<Utf8String>() { },
+                (TypeReference) new TypeReference<Bool>() { },
+                (TypeReference) new TypeReference<Int8>() { }));
+
+        Tuple4<BigInteger, String, Boolean, BigInteger> decoded =
+                (Tuple4<BigInteger, String, Boolean, BigInteger>) decoder.invoke(null, data);
+        assertThat(decoded.getValue1(), is(expected.get(0).getValue()));
+        assertThat(decoded.getValue2(), is(expected.get(1).getValue()));
+        assertThat(decoded.getValue3(), is(expected.get(2).getValue()));
+        assertThat(decoded.getValue4(), is(expected.get(3).getValue()));
+
+        // an offset past the end of the data
+        byte[] truncated = Arrays.copyOf(data, 4 * 32);
+        try {
+            decoder.invoke(null, truncated);
+            fail("Decoded truncated data");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+}